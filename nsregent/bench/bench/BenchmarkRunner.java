@@ -0,0 +1,29 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark in this package with the gc profiler (allocation rate per operation)
+ * and writes the results to bench-results.json for comparison between commits.
+ *
+ * Usage: BenchmarkRunner [regex], eg: BenchmarkRunner Parsing
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException {
+		String include = (args.length > 0) ? args[0] : "bench\\..*Benchmark";
+
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("bench-results.json")
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,123 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.RateLimiter;
+import backend.RegentContext;
+import backend.RegentImpl;
+import backend.StatsJournal;
+import sim.StandInServer;
+
+/**
+ * One full RegentImpl.handleIssues cycle against a StandInServer on the loopback interface:
+ * authentication, the combined shard request, the effect lookups (effect cache, then the results
+ * pages), planning, every c=issue answer, metrics and, optionally, the stats journal.
+ *
+ * The server hands every nation the same ISSUES_PER_NATION issues. With effectsCached the nations
+ * share an effect cache warmed in setup, otherwise each cycle starts with an empty one and fetches
+ * and parses every results page. The rate limiter never waits, so the loopback round trips and the
+ * CPU side of the cycle are what is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// the JDK HttpServer otherwise leaves Nagle on, and every response waits ~40 ms on the client's delayed ack
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class CycleBenchmark {
+	private static final Map<String, Double> TARGET = Map.of("Civil Rights", 80.0, "Economic Freedom", 20.0,
+			"Political Freedom", 60.0);
+
+	@Param({"false", "true"})
+	public boolean effectsCached;
+
+	@Param({"false", "true"})
+	public boolean journal;
+
+	private StandInServer server;
+	private HttpTransport transport;
+	private IssueEffectCache sharedCache;
+	private Path journalDirectory;
+	private StatsJournal statsJournal;
+	private int nations;
+	private RegentImpl regent;
+
+	@Setup(Level.Trial)
+	public void start() throws Exception {
+		server = StandInServer.start(0, 1L, StandInServer.ISSUES_PER_NATION);
+		transport = new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 2,
+				new RateLimiter(Integer.MAX_VALUE, Duration.ofSeconds(1)));
+		sharedCache = memoryCache();
+		if (journal) {
+			journalDirectory = Files.createTempDirectory("nsregent-bench-journal");
+			statsJournal = StatsJournal.open(journalDirectory);
+		}
+
+		// answers every issue once, which fills the shared cache and checks the setup works
+		String status = nextNation(sharedCache).handleIssues(TARGET);
+		if (!"success".equals(status)) {
+			throw new IllegalStateException("Warm up cycle failed: " + status);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void addNation() {
+		regent = nextNation(effectsCached ? sharedCache : memoryCache());
+	}
+
+	@Benchmark
+	public String cycle() throws Exception {
+		return regent.handleIssues(TARGET);
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws IOException {
+		transport.shutdown();
+		server.close();
+		if (statsJournal != null) {
+			statsJournal.close();
+			try (Stream<Path> files = Files.walk(journalDirectory)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	private RegentImpl nextNation(IssueEffectCache effectCache) {
+		String name = "benchmark_" + nations++;
+		server.addNation(name, "password");
+
+		RegentContext context = RegentContext.builder(transport, effectCache).endpoints(server.endpoints())
+				.statsJournal(statsJournal).build();
+		return new RegentImpl(name, "password", "benchmark", context);
+	}
+
+	private static IssueEffectCache memoryCache() {
+		return new IssueEffectCache(null, IssueEffectCache.DEFAULT_TTL, IssueEffectCache.DEFAULT_MEMORY_ENTRIES, 1);
+	}
+}
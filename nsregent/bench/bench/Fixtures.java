@@ -0,0 +1,37 @@
+package bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic responses used by the benchmarks, loaded from /fixtures on the classpath. They follow the
+ * structure of the real api and mwq responses but the text is generated filler and the numbers are made up
+ * (every mean lies inside its range, as on a real results page). To benchmark real traffic, capture it with
+ * sim.RecordingProxy instead.
+ *
+ * nation-shards.xml: q=issues+freedomscores+census;scale=48 with 5 pending issues
+ * issue-answer.xml: c=issue answer with RANKINGS, reclassifications and unlocks
+ * mwq-issue.html: mwq results page with 4 options
+ */
+final class Fixtures {
+	static final byte[] NATION_SHARDS = load("nation-shards.xml");
+	static final byte[] ISSUE_ANSWER = load("issue-answer.xml");
+	static final String MWQ_ISSUE = new String(load("mwq-issue.html"), StandardCharsets.UTF_8);
+	static final String MWQ_URL = "http://www.mwq.dds.nl/ns/results/1031.html";
+
+	private Fixtures() {
+	}
+
+	private static byte[] load(String name) {
+		try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+			if (in == null) {
+				throw new IllegalStateException("Missing fixture " + name);
+			}
+			return in.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import backend.ApiResponseParser;
+import backend.IssueEffectsParser;
+import backend.IssueResult;
+import backend.NationShards;
+import backend.OptionMatrix;
+
+/**
+ * Parsing cost of the responses a cycle reads: the combined shard response,
+ * an issue answer and an mwq effects page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+	private static final Set<Integer> SCALES = Set.of(48);
+
+	@Benchmark
+	public NationShards nationShards() throws IOException {
+		return ApiResponseParser.parseShards(new ByteArrayInputStream(Fixtures.NATION_SHARDS), SCALES);
+	}
+
+	@Benchmark
+	public IssueResult issueAnswer() throws IOException {
+		return ApiResponseParser.parseIssueResult(new ByteArrayInputStream(Fixtures.ISSUE_ANSWER));
+	}
+
+	@Benchmark
+	public OptionMatrix mwqEffects() {
+		return IssueEffectsParser.parse(Fixtures.MWQ_ISSUE, Fixtures.MWQ_URL);
+	}
+}
@@ -0,0 +1,139 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import backend.CensusScale;
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.IssuePlanner;
+import backend.OptionMatrix;
+import backend.OptionScorer;
+import backend.RegentContext;
+import backend.RegentImpl;
+import backend.StatVector;
+
+/**
+ * Decision cost: greedy chooseBestOption on one issue and IssuePlanner over all pending issues,
+ * for a target on the three freedoms or on a wider set of census scales, plus the range aware
+ * OptionScorer modes and planner on the same issues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+	@Param({"3", "24"})
+	public int targetScales;
+
+	@Param({"5"})
+	public int pendingIssues;
+
+	private RegentImpl regent;
+	private IssuePlanner planner;
+	private StatVector current;
+	private StatVector target;
+	private List<OptionMatrix> issues;
+	private IssuePlanner rangeAwarePlanner;
+	private OptionScorer expected;
+	private OptionScorer worstCase;
+	private OptionScorer monteCarlo;
+	private int[] scales;
+	private double[] scores;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		// memory only cache and no effects database, so the benchmark never touches ~/.nsregent
+		RegentContext context = RegentContext.builder(HttpTransport.shared(), new IssueEffectCache(null,
+				IssueEffectCache.DEFAULT_TTL, IssueEffectCache.DEFAULT_MEMORY_ENTRIES, 1)).build();
+		regent = new RegentImpl("benchmark", "benchmark", "benchmark", context);
+		planner = new IssuePlanner();
+		current = new StatVector();
+		target = new StatVector();
+		issues = new ArrayList<>();
+
+		CensusScale[] scales = CensusScale.values();
+		target.set(CensusScale.CIVIL_RIGHTS, 80);
+		target.set(CensusScale.ECONOMIC_FREEDOM, 20);
+		target.set(CensusScale.POLITICAL_FREEDOM, 60);
+		// every third scale, skipping the freedoms already set, so the target has targetScales distinct scales
+		for (int i = 0; target.size() < targetScales; i += 3) {
+			if (!target.has(scales[i])) {
+				target.set(scales[i], random.nextDouble(0, 100));
+			}
+		}
+		for (CensusScale scale : scales) {
+			current.set(scale, random.nextDouble(0, 100));
+		}
+
+		for (int i = 0; i < pendingIssues; i++) {
+			OptionMatrix.Builder options = OptionMatrix.builder();
+			int optionCount = random.nextInt(2, 6);
+			for (int o = 0; o < optionCount; o++) {
+				for (int e = 0; e < 12; e++) {
+					double mean = random.nextDouble(-4, 4);
+					double spread = random.nextDouble(0, 3);
+					options.effect(o, scales[random.nextInt(scales.length)], mean - spread, mean, mean + spread);
+				}
+			}
+			issues.add(options.build());
+		}
+
+		rangeAwarePlanner = new IssuePlanner(IssuePlanner.DEFAULT_BEAM_WIDTH, IssuePlanner.EXHAUSTIVE_LIMIT, true);
+		expected = new OptionScorer(OptionScorer.Mode.EXPECTED);
+		worstCase = new OptionScorer(OptionScorer.Mode.WORST_CASE);
+		monteCarlo = new OptionScorer(OptionScorer.Mode.MONTE_CARLO);
+		this.scales = current.sharedScales(target);
+		scores = new double[issues.get(0).optionCount()];
+	}
+
+	@Benchmark
+	public int greedy() {
+		return regent.chooseBestOption(current, target, issues.get(0));
+	}
+
+	@Benchmark
+	public IssuePlanner.Plan planned() {
+		return planner.plan(current, target, issues);
+	}
+
+	@Benchmark
+	public IssuePlanner.Plan plannedRangeAware() {
+		return rangeAwarePlanner.plan(current, target, issues);
+	}
+
+	@Benchmark
+	public double[] scoreExpected() {
+		expected.score(current.values(), target.values(), this.scales, issues.get(0), scores);
+		return scores;
+	}
+
+	@Benchmark
+	public double[] scoreWorstCase() {
+		worstCase.score(current.values(), target.values(), this.scales, issues.get(0), scores);
+		return scores;
+	}
+
+	@Benchmark
+	public double[] scoreMonteCarlo() {
+		monteCarlo.score(current.values(), target.values(), this.scales, issues.get(0), scores);
+		return scores;
+	}
+}
@@ -0,0 +1,295 @@
+package backend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming StAX parsers for NationStates API responses.
+ *
+ * Each method consumes the response body as it arrives, keeps only the elements it needs and
+ * stops reading as soon as its data is complete. Element order inside a shard does not matter.
+ */
+public final class ApiResponseParser {
+	private static final XMLInputFactory FACTORY = createFactory();
+
+	private ApiResponseParser() {
+	}
+
+	/**
+	 * Collects the id attribute of every ISSUE element.
+	 *
+	 * pre: (body != null)
+	 * post: issueIds can be empty if no issues are found
+	 *
+	 * @param body response body of a q=issues request
+	 * @return issueIds in document order
+	 * @throws IOException if the body is not well formed xml
+	 */
+	public static List<Integer> parseIssueIds(InputStream body) throws IOException {
+		List<Integer> issueIds = new ArrayList<>();
+		XMLStreamReader reader = open(body);
+
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && "ISSUE".equals(reader.getLocalName())) {
+					String id = reader.getAttributeValue(null, "id");
+					if (id != null) {
+						issueIds.add(Integer.parseInt(id.trim()));
+					}
+				} else if (reader.getEventType() == XMLStreamConstants.END_ELEMENT
+						&& "ISSUES".equals(reader.getLocalName())) {
+					break;
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Malformed issues response", e);
+		} finally {
+			close(reader);
+		}
+
+		return issueIds;
+	}
+
+	/**
+	 * Reads the FREEDOMSCORES shard: {"Civil Rights", "Economy", "Political Freedom"}.
+	 *
+	 * pre: (body != null)
+	 * post: returns only the scores present in the body, stops at the end of FREEDOMSCORES
+	 *
+	 * @param body response body of a q=freedomscores request
+	 * @return {category=score}
+	 * @throws IOException if the body is not well formed xml
+	 */
+	public static Map<String, Double> parseFreedomScores(InputStream body) throws IOException {
+		Map<String, Double> freedomScores = new HashMap<>();
+		XMLStreamReader reader = open(body);
+
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String category = freedomCategory(reader.getLocalName());
+					if (category != null) {
+						freedomScores.put(category, Double.parseDouble(reader.getElementText().trim()));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && "FREEDOMSCORES".equals(reader.getLocalName())) {
+					break;
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Malformed freedomscores response", e);
+		} finally {
+			close(reader);
+		}
+
+		return freedomScores;
+	}
+
+	/**
+	 * Reads SCALE/SCORE pairs from the CENSUS shard.
+	 *
+	 * pre: (body != null && scaleIds != null && !scaleIds.isEmpty())
+	 * post: stops reading once every requested scale has been found
+	 *
+	 * @param body response body of a q=census request
+	 * @param scaleIds census scales to extract
+	 * @return {scaleId=score} for the requested scales present in the body
+	 * @throws IOException if the body is not well formed xml
+	 */
+	public static Map<Integer, Double> parseCensusScores(InputStream body, Set<Integer> scaleIds) throws IOException {
+		Map<Integer, Double> scores = new HashMap<>();
+		XMLStreamReader reader = open(body);
+		int currentScale = -1;
+
+		try {
+			while (reader.hasNext() && scores.size() < scaleIds.size()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("SCALE".equals(name)) {
+						String id = reader.getAttributeValue(null, "id");
+						currentScale = (id == null) ? -1 : Integer.parseInt(id.trim());
+					} else if ("SCORE".equals(name) && scaleIds.contains(currentScale)) {
+						scores.put(currentScale, Double.parseDouble(reader.getElementText().trim()));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && "SCALE".equals(reader.getLocalName())) {
+					currentScale = -1;
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Malformed census response", e);
+		} finally {
+			close(reader);
+		}
+
+		return scores;
+	}
+
+	/**
+	 * Reads a combined shard response (eg: q=issues+freedomscores+census+nextissuetime) in a single pass.
+	 *
+	 * pre: (body != null && scaleIds != null)
+	 * post: shards missing from the body are returned empty
+	 *
+	 * @param body response body of a combined shard request
+	 * @param scaleIds census scales to extract
+	 * @return parsed shards
+	 * @throws IOException if the body is not well formed xml
+	 */
+	public static NationShards parseShards(InputStream body, Set<Integer> scaleIds) throws IOException {
+		List<Integer> issueIds = new ArrayList<>();
+		Map<String, Double> freedomScores = new HashMap<>();
+		Map<Integer, Double> censusScores = new HashMap<>();
+		long nextIssueTime = 0;
+		XMLStreamReader reader = open(body);
+		boolean inFreedomScores = false;
+		int currentScale = -1;
+
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("ISSUE".equals(name)) {
+						String id = reader.getAttributeValue(null, "id");
+						if (id != null) {
+							issueIds.add(Integer.parseInt(id.trim()));
+						}
+					} else if ("FREEDOMSCORES".equals(name)) {
+						inFreedomScores = true;
+					} else if (inFreedomScores && freedomCategory(name) != null) {
+						freedomScores.put(freedomCategory(name), Double.parseDouble(reader.getElementText().trim()));
+					} else if ("SCALE".equals(name)) {
+						String id = reader.getAttributeValue(null, "id");
+						currentScale = (id == null) ? -1 : Integer.parseInt(id.trim());
+					} else if ("SCORE".equals(name) && scaleIds.contains(currentScale)) {
+						censusScores.put(currentScale, Double.parseDouble(reader.getElementText().trim()));
+					} else if ("NEXTISSUETIME".equals(name)) {
+						nextIssueTime = Long.parseLong(reader.getElementText().trim());
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("FREEDOMSCORES".equals(name)) {
+						inFreedomScores = false;
+					} else if ("SCALE".equals(name)) {
+						currentScale = -1;
+					}
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Malformed shard response", e);
+		} finally {
+			close(reader);
+		}
+
+		return new NationShards(issueIds, freedomScores, censusScores, nextIssueTime);
+	}
+
+	/**
+	 * Reads the response of a c=issue command: the ERROR message if the answer was rejected,
+	 * otherwise the CHANGE of every RANK in RANKINGS.
+	 *
+	 * pre: (body != null)
+	 * post: stops reading at the end of RANKINGS
+	 *
+	 * @param body response body of a c=issue request
+	 * @return parsed result
+	 * @throws IOException if the body is not well formed xml
+	 */
+	public static IssueResult parseIssueResult(InputStream body) throws IOException {
+		Map<Integer, Double> censusChanges = new HashMap<>();
+		XMLStreamReader reader = open(body);
+		String error = null;
+		boolean hasRankings = false;
+		int currentRank = -1;
+
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("ERROR".equals(name)) {
+						error = reader.getElementText().trim();
+					} else if ("RANKINGS".equals(name)) {
+						hasRankings = true;
+					} else if ("RANK".equals(name)) {
+						String id = reader.getAttributeValue(null, "id");
+						currentRank = (id == null) ? -1 : Integer.parseInt(id.trim());
+					} else if ("CHANGE".equals(name) && currentRank >= 0) {
+						censusChanges.put(currentRank, Double.parseDouble(reader.getElementText().trim()));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					String name = reader.getLocalName();
+
+					if ("RANK".equals(name)) {
+						currentRank = -1;
+					} else if ("RANKINGS".equals(name)) {
+						break;
+					}
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Malformed issue response", e);
+		} finally {
+			close(reader);
+		}
+
+		return new IssueResult(error, censusChanges, hasRankings);
+	}
+
+	private static String freedomCategory(String element) {
+		switch (element) {
+			case "CIVILRIGHTS":
+				return "Civil Rights";
+			case "ECONOMY":
+				return "Economy";
+			case "POLITICALFREEDOM":
+				return "Political Freedom";
+			default:
+				return null;
+		}
+	}
+
+	static XMLStreamReader open(InputStream body) throws IOException {
+		try {
+			return FACTORY.createXMLStreamReader(body);
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to read response", e);
+		}
+	}
+
+	static void close(XMLStreamReader reader) {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			// nothing left to release
+		}
+	}
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+		return factory;
+	}
+}
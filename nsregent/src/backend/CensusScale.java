@@ -0,0 +1,150 @@
+package backend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NationStates census scales, in census id order.
+ *
+ * The label is the census name as it appears on the mwq results pages, so scraped effects map
+ * straight onto a scale. The ordinal doubles as the index into StatVector and OptionMatrix arrays.
+ */
+public enum CensusScale {
+	CIVIL_RIGHTS(0, "Civil Rights"),
+	ECONOMY(1, "Economy"),
+	POLITICAL_FREEDOM(2, "Political Freedom"),
+	POPULATION(3, "Population"),
+	WEALTH_GAPS(4, "Wealth Gaps"),
+	DEATH_RATE(5, "Death Rate"),
+	COMPASSION(6, "Compassion"),
+	ECO_FRIENDLINESS(7, "Eco-Friendliness"),
+	SOCIAL_CONSERVATISM(8, "Social Conservatism"),
+	NUDITY(9, "Nudity"),
+	INDUSTRY_AUTOMOBILE_MANUFACTURING(10, "Industry: Automobile Manufacturing"),
+	INDUSTRY_CHEESE_EXPORTS(11, "Industry: Cheese Exports"),
+	INDUSTRY_BASKET_WEAVING(12, "Industry: Basket Weaving"),
+	INDUSTRY_INFORMATION_TECHNOLOGY(13, "Industry: Information Technology"),
+	INDUSTRY_PIZZA_DELIVERY(14, "Industry: Pizza Delivery"),
+	INDUSTRY_TROUT_FISHING(15, "Industry: Trout Fishing"),
+	INDUSTRY_ARMS_MANUFACTURING(16, "Industry: Arms Manufacturing"),
+	SECTOR_AGRICULTURE(17, "Sector: Agriculture"),
+	INDUSTRY_BEVERAGE_SALES(18, "Industry: Beverage Sales"),
+	INDUSTRY_TIMBER_WOODCHIPPING(19, "Industry: Timber Woodchipping"),
+	INDUSTRY_MINING(20, "Industry: Mining"),
+	INDUSTRY_INSURANCE(21, "Industry: Insurance"),
+	INDUSTRY_FURNITURE_RESTORATION(22, "Industry: Furniture Restoration"),
+	INDUSTRY_RETAIL(23, "Industry: Retail"),
+	INDUSTRY_BOOK_PUBLISHING(24, "Industry: Book Publishing"),
+	INDUSTRY_GAMBLING(25, "Industry: Gambling"),
+	SECTOR_MANUFACTURING(26, "Sector: Manufacturing"),
+	GOVERNMENT_SIZE(27, "Government Size"),
+	WELFARE(28, "Welfare"),
+	PUBLIC_HEALTHCARE(29, "Public Healthcare"),
+	LAW_ENFORCEMENT(30, "Law Enforcement"),
+	BUSINESS_SUBSIDIZATION(31, "Business Subsidization"),
+	RELIGIOUSNESS(32, "Religiousness"),
+	INCOME_EQUALITY(33, "Income Equality"),
+	NICENESS(34, "Niceness"),
+	RUDENESS(35, "Rudeness"),
+	INTELLIGENCE(36, "Intelligence"),
+	IGNORANCE(37, "Ignorance"),
+	POLITICAL_APATHY(38, "Political Apathy"),
+	HEALTH(39, "Health"),
+	CHEERFULNESS(40, "Cheerfulness"),
+	WEATHER(41, "Weather"),
+	COMPLIANCE(42, "Compliance"),
+	SAFETY(43, "Safety"),
+	LIFESPAN(44, "Lifespan"),
+	IDEOLOGICAL_RADICALITY(45, "Ideological Radicality"),
+	DEFENSE_FORCES(46, "Defense Forces"),
+	PACIFISM(47, "Pacifism"),
+	ECONOMIC_FREEDOM(48, "Economic Freedom"),
+	TAXATION(49, "Taxation"),
+	FREEDOM_FROM_TAXATION(50, "Freedom From Taxation"),
+	CORRUPTION(51, "Corruption"),
+	INTEGRITY(52, "Integrity"),
+	AUTHORITARIANISM(53, "Authoritarianism"),
+	YOUTH_REBELLIOUSNESS(54, "Youth Rebelliousness"),
+	CULTURE(55, "Culture"),
+	EMPLOYMENT(56, "Employment"),
+	PUBLIC_TRANSPORT(57, "Public Transport"),
+	TOURISM(58, "Tourism"),
+	WEAPONIZATION(59, "Weaponization"),
+	RECREATIONAL_DRUG_USE(60, "Recreational Drug Use"),
+	OBESITY(61, "Obesity"),
+	SECULARISM(62, "Secularism"),
+	ENVIRONMENTAL_BEAUTY(63, "Environmental Beauty"),
+	CHARMLESSNESS(64, "Charmlessness"),
+	INFLUENCE(65, "Influence"),
+	WORLD_ASSEMBLY_ENDORSEMENTS(66, "World Assembly Endorsements"),
+	AVERAGENESS(67, "Averageness"),
+	HUMAN_DEVELOPMENT_INDEX(68, "Human Development Index"),
+	PRIMITIVENESS(69, "Primitiveness"),
+	SCIENTIFIC_ADVANCEMENT(70, "Scientific Advancement"),
+	INCLUSIVENESS(71, "Inclusiveness"),
+	AVERAGE_INCOME(72, "Average Income"),
+	AVERAGE_INCOME_OF_POOR(73, "Average Income of Poor"),
+	AVERAGE_INCOME_OF_RICH(74, "Average Income of Rich"),
+	PUBLIC_EDUCATION(75, "Public Education"),
+	ECONOMIC_OUTPUT(76, "Economic Output"),
+	CRIME(77, "Crime"),
+	FOREIGN_AID(78, "Foreign Aid"),
+	BLACK_MARKET(79, "Black Market"),
+	RESIDENCY(80, "Residency"),
+	SURVIVORS(81, "Survivors"),
+	ZOMBIES(82, "Zombies"),
+	DEAD(83, "Dead"),
+	PERCENTAGE_ZOMBIES(84, "Percentage Zombies"),
+	AVERAGE_DISPOSABLE_INCOME(85, "Average Disposable Income"),
+	INTERNATIONAL_ARTWORK(86, "International Artwork"),
+	PATRIOTISM(87, "Patriotism"),
+	FOOD_QUALITY(88, "Food Quality");
+
+	public static final int COUNT = values().length;
+
+	private static final CensusScale[] BY_ID = new CensusScale[COUNT];
+	private static final Map<String, CensusScale> BY_LABEL = new HashMap<>();
+
+	static {
+		for (CensusScale scale : values()) {
+			BY_ID[scale.id] = scale;
+			BY_LABEL.put(scale.label, scale);
+		}
+	}
+
+	private final int id;
+	private final String label;
+
+	CensusScale(int id, String label) {
+		this.id = id;
+		this.label = label;
+	}
+
+	public int id() {
+		return id;
+	}
+
+	public String label() {
+		return label;
+	}
+
+	/**
+	 * Returns the scale with the given census id, or null if there is none.
+	 *
+	 * @param id
+	 * @return scale
+	 */
+	public static CensusScale fromId(int id) {
+		return (id >= 0 && id < COUNT) ? BY_ID[id] : null;
+	}
+
+	/**
+	 * Returns the scale with the given census name (eg: "Civil Rights"), or null if there is none.
+	 *
+	 * @param label
+	 * @return scale
+	 */
+	public static CensusScale fromLabel(String label) {
+		return (label == null) ? null : BY_LABEL.get(label.trim());
+	}
+}
@@ -0,0 +1,314 @@
+package backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * Validators and decoded bodies of GET responses, kept per URI so repeat requests can be
+ * revalidated with If-None-Match / If-Modified-Since and a 304 answered from memory.
+ *
+ * Only 200 responses carrying an ETag or Last-Modified are kept, never ones marked no-store or
+ * Vary: *, and never bodies over MAX_BODY_BYTES. Entries are evicted least recently used once the
+ * bodies held exceed the byte budget. Safe to use from any thread.
+ */
+public class ConditionalCache {
+	public static final long DEFAULT_MAX_BYTES = 16L << 20;
+	public static final int MAX_BODY_BYTES = 1 << 20;
+	// describe the encoded body, the cache holds the decoded one
+	private static final List<String> DROPPED_HEADERS = List.of("content-encoding", "content-length", "transfer-encoding");
+
+	private final long maxBytes;
+	private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	/**
+	 * pre: (maxBytes >= 0)
+	 *
+	 * @param maxBytes budget for the bodies held, 0 disables the cache
+	 */
+	public ConditionalCache(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Max bytes cannot be negative");
+		}
+
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * A cached response: its validators, headers and decoded body.
+	 */
+	public record Entry(String etag, String lastModified, Map<String, List<String>> headers, byte[] body) {
+	}
+
+	/**
+	 * Returns the entry to revalidate request with, or null if there is none or request is not a
+	 * plain GET (eg: it already carries its own validators).
+	 *
+	 * pre: (request != null)
+	 *
+	 * @param request
+	 * @return entry or null
+	 */
+	public synchronized Entry get(HttpRequest request) {
+		if (!request.method().equals("GET") || request.headers().firstValue("If-None-Match").isPresent()
+				|| request.headers().firstValue("If-Modified-Since").isPresent()) {
+			return null;
+		}
+
+		return entries.get(request.uri());
+	}
+
+	/**
+	 * Returns the number of bytes held in bodies.
+	 *
+	 * @return bytes
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Adds the validators of entry to a request builder.
+	 *
+	 * @param request
+	 * @param entry
+	 * @return request
+	 */
+	static HttpRequest.Builder revalidate(HttpRequest.Builder request, Entry entry) {
+		if (entry.etag() != null) {
+			request.setHeader("If-None-Match", entry.etag());
+		}
+		if (entry.lastModified() != null) {
+			request.setHeader("If-Modified-Since", entry.lastModified());
+		}
+		return request;
+	}
+
+	/**
+	 * Returns whether the response to request may be kept.
+	 *
+	 * @param request
+	 * @param info
+	 * @return cacheable
+	 */
+	static boolean isCacheable(HttpRequest request, ResponseInfo info) {
+		HttpHeaders headers = info.headers();
+
+		if (!request.method().equals("GET") || info.statusCode() != 200) {
+			return false;
+		}
+		if (headers.firstValue("ETag").isEmpty() && headers.firstValue("Last-Modified").isEmpty()) {
+			return false;
+		}
+		if (headers.allValues("Cache-Control").stream().anyMatch(value -> value.toLowerCase(Locale.ROOT).contains("no-store"))
+				|| headers.allValues("Vary").stream().anyMatch(value -> value.trim().equals("*"))) {
+			return false;
+		}
+		return headers.firstValueAsLong("Content-Length").orElse(0) <= MAX_BODY_BYTES;
+	}
+
+	/**
+	 * Wraps a subscriber of the decoded body so the body is stored once it completes.
+	 *
+	 * @param uri
+	 * @param headers response headers
+	 * @param downstream
+	 * @return subscriber
+	 */
+	<T> BodySubscriber<T> recording(URI uri, HttpHeaders headers, BodySubscriber<T> downstream) {
+		return new Recorder<>(uri, headers, downstream);
+	}
+
+	/**
+	 * Builds the 200 response for a 304: the cached body fed through bodyHandler, under the cached
+	 * headers overlaid with the 304's own (so fresh headers such as RateLimit-Remaining win).
+	 *
+	 * @param notModified
+	 * @param entry
+	 * @param bodyHandler
+	 * @return response
+	 * @throws IOException if bodyHandler fails on the cached body
+	 */
+	static <T> HttpResponse<T> replay(HttpResponse<?> notModified, Entry entry, BodyHandler<T> bodyHandler) throws IOException {
+		Map<String, List<String>> merged = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		merged.putAll(entry.headers());
+		notModified.headers().map().forEach((name, values) -> {
+			if (!DROPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+				merged.put(name, values);
+			}
+		});
+		HttpHeaders headers = HttpHeaders.of(merged, (name, value) -> true);
+
+		BodySubscriber<T> subscriber = bodyHandler.apply(new ResponseInfo() {
+			@Override
+			public int statusCode() {
+				return 200;
+			}
+
+			@Override
+			public HttpHeaders headers() {
+				return headers;
+			}
+
+			@Override
+			public HttpClient.Version version() {
+				return notModified.version();
+			}
+		});
+
+		subscriber.onSubscribe(new Flow.Subscription() {
+			private boolean delivered;
+
+			@Override
+			public synchronized void request(long n) {
+				if (delivered || n <= 0) {
+					return;
+				}
+				delivered = true;
+				subscriber.onNext(List.of(ByteBuffer.wrap(entry.body()).asReadOnlyBuffer()));
+				subscriber.onComplete();
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+
+		try {
+			return new Replayed<>(notModified, headers, subscriber.getBody().toCompletableFuture().get());
+		} catch (ExecutionException e) {
+			throw new IOException("Could not read the cached body of " + notModified.uri(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted reading the cached body of " + notModified.uri(), e);
+		}
+	}
+
+	private synchronized void put(URI uri, Entry entry) {
+		Entry previous = entries.put(uri, entry);
+		if (previous != null) {
+			bytes -= previous.body().length;
+		}
+		bytes += entry.body().length;
+
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= eldest.next().body().length;
+			eldest.remove();
+		}
+	}
+
+	private final class Recorder<T> implements BodySubscriber<T> {
+		private final URI uri;
+		private final HttpHeaders headers;
+		private final BodySubscriber<T> downstream;
+		// null once the body is known to be too large to keep
+		private ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		private Recorder(URI uri, HttpHeaders headers, BodySubscriber<T> downstream) {
+			this.uri = uri;
+			this.headers = headers;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public CompletionStage<T> getBody() {
+			return downstream.getBody();
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			downstream.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> items) {
+			if (body != null) {
+				for (ByteBuffer item : items) {
+					ByteBuffer copy = item.duplicate();
+					if (body.size() + copy.remaining() > MAX_BODY_BYTES) {
+						body = null;
+						break;
+					}
+					byte[] bytes = new byte[copy.remaining()];
+					copy.get(bytes);
+					body.writeBytes(bytes);
+				}
+			}
+			downstream.onNext(items);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			downstream.onError(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			if (body != null) {
+				Map<String, List<String>> kept = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+				headers.map().forEach((name, values) -> {
+					if (!DROPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+						kept.put(name, values);
+					}
+				});
+				put(uri, new Entry(headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null),
+						kept, body.toByteArray()));
+			}
+			downstream.onComplete();
+		}
+	}
+
+	private record Replayed<T>(HttpResponse<?> notModified, HttpHeaders headers, T body) implements HttpResponse<T> {
+		@Override
+		public int statusCode() {
+			return 200;
+		}
+
+		@Override
+		public HttpRequest request() {
+			return notModified.request();
+		}
+
+		@Override
+		public Optional<HttpResponse<T>> previousResponse() {
+			return Optional.empty();
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return notModified.sslSession();
+		}
+
+		@Override
+		public URI uri() {
+			return notModified.uri();
+		}
+
+		@Override
+		public HttpClient.Version version() {
+			return notModified.version();
+		}
+	}
+}
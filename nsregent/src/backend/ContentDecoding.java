@@ -0,0 +1,234 @@
+package backend;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming decoder for gzip and deflate response bodies.
+ *
+ * decode() wraps a BodySubscriber so it receives the decoded bytes chunk by chunk as they arrive,
+ * whatever body type it produces (InputStream, byte[], String...). Nothing is buffered beyond the
+ * chunk being inflated and a partial gzip header.
+ */
+public final class ContentDecoding {
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private ContentDecoding() {
+	}
+
+	/**
+	 * Returns a subscriber that decodes the body according to its Content-Encoding before passing it
+	 * to downstream; identity and unknown encodings are passed through untouched.
+	 *
+	 * pre: (headers != null && downstream != null)
+	 *
+	 * @param headers response headers
+	 * @param downstream subscriber receiving the decoded body
+	 * @return subscriber
+	 */
+	public static <T> BodySubscriber<T> decode(HttpHeaders headers, BodySubscriber<T> downstream) {
+		String encoding = headers.firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+
+		return switch (encoding) {
+			case "gzip", "x-gzip" -> new Decoder<>(downstream, true);
+			case "deflate" -> new Decoder<>(downstream, false);
+			default -> downstream;
+		};
+	}
+
+	private static final class Decoder<T> implements BodySubscriber<T> {
+		private static final int CHUNK_BYTES = 8192;
+		private static final int FHCRC = 2;
+		private static final int FEXTRA = 4;
+		private static final int FNAME = 8;
+		private static final int FCOMMENT = 16;
+
+		private final BodySubscriber<T> downstream;
+		private final boolean gzip;
+		private Flow.Subscription subscription;
+		// bytes seen before the stream header was complete, null once the inflater exists
+		private byte[] header = new byte[0];
+		private Inflater inflater;
+		private boolean failed;
+
+		private Decoder(BodySubscriber<T> downstream, boolean gzip) {
+			this.downstream = downstream;
+			this.gzip = gzip;
+		}
+
+		@Override
+		public CompletionStage<T> getBody() {
+			return downstream.getBody();
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			downstream.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> items) {
+			if (failed) {
+				return;
+			}
+
+			List<ByteBuffer> decoded = new ArrayList<>();
+			try {
+				for (ByteBuffer item : items) {
+					inflate(item, decoded);
+				}
+			} catch (IOException e) {
+				failed = true;
+				subscription.cancel();
+				end();
+				downstream.onError(e);
+				return;
+			}
+
+			if (decoded.isEmpty()) {
+				// nothing to hand on (eg: only header bytes), so the downstream demand is still open
+				subscription.request(1);
+			} else {
+				downstream.onNext(decoded);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			end();
+			if (!failed) {
+				downstream.onError(throwable);
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (failed) {
+				return;
+			}
+
+			boolean truncated = (inflater == null) ? header.length > 0 : !inflater.finished();
+			end();
+			if (truncated) {
+				downstream.onError(new EOFException("Compressed response body ended early"));
+			} else {
+				downstream.onComplete();
+			}
+		}
+
+		private void inflate(ByteBuffer input, List<ByteBuffer> decoded) throws IOException {
+			if (inflater == null) {
+				input = afterHeader(input);
+				if (input == null) {
+					return;
+				}
+			}
+
+			// bytes after the end of the stream (the gzip trailer) are ignored
+			if (inflater.finished()) {
+				return;
+			}
+
+			inflater.setInput(input);
+			try {
+				while (!inflater.finished() && !inflater.needsInput()) {
+					byte[] chunk = new byte[CHUNK_BYTES];
+					int length = inflater.inflate(chunk);
+					if (length > 0) {
+						decoded.add(ByteBuffer.wrap(chunk, 0, length));
+					} else if (inflater.needsDictionary()) {
+						throw new IOException("Deflate streams with a preset dictionary are not supported");
+					} else {
+						break;
+					}
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt compressed response body", e);
+			}
+		}
+
+		/**
+		 * Buffers input until the stream header is complete, then creates the inflater.
+		 *
+		 * @return the input following the header, or null while the header is incomplete
+		 */
+		private ByteBuffer afterHeader(ByteBuffer input) throws IOException {
+			byte[] joined = new byte[header.length + input.remaining()];
+			System.arraycopy(header, 0, joined, 0, header.length);
+			input.get(joined, header.length, input.remaining());
+
+			int headerLength = gzip ? gzipHeaderLength(joined) : (joined.length >= 2 ? 0 : -1);
+			if (headerLength < 0) {
+				header = joined;
+				return null;
+			}
+
+			// "deflate" should be zlib wrapped, but some servers send raw deflate
+			inflater = new Inflater(gzip || !isZlibHeader(joined));
+			header = null;
+			return ByteBuffer.wrap(joined, headerLength, joined.length - headerLength);
+		}
+
+		private static int gzipHeaderLength(byte[] bytes) throws IOException {
+			if ((bytes.length >= 1 && bytes[0] != (byte) 0x1f) || (bytes.length >= 2 && bytes[1] != (byte) 0x8b)
+					|| (bytes.length >= 3 && bytes[2] != 8)) {
+				throw new IOException("Response body is not in gzip format");
+			}
+			if (bytes.length < 10) {
+				return -1;
+			}
+
+			int flags = bytes[3] & 0xff;
+			int position = 10;
+			if ((flags & FEXTRA) != 0) {
+				if (bytes.length < position + 2) {
+					return -1;
+				}
+				position += 2 + ((bytes[position] & 0xff) | (bytes[position + 1] & 0xff) << 8);
+			}
+			if ((flags & FNAME) != 0) {
+				position = skipZeroTerminated(bytes, position);
+			}
+			if ((flags & FCOMMENT) != 0 && position >= 0) {
+				position = skipZeroTerminated(bytes, position);
+			}
+			if ((flags & FHCRC) != 0 && position >= 0) {
+				position += 2;
+			}
+
+			return (position < 0 || position > bytes.length) ? -1 : position;
+		}
+
+		private static int skipZeroTerminated(byte[] bytes, int position) {
+			for (int i = position; i < bytes.length; i++) {
+				if (bytes[i] == 0) {
+					return i + 1;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean isZlibHeader(byte[] bytes) {
+			int cmf = bytes[0] & 0xff;
+			int flg = bytes[1] & 0xff;
+			return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+		}
+
+		private void end() {
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package backend;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Offline crawler that walks the mwq results pages issue by issue and builds an EffectsDatabase.
+ *
+ * Pages are fetched through HttpTransport.sendAsync (so at most MAX_ASYNC_REQUESTS at once) and
+ * parsed by IssueEffectsParser, keeping the min / max ranges along with the means. Without an upper
+ * bound the walk stops after MISSES_BEFORE_STOP consecutive ids have no page (404 or an empty table).
+ *
+ * Usage: EffectsCrawler --contact <email> [--out ~/.nsregent/effects.db] [--first 1] [--last 0]
+ *                       [--base <url of a stand-in server>] [--replace]
+ *
+ * The crawled issues are merged into the existing database (see EffectsDatabase.merge), so a bounded
+ * crawl or a page that failed never drops issues crawled before; --replace writes only this crawl.
+ * Exits with status 1 when some pages could not be fetched.
+ */
+public final class EffectsCrawler {
+	public static final int MISSES_BEFORE_STOP = 25;
+	public static final int FAILURES_BEFORE_STOP = 200;
+	private static final String APP_NAME = "NSRegent";
+	private static final int BATCH = 2 * HttpTransport.MAX_ASYNC_REQUESTS;
+
+	private final HttpTransport transport;
+	private final Endpoints endpoints;
+	private final String appContact;
+
+	/**
+	 * pre: (transport != null && endpoints != null && appContact != null && !appContact.isBlank())
+	 *
+	 * @param transport
+	 * @param endpoints where results pages are fetched from
+	 * @param appContact contact sent in the User-Agent of every request
+	 */
+	public EffectsCrawler(HttpTransport transport, Endpoints endpoints, String appContact) {
+		if (transport == null || endpoints == null || appContact == null || appContact.isBlank()) {
+			throw new IllegalArgumentException("Transport, endpoints and contact cannot be null or empty");
+		}
+
+		this.transport = transport;
+		this.endpoints = endpoints;
+		this.appContact = appContact;
+	}
+
+	/**
+	 * Fetches every issue from firstIssueId to lastIssueId, or until MISSES_BEFORE_STOP consecutive
+	 * misses when lastIssueId is 0. Only a 404 or a page without effects is a miss; a page that fails
+	 * (another status, or an I/O error) does not end the walk. Failed pages are fetched once more after
+	 * the walk, and those still failing are reported in the result. An unbounded walk also stops after
+	 * FAILURES_BEFORE_STOP consecutive failures (eg: the site is down).
+	 *
+	 * pre: firstIssueId > 0 && (lastIssueId == 0 || lastIssueId >= firstIssueId)
+	 *
+	 * @param firstIssueId
+	 * @param lastIssueId last id to fetch, 0 for no bound
+	 * @return issues found and ids whose page could not be fetched
+	 * @throws InterruptedException if interrupted while waiting for pages
+	 */
+	public Result crawl(int firstIssueId, int lastIssueId) throws InterruptedException {
+		if (firstIssueId <= 0 || (lastIssueId != 0 && lastIssueId < firstIssueId)) {
+			throw new IllegalArgumentException("Issue ids must be positive and ordered");
+		}
+
+		Map<Integer, OptionMatrix> issues = new TreeMap<>();
+		List<Integer> failed = new ArrayList<>();
+		int misses = 0;
+		int failures = 0;
+		int next = firstIssueId;
+
+		while ((lastIssueId == 0) ? misses < MISSES_BEFORE_STOP && failures < FAILURES_BEFORE_STOP : next <= lastIssueId) {
+			int end = (lastIssueId == 0) ? next + BATCH - 1 : Math.min(next + BATCH - 1, lastIssueId);
+			List<Integer> batch = new ArrayList<>();
+			for (int issueId = next; issueId <= end; issueId++) {
+				batch.add(issueId);
+			}
+
+			List<Outcome> outcomes = fetchAll(batch, issues);
+			for (int i = 0; i < batch.size(); i++) {
+				switch (outcomes.get(i)) {
+					case FOUND -> {
+						misses = 0;
+						failures = 0;
+					}
+					case MISSING -> {
+						misses++;
+						failures = 0;
+					}
+					case FAILED -> {
+						failed.add(batch.get(i));
+						failures++;
+					}
+				}
+			}
+
+			next = end + 1;
+		}
+
+		// transient errors (eg: a burst of 429s) get one more try once the walk is over
+		List<Integer> stillFailed = new ArrayList<>();
+		for (int from = 0; from < failed.size(); from += BATCH) {
+			List<Integer> batch = failed.subList(from, Math.min(from + BATCH, failed.size()));
+			List<Outcome> outcomes = fetchAll(batch, issues);
+			for (int i = 0; i < batch.size(); i++) {
+				if (outcomes.get(i) == Outcome.FAILED) {
+					stillFailed.add(batch.get(i));
+				}
+			}
+		}
+
+		return new Result(issues, stillFailed);
+	}
+
+	/**
+	 * Fetches a batch of pages at once, adding the issues found to issues.
+	 */
+	private List<Outcome> fetchAll(List<Integer> issueIds, Map<Integer, OptionMatrix> issues) throws InterruptedException {
+		List<CompletableFuture<HttpResponse<byte[]>>> pages = new ArrayList<>(issueIds.size());
+		for (int issueId : issueIds) {
+			pages.add(fetch(issueId));
+		}
+
+		List<Outcome> outcomes = new ArrayList<>(issueIds.size());
+		for (int i = 0; i < issueIds.size(); i++) {
+			outcomes.add(outcome(issueIds.get(i), pages.get(i), issues));
+		}
+		return outcomes;
+	}
+
+	private Outcome outcome(int issueId, CompletableFuture<HttpResponse<byte[]>> pending, Map<Integer, OptionMatrix> issues)
+			throws InterruptedException {
+		HttpResponse<byte[]> page;
+		try {
+			page = pending.get();
+		} catch (ExecutionException e) {
+			return Outcome.FAILED;
+		}
+
+		if (page.statusCode() == 404) {
+			return Outcome.MISSING;
+		}
+		if (page.statusCode() != 200) {
+			return Outcome.FAILED;
+		}
+
+		OptionMatrix options = IssueEffectsParser.parse(new String(page.body(), StandardCharsets.UTF_8),
+				endpoints.resultsUrl(issueId));
+		if (options == null || options.isEmpty()) {
+			return Outcome.MISSING;
+		}
+
+		issues.put(issueId, options);
+		return Outcome.FOUND;
+	}
+
+	private CompletableFuture<HttpResponse<byte[]>> fetch(int issueId) {
+		HttpRequest request = transport.configure(HttpRequest.newBuilder())
+				.uri(URI.create(endpoints.resultsUrl(issueId)))
+				.header("User-Agent", String.format("%s | Contact: %s", APP_NAME, appContact))
+				.GET()
+				.build();
+
+		return transport.sendAsync(Metrics.RESULTS_PAGE, request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	/**
+	 * Outcome of a crawl.
+	 *
+	 * @param issues effects by issue id, only issues with at least one option
+	 * @param failedIssueIds ids whose page failed with an error other than 404
+	 */
+	public record Result(Map<Integer, OptionMatrix> issues, List<Integer> failedIssueIds) {
+	}
+
+	private enum Outcome {
+		FOUND, MISSING, FAILED
+	}
+
+	public static void main(String[] args) throws Exception {
+		String contact = option(args, "--contact");
+		if (contact == null) {
+			System.err.println("Usage: EffectsCrawler --contact <email> [--out file] [--first 1] [--last 0] [--base url] [--replace]");
+			System.exit(2);
+		}
+
+		String out = option(args, "--out");
+		String base = option(args, "--base");
+		Path file = (out == null) ? EffectsDatabase.defaultFile() : Path.of(out);
+		Endpoints endpoints = (base == null) ? Endpoints.live() : Endpoints.at(URI.create(base));
+
+		EffectsCrawler crawler = new EffectsCrawler(HttpTransport.shared(), endpoints, contact);
+		Result result = crawler.crawl(intOption(args, "--first", 1), intOption(args, "--last", 0));
+		if (flag(args, "--replace")) {
+			EffectsDatabase.write(file, result.issues());
+		} else {
+			EffectsDatabase.merge(file, result.issues());
+		}
+
+		System.out.printf("Wrote %d issues to %s%n", result.issues().size(), file);
+		if (!result.failedIssueIds().isEmpty()) {
+			System.err.printf("Failed to fetch %d issues: %s%n", result.failedIssueIds().size(), result.failedIssueIds());
+			System.exit(1);
+		}
+	}
+
+	private static String option(String[] args, String name) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return null;
+	}
+
+	private static boolean flag(String[] args, String name) {
+		for (String arg : args) {
+			if (arg.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int intOption(String[] args, String name, int defaultValue) {
+		String value = option(args, name);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " expects a number, got " + value);
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read-only snapshot of the effects of every known issue, memory-mapped from a compact binary file.
+ *
+ * A lookup is an index read plus a few fixed width records straight from the mapping: no html
+ * parsing, no file per issue and nothing kept on the heap between lookups. Files are written by
+ * write() (see EffectsCrawler) and never change once mapped; a new snapshot replaces the file atomically.
+ * Effects drift as mwq gathers data points, so a snapshot older than MAX_AGE is no longer used and
+ * lookups fall through to the effect cache and the results pages until it is crawled again.
+ *
+ * File layout, big endian:
+ *   - header: magic, version, created (epoch millis), maxIssueId, option count, effect count
+ *   - index: maxIssueId + 1 entries of (first option, option count), indexed by issue id
+ *   - options: (option key, first effect, effect count) per option, sorted by issue then key
+ *   - effects: (census scale ordinal, min, mean, max) per non zero effect of an option
+ *
+ * Safe for concurrent readers: every read is an absolute get on the shared buffer.
+ */
+public final class EffectsDatabase {
+	public static final Duration MAX_AGE = Duration.ofDays(30);
+	private static final int MAGIC = 0x4E53_4546; // "NSEF"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+	private static final int INDEX_BYTES = 4 + 4;
+	private static final int OPTION_BYTES = 4 + 4 + 4;
+	private static final int EFFECT_BYTES = 4 + 8 + 8 + 8;
+	private static final CensusScale[] SCALES = CensusScale.values();
+
+	private final ByteBuffer buffer;
+	private final Instant createdAt;
+	private final int maxIssueId;
+	private final int optionsStart;
+	private final int effectsStart;
+
+	private EffectsDatabase(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not an effects database, or an unsupported version");
+		}
+
+		this.buffer = buffer;
+		this.createdAt = Instant.ofEpochMilli(buffer.getLong(8));
+		this.maxIssueId = buffer.getInt(16);
+		int optionCount = buffer.getInt(20);
+		int effectCount = buffer.getInt(24);
+		this.optionsStart = HEADER_BYTES + (maxIssueId + 1) * INDEX_BYTES;
+		this.effectsStart = optionsStart + optionCount * OPTION_BYTES;
+
+		if (maxIssueId < 0 || optionCount < 0 || effectCount < 0
+				|| (long) effectsStart + (long) effectCount * EFFECT_BYTES != buffer.capacity()) {
+			throw new IOException("Effects database is truncated or corrupt");
+		}
+	}
+
+	/**
+	 * Maps a database file written by write().
+	 *
+	 * pre: (file != null)
+	 *
+	 * @param file
+	 * @return database
+	 * @throws IOException if the file can't be read or isn't an effects database
+	 */
+	public static EffectsDatabase open(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new EffectsDatabase(mapped);
+		}
+	}
+
+	/**
+	 * Returns the database under ~/.nsregent/effects.db when one has been crawled, otherwise null.
+	 * An unreadable file is treated like a missing one.
+	 *
+	 * @return database or null
+	 */
+	public static EffectsDatabase openDefault() {
+		Path file = defaultFile();
+
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try {
+			return open(file);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns where openDefault() looks for the database.
+	 *
+	 * @return path
+	 */
+	public static Path defaultFile() {
+		return Path.of(System.getProperty("user.home"), ".nsregent", "effects.db");
+	}
+
+	/**
+	 * Writes a database holding the given issues, replacing file atomically.
+	 * Issues without options are left out.
+	 *
+	 * pre: (file != null && issues != null) && every issue id > 0
+	 *
+	 * @param file
+	 * @param issues effects by issue id
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(Path file, Map<Integer, OptionMatrix> issues) throws IOException {
+		write(file, issues, System.currentTimeMillis());
+	}
+
+	/**
+	 * Adds the given issues to the database in file, replacing the effects of issues it already has
+	 * and keeping every other issue, then replaces file atomically. Writes a new database when file
+	 * does not exist. createdAt() of the result is the age of its oldest data: it stays that of the
+	 * old snapshot unless every issue of the old snapshot was given again.
+	 *
+	 * pre: (file != null && issues != null) && every issue id > 0
+	 *
+	 * @param file
+	 * @param issues effects by issue id
+	 * @throws IOException if file exists but isn't an effects database, or can't be written
+	 */
+	public static void merge(Path file, Map<Integer, OptionMatrix> issues) throws IOException {
+		if (file == null || issues == null) {
+			throw new IllegalArgumentException("File and issues cannot be null");
+		}
+		if (!Files.exists(file)) {
+			write(file, issues);
+			return;
+		}
+
+		EffectsDatabase existing = open(file);
+		Map<Integer, OptionMatrix> merged = existing.issues();
+		boolean refreshedAll = issues.keySet().containsAll(merged.keySet());
+		merged.putAll(issues);
+
+		write(file, merged, refreshedAll ? System.currentTimeMillis() : existing.createdAt().toEpochMilli());
+	}
+
+	private static void write(Path file, Map<Integer, OptionMatrix> issues, long createdAt) throws IOException {
+		if (file == null || issues == null) {
+			throw new IllegalArgumentException("File and issues cannot be null");
+		}
+
+		TreeMap<Integer, OptionMatrix> sorted = new TreeMap<>();
+		int optionCount = 0;
+		int effectCount = 0;
+		for (Map.Entry<Integer, OptionMatrix> issue : issues.entrySet()) {
+			if (issue.getKey() == null || issue.getKey() <= 0 || issue.getValue() == null) {
+				throw new IllegalArgumentException("Issue ids must be positive and effects cannot be null");
+			}
+			if (issue.getValue().isEmpty()) continue;
+
+			sorted.put(issue.getKey(), issue.getValue());
+			optionCount += issue.getValue().optionCount();
+			for (int i = 0; i < issue.getValue().optionCount(); i++) {
+				effectCount += effectsOf(issue.getValue(), i);
+			}
+		}
+
+		int maxIssueId = sorted.isEmpty() ? 0 : sorted.lastKey();
+		int optionsStart = HEADER_BYTES + (maxIssueId + 1) * INDEX_BYTES;
+		int effectsStart = optionsStart + optionCount * OPTION_BYTES;
+		ByteBuffer out = ByteBuffer.allocate(effectsStart + effectCount * EFFECT_BYTES);
+
+		out.putInt(MAGIC).putInt(VERSION).putLong(createdAt)
+				.putInt(maxIssueId).putInt(optionCount).putInt(effectCount);
+
+		int option = 0;
+		int effect = 0;
+		for (Map.Entry<Integer, OptionMatrix> issue : sorted.entrySet()) {
+			OptionMatrix options = issue.getValue();
+			out.putInt(HEADER_BYTES + issue.getKey() * INDEX_BYTES, option)
+					.putInt(HEADER_BYTES + issue.getKey() * INDEX_BYTES + 4, options.optionCount());
+
+			for (int i = 0; i < options.optionCount(); i++) {
+				int optionAt = optionsStart + option * OPTION_BYTES;
+				int count = effectsOf(options, i);
+				out.putInt(optionAt, options.optionKey(i)).putInt(optionAt + 4, effect).putInt(optionAt + 8, count);
+
+				for (CensusScale scale : SCALES) {
+					int s = scale.ordinal();
+					if (isZero(options, i, s)) continue;
+
+					int effectAt = effectsStart + effect * EFFECT_BYTES;
+					out.putInt(effectAt, s)
+							.putDouble(effectAt + 4, options.min(i, s))
+							.putDouble(effectAt + 12, options.effect(i, s))
+							.putDouble(effectAt + 20, options.max(i, s));
+					effect++;
+				}
+				option++;
+			}
+		}
+
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temp, out.array());
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Returns the effects of an issue, or null when the snapshot doesn't have it.
+	 *
+	 * @param issueId
+	 * @return effects or null
+	 */
+	public OptionMatrix get(int issueId) {
+		if (issueId <= 0 || issueId > maxIssueId) {
+			return null;
+		}
+
+		int indexAt = HEADER_BYTES + issueId * INDEX_BYTES;
+		int firstOption = buffer.getInt(indexAt);
+		int optionCount = buffer.getInt(indexAt + 4);
+		if (optionCount == 0) {
+			return null;
+		}
+
+		OptionMatrix.Builder options = OptionMatrix.builder();
+		for (int o = firstOption; o < firstOption + optionCount; o++) {
+			int optionAt = optionsStart + o * OPTION_BYTES;
+			int optionKey = buffer.getInt(optionAt);
+			int firstEffect = buffer.getInt(optionAt + 4);
+			int effectCount = buffer.getInt(optionAt + 8);
+
+			options.option(optionKey);
+			for (int e = firstEffect; e < firstEffect + effectCount; e++) {
+				int effectAt = effectsStart + e * EFFECT_BYTES;
+				options.effect(optionKey, SCALES[buffer.getInt(effectAt)], buffer.getDouble(effectAt + 4),
+						buffer.getDouble(effectAt + 12), buffer.getDouble(effectAt + 20));
+			}
+		}
+
+		return options.build();
+	}
+
+	/**
+	 * Copies every issue of the snapshot onto the heap.
+	 *
+	 * @return effects by issue id, in id order
+	 */
+	public Map<Integer, OptionMatrix> issues() {
+		Map<Integer, OptionMatrix> issues = new TreeMap<>();
+		for (int issueId = 1; issueId <= maxIssueId; issueId++) {
+			OptionMatrix options = get(issueId);
+			if (options != null) {
+				issues.put(issueId, options);
+			}
+		}
+		return issues;
+	}
+
+	/**
+	 * Returns the number of issues in the snapshot.
+	 *
+	 * @return issueCount
+	 */
+	public int issueCount() {
+		int count = 0;
+		for (int issueId = 1; issueId <= maxIssueId; issueId++) {
+			if (buffer.getInt(HEADER_BYTES + issueId * INDEX_BYTES + 4) > 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns when the snapshot was written.
+	 *
+	 * @return createdAt
+	 */
+	public Instant createdAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Returns whether the snapshot is older than MAX_AGE and should no longer answer lookups.
+	 *
+	 * @return stale
+	 */
+	public boolean isStale() {
+		return createdAt.plus(MAX_AGE).isBefore(Instant.now());
+	}
+
+	private static int effectsOf(OptionMatrix options, int i) {
+		int count = 0;
+		for (int s = 0; s < CensusScale.COUNT; s++) {
+			if (!isZero(options, i, s)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isZero(OptionMatrix options, int i, int s) {
+		return options.effect(i, s) == 0.0 && options.min(i, s) == 0.0 && options.max(i, s) == 0.0;
+	}
+}
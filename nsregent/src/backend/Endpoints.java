@@ -0,0 +1,90 @@
+package backend;
+
+import java.net.URI;
+
+/**
+ * Base urls of the services a Regent talks to: the NationStates api and the mwq issue results pages.
+ *
+ * live() points at the real services; at(base) points both at one host that serves the same paths,
+ * eg: a local stand-in server used for offline tests and load tests.
+ */
+public final class Endpoints {
+	public static final String API_PATH = "/cgi-bin/api.cgi";
+	public static final String RESULTS_PATH = "/ns/results/";
+	public static final String MWQ_RESULTS_URL = "http://www.mwq.dds.nl" + RESULTS_PATH;
+
+	private static final Endpoints LIVE = new Endpoints(ShardRequest.API_URL, MWQ_RESULTS_URL);
+
+	private final String apiUrl;
+	private final String resultsUrl;
+
+	/**
+	 * pre: (apiUrl != null && resultsUrl != null && both are absolute http(s) urls)
+	 *
+	 * @param apiUrl url of api.cgi, eg: https://www.nationstates.net/cgi-bin/api.cgi
+	 * @param resultsUrl directory holding the <issueId>.html results pages, eg: http://www.mwq.dds.nl/ns/results/
+	 */
+	public Endpoints(String apiUrl, String resultsUrl) {
+		if (apiUrl == null || resultsUrl == null || !isHttp(apiUrl) || !isHttp(resultsUrl)) {
+			throw new IllegalArgumentException("Endpoints must be absolute http(s) urls");
+		}
+
+		this.apiUrl = apiUrl;
+		this.resultsUrl = resultsUrl.endsWith("/") ? resultsUrl : resultsUrl + "/";
+	}
+
+	/**
+	 * Returns the endpoints of the real NationStates api and mwq results pages.
+	 *
+	 * @return live endpoints
+	 */
+	public static Endpoints live() {
+		return LIVE;
+	}
+
+	/**
+	 * Returns endpoints serving API_PATH and RESULTS_PATH from a single host.
+	 *
+	 * pre: (base != null), eg: http://127.0.0.1:8080
+	 *
+	 * @param base scheme, host and port of the server
+	 * @return endpoints
+	 */
+	public static Endpoints at(URI base) {
+		if (base == null) {
+			throw new IllegalArgumentException("Base uri cannot be null");
+		}
+
+		String root = base.toString().replaceAll("/+$", "");
+		return new Endpoints(root + API_PATH, root + RESULTS_PATH);
+	}
+
+	public String apiUrl() {
+		return apiUrl;
+	}
+
+	public String resultsUrl() {
+		return resultsUrl;
+	}
+
+	/**
+	 * Returns the url of an issue's results page.
+	 *
+	 * pre: issueId > 0
+	 *
+	 * @param issueId
+	 * @return url
+	 */
+	public String resultsUrl(int issueId) {
+		return resultsUrl + issueId + ".html";
+	}
+
+	@Override
+	public String toString() {
+		return "Endpoints[api=" + apiUrl + ", results=" + resultsUrl + "]";
+	}
+
+	private static boolean isHttp(String url) {
+		return url.startsWith("http://") || url.startsWith("https://");
+	}
+}
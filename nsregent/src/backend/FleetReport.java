@@ -0,0 +1,122 @@
+package backend;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of one fleet cycle: a result per nation, in the order the nations were submitted.
+ */
+public class FleetReport {
+	private final List<NationResult> results;
+	private final Duration elapsed;
+
+	public FleetReport(List<NationResult> results, Duration elapsed) {
+		this.results = List.copyOf(results);
+		this.elapsed = elapsed;
+	}
+
+	public List<NationResult> results() {
+		return results;
+	}
+
+	public Duration elapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Returns the number of nations whose cycle returned "success".
+	 *
+	 * @return successCount
+	 */
+	public long successCount() {
+		return results.stream().filter(NationResult::succeeded).count();
+	}
+
+	/**
+	 * Returns the total number of API requests made by the fleet.
+	 *
+	 * @return requestCount
+	 */
+	public long requestCount() {
+		return results.stream().mapToLong(NationResult::requestCount).sum();
+	}
+
+	/**
+	 * Returns the report as one line of json, for scripts and schedulers:
+	 * {"nations":n,"succeeded":n,"requests":n,"elapsedMs":n,"results":[{"nation":..,"status":..,
+	 * "succeeded":bool,"requests":n,"elapsedMs":n},..]}
+	 *
+	 * @return json
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append(String.format("{\"nations\":%d,\"succeeded\":%d,\"requests\":%d,\"elapsedMs\":%d,\"results\":[",
+				results.size(), successCount(), requestCount(), elapsed.toMillis()));
+
+		for (int i = 0; i < results.size(); i++) {
+			NationResult result = results.get(i);
+			json.append((i == 0) ? "{" : ",{")
+					.append("\"nation\":").append(quote(result.nationName()))
+					.append(",\"status\":").append(quote(result.status()))
+					.append(",\"succeeded\":").append(result.succeeded())
+					.append(",\"requests\":").append(result.requestCount())
+					.append(",\"elapsedMs\":").append(result.elapsed().toMillis())
+					.append('}');
+		}
+
+		return json.append("]}").toString();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("Fleet cycle: %d/%d nations succeeded, %d requests, %d ms%n",
+				successCount(), results.size(), requestCount(), elapsed.toMillis()));
+
+		for (NationResult result : results) {
+			report.append(String.format("  %-30s %-20s %5d requests %7d ms%n",
+					result.nationName(), result.status(), result.requestCount(), result.elapsed().toMillis()));
+		}
+
+		return report.toString();
+	}
+
+	private static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"' -> quoted.append("\\\"");
+				case '\\' -> quoted.append("\\\\");
+				case '\n' -> quoted.append("\\n");
+				case '\r' -> quoted.append("\\r");
+				case '\t' -> quoted.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int) c));
+					} else {
+						quoted.append(c);
+					}
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Result of one nation's issue cycle.
+	 *
+	 * @param nationName
+	 * @param status value returned by handleIssues, or "error: <message>" if it threw
+	 * @param requestCount API requests the nation made
+	 * @param elapsed wall-clock time of the nation's cycle
+	 */
+	public record NationResult(String nationName, String status, int requestCount, Duration elapsed) {
+		public boolean succeeded() {
+			return "success".equals(status);
+		}
+	}
+}
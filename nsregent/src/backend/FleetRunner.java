@@ -0,0 +1,100 @@
+package backend;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the issue cycle of many nations at once, one virtual thread per nation.
+ *
+ * Every nation shares the runner's context, so the fleet uses one transport, one rate limiter
+ * and one effect cache. Nations spend almost all of their time waiting on the network or the
+ * rate limiter, which costs nothing on a virtual thread.
+ */
+public class FleetRunner {
+	private final RegentContext context;
+	private final String appContact;
+
+	/**
+	 * pre: (context != null && appContact != null && !appContact.isBlank())
+	 *
+	 * @param context services shared by every nation in the fleet
+	 * @param appContact contact sent in the User-Agent of every request
+	 */
+	public FleetRunner(RegentContext context, String appContact) {
+		if (context == null || appContact == null || appContact.isBlank()) {
+			throw new IllegalArgumentException("Context and app contact cannot be null or blank");
+		}
+
+		this.context = context;
+		this.appContact = appContact;
+	}
+
+	/**
+	 * Handles the pending issues of every nation concurrently and waits for all of them.
+	 * A failing nation is recorded in the report and does not stop the others.
+	 *
+	 * pre: (nations != null && targetStats != null && !targetStats.isEmpty())
+	 * post: report.results().size() == nations.size()
+	 *
+	 * @param nations nations to run
+	 * @param targetStats target statistics shared by every nation
+	 * @return report with one result per nation
+	 * @throws InterruptedException if interrupted while waiting for the fleet, or if a nation's cycle was interrupted
+	 */
+	public FleetReport run(List<NationCredentials> nations, Map<String, Double> targetStats) throws InterruptedException {
+		if (nations == null || targetStats == null || targetStats.isEmpty()) {
+			throw new IllegalArgumentException("Nations and target stats cannot be null or empty");
+		}
+
+		StatVector target = StatVector.fromMap(targetStats);
+		long start = System.nanoTime();
+		List<Future<FleetReport.NationResult>> futures = new ArrayList<>(nations.size());
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (NationCredentials nation : nations) {
+				futures.add(executor.submit(() -> runNation(nation, target)));
+			}
+
+			List<FleetReport.NationResult> results = new ArrayList<>(nations.size());
+			for (Future<FleetReport.NationResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof InterruptedException interrupted) {
+						// a nation was interrupted, stop the rest rather than wait for them in close()
+						executor.shutdownNow();
+						throw interrupted;
+					}
+					// runNation records its own failures, this only covers errors outside the cycle
+					throw new IllegalStateException("Fleet task failed", e.getCause());
+				}
+			}
+
+			return new FleetReport(results, Duration.ofNanos(System.nanoTime() - start));
+		}
+	}
+
+	private FleetReport.NationResult runNation(NationCredentials nation, StatVector targetStats)
+			throws InterruptedException {
+		long start = System.nanoTime();
+		IssueHandler handler = new IssueHandler(nation.nationName(), nation.password(), appContact, context);
+		String status;
+
+		try {
+			status = handler.handleIssues(targetStats);
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			status = "error: " + e.getMessage();
+		}
+
+		return new FleetReport.NationResult(nation.nationName(), status, handler.getRequestCount(),
+				Duration.ofNanos(System.nanoTime() - start));
+	}
+}
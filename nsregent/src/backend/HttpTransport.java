@@ -0,0 +1,387 @@
+package backend;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived HTTP transport shared by every Regent instance in the process.
+ *
+ * Wraps a single HttpClient (HTTP/2 with HTTP/1.1 fallback, pooled keep-alive connections)
+ * running on a bounded daemon executor, so nations reuse TCP/TLS connections instead of
+ * paying a fresh handshake on every request. NationStates API calls additionally pass through
+ * a shared RateLimiter so the whole process stays under the API limit.
+ * Time spent waiting on the limiter and 429 responses are recorded in the transport's Metrics.
+ * Async sends are bounded to MAX_ASYNC_REQUESTS in flight; the rest queue until a slot frees.
+ *
+ * Every request asks for gzip or deflate, and bodies are inflated as they stream in, so callers
+ * always see the decoded body. GET responses carrying an ETag or Last-Modified are remembered in a
+ * ConditionalCache; repeating the request revalidates it and a 304 is handed back to the caller as
+ * the cached 200, counted under Metrics.NOT_MODIFIED. Response bytes are counted per endpoint as
+ * they arrive, before decoding; a replayed 200 adds none.
+ */
+public class HttpTransport {
+	public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+	public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+	public static final int DEFAULT_THREADS = 4;
+	public static final int MAX_RATE_LIMIT_RETRIES = 3;
+	public static final int MAX_ASYNC_REQUESTS = 8;
+
+	private static volatile HttpTransport shared;
+
+	private final HttpClient client;
+	private final ExecutorService executor;
+	private final Duration requestTimeout;
+	private final RateLimiter rateLimiter;
+	private final Metrics metrics;
+	private final Semaphore asyncSlots = new Semaphore(MAX_ASYNC_REQUESTS);
+	private final Queue<Runnable> queuedAsync = new ConcurrentLinkedQueue<>();
+	private final ConditionalCache conditionalCache = new ConditionalCache(ConditionalCache.DEFAULT_MAX_BYTES);
+
+	/**
+	 * pre: (connectTimeout != null && requestTimeout != null && rateLimiter != null)
+	 * pre: (threads > 0)
+	 * post: a ready to use transport backed by its own client, executor and metrics.
+	 *
+	 * @param connectTimeout maximum time to establish a connection
+	 * @param requestTimeout maximum time to wait for a response
+	 * @param threads size of the executor used for the client's async work
+	 * @param rateLimiter limiter applied to API requests
+	 */
+	public HttpTransport(Duration connectTimeout, Duration requestTimeout, int threads, RateLimiter rateLimiter) {
+		this(connectTimeout, requestTimeout, threads, rateLimiter, new Metrics());
+	}
+
+	/**
+	 * pre: (connectTimeout != null && requestTimeout != null && rateLimiter != null && metrics != null)
+	 * pre: (threads > 0)
+	 * post: a ready to use transport backed by its own client and executor.
+	 *
+	 * @param connectTimeout maximum time to establish a connection
+	 * @param requestTimeout maximum time to wait for a response
+	 * @param threads size of the executor used for the client's async work
+	 * @param rateLimiter limiter applied to API requests
+	 * @param metrics registry shared by everything using this transport
+	 */
+	public HttpTransport(Duration connectTimeout, Duration requestTimeout, int threads, RateLimiter rateLimiter,
+			Metrics metrics) {
+		if (connectTimeout == null || requestTimeout == null || rateLimiter == null || metrics == null || threads <= 0) {
+			throw new IllegalArgumentException("Timeouts, limiter and metrics cannot be null and threads must be positive");
+		}
+
+		this.metrics = metrics;
+		this.executor = Executors.newFixedThreadPool(threads, daemonThreads());
+		this.requestTimeout = requestTimeout;
+		this.rateLimiter = rateLimiter;
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(connectTimeout)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.executor(executor)
+				.build();
+	}
+
+	/**
+	 * Returns the process wide transport, creating it with default settings on first use.
+	 *
+	 * @return shared transport
+	 */
+	public static HttpTransport shared() {
+		HttpTransport transport = shared;
+
+		if (transport == null) {
+			synchronized (HttpTransport.class) {
+				transport = shared;
+				if (transport == null) {
+					transport = new HttpTransport(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, DEFAULT_THREADS,
+							RateLimiter.nationStates());
+					shared = transport;
+				}
+			}
+		}
+
+		return transport;
+	}
+
+	/**
+	 * Returns a request builder pre-configured with this transport's request timeout.
+	 *
+	 * pre: (request != null)
+	 *
+	 * @param request
+	 * @return builder
+	 */
+	public HttpRequest.Builder configure(HttpRequest.Builder request) {
+		return request.timeout(requestTimeout);
+	}
+
+	/**
+	 * Sends a request over the shared client and blocks for the response.
+	 *
+	 * pre: (request != null && bodyHandler != null)
+	 *
+	 * @param request
+	 * @param bodyHandler
+	 * @return response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		return send(null, request, bodyHandler);
+	}
+
+	/**
+	 * Sends a request over the shared client and records its latency under endpoint.
+	 *
+	 * pre: (request != null && bodyHandler != null)
+	 *
+	 * @param endpoint metrics endpoint name, null to skip recording
+	 * @param request
+	 * @param bodyHandler
+	 * @return response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public <T> HttpResponse<T> send(String endpoint, HttpRequest request, BodyHandler<T> bodyHandler)
+			throws IOException, InterruptedException {
+		ConditionalCache.Entry cached = conditionalCache.get(request);
+		long start = System.nanoTime();
+		HttpResponse<T> response = client.send(prepare(request, cached), decoding(endpoint, request, bodyHandler, cached));
+
+		if (endpoint != null) {
+			metrics.recordRequest(endpoint, response.statusCode(), System.nanoTime() - start);
+		}
+		return fromCache(response, cached, bodyHandler);
+	}
+
+	/**
+	 * Sends a request without blocking and records its latency under endpoint.
+	 * At most MAX_ASYNC_REQUESTS are in flight at once across the transport, later requests
+	 * are started in submission order as earlier ones complete. Not rate limited, so this is
+	 * meant for pages outside the NationStates API (eg: the mwq results pages).
+	 *
+	 * pre: (request != null && bodyHandler != null)
+	 *
+	 * @param endpoint metrics endpoint name, null to skip recording
+	 * @param request
+	 * @param bodyHandler
+	 * @return future completed with the response, or exceptionally with the IOException
+	 */
+	public <T> CompletableFuture<HttpResponse<T>> sendAsync(String endpoint, HttpRequest request, BodyHandler<T> bodyHandler) {
+		CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+
+		queuedAsync.add(() -> {
+			ConditionalCache.Entry cached = conditionalCache.get(request);
+			long start = System.nanoTime();
+			CompletableFuture<HttpResponse<T>> sent;
+			try {
+				sent = client.sendAsync(prepare(request, cached), decoding(endpoint, request, bodyHandler, cached));
+			} catch (RuntimeException e) {
+				asyncSlots.release();
+				result.completeExceptionally(e);
+				return;
+			}
+
+			sent.whenComplete((response, failure) -> {
+				asyncSlots.release();
+				startQueuedAsync();
+
+				if (failure != null) {
+					result.completeExceptionally(failure);
+					return;
+				}
+				if (endpoint != null) {
+					metrics.recordRequest(endpoint, response.statusCode(), System.nanoTime() - start);
+				}
+				try {
+					result.complete(fromCache(response, cached, bodyHandler));
+				} catch (IOException e) {
+					result.completeExceptionally(e);
+				}
+			});
+		});
+		startQueuedAsync();
+
+		return result;
+	}
+
+	/**
+	 * Sends a NationStates API request through the rate limiter.
+	 * A 429 response pauses the limiter for Retry-After and the request is retried
+	 * up to MAX_RATE_LIMIT_RETRIES times before the 429 is returned to the caller.
+	 *
+	 * pre: (request != null && bodyHandler != null)
+	 *
+	 * @param request
+	 * @param bodyHandler
+	 * @return response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public <T> HttpResponse<T> sendApi(HttpRequest request, BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		return sendApi(null, request, bodyHandler);
+	}
+
+	/**
+	 * Sends a NationStates API request through the rate limiter, see sendApi(request, bodyHandler).
+	 * Every attempt is recorded under endpoint; the limiter wait is recorded separately as
+	 * the RATE_LIMIT_WAIT stage and is not part of the request latency.
+	 *
+	 * pre: (request != null && bodyHandler != null)
+	 *
+	 * @param endpoint metrics endpoint name, null to skip recording the requests
+	 * @param request
+	 * @param bodyHandler
+	 * @return response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public <T> HttpResponse<T> sendApi(String endpoint, HttpRequest request, BodyHandler<T> bodyHandler)
+			throws IOException, InterruptedException {
+		// a 429 that will be retried is never handed to the caller, so its body is discarded
+		// rather than left unread (eg: an unclosed ofInputStream() holding the connection)
+		BodyHandler<T> retrying = info -> (info.statusCode() == 429) ? BodySubscribers.replacing(null) : bodyHandler.apply(info);
+		HttpResponse<T> response;
+		int attempts = 0;
+
+		do {
+			metrics.recordStage(Metrics.RATE_LIMIT_WAIT, rateLimiter.acquire());
+			response = send(endpoint, request, (attempts < MAX_RATE_LIMIT_RETRIES) ? retrying : bodyHandler);
+			rateLimiter.observe(response.statusCode(), response.headers());
+			if (response.statusCode() == 429) {
+				metrics.increment(Metrics.RATE_LIMITED);
+			}
+			attempts++;
+		} while (response.statusCode() == 429 && attempts <= MAX_RATE_LIMIT_RETRIES);
+
+		return response;
+	}
+
+	/**
+	 * Returns the cache of validated GET responses.
+	 *
+	 * @return conditionalCache
+	 */
+	public ConditionalCache conditionalCache() {
+		return conditionalCache;
+	}
+
+	/**
+	 * Returns the limiter applied to API requests.
+	 *
+	 * @return rateLimiter
+	 */
+	public RateLimiter rateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Returns the metrics recorded by this transport and the Regents using it.
+	 *
+	 * @return metrics
+	 */
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the underlying client for callers that need the async API.
+	 *
+	 * @return client
+	 */
+	public HttpClient client() {
+		return client;
+	}
+
+	/**
+	 * Stops the executor. The shared transport lives for the whole process and is never shut down.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Starts queued async requests while slots are free. Called after every submission and
+	 * completion, so a request queued while all slots were taken is started by the next release.
+	 */
+	private void startQueuedAsync() {
+		while (!queuedAsync.isEmpty() && asyncSlots.tryAcquire()) {
+			Runnable next = queuedAsync.poll();
+			if (next == null) {
+				// another thread took it, give the slot back and look again
+				asyncSlots.release();
+				continue;
+			}
+			next.run();
+		}
+	}
+
+	/**
+	 * Copies request, adding Accept-Encoding unless the caller set one, and the validators of cached.
+	 */
+	private static HttpRequest prepare(HttpRequest request, ConditionalCache.Entry cached) {
+		HttpRequest.Builder prepared = HttpRequest.newBuilder(request, (name, value) -> true);
+
+		if (request.headers().firstValue("Accept-Encoding").isEmpty()) {
+			prepared.setHeader("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING);
+		}
+		if (cached != null) {
+			ConditionalCache.revalidate(prepared, cached);
+		}
+		return prepared.build();
+	}
+
+	/**
+	 * Wraps bodyHandler so the body is counted under endpoint (if any) as received, then decoded,
+	 * and recorded in the cache when it may be kept. A 304 for a cached entry has no body to hand
+	 * on, fromCache() replays the cached one.
+	 */
+	private <T> BodyHandler<T> decoding(String endpoint, HttpRequest request, BodyHandler<T> bodyHandler,
+			ConditionalCache.Entry cached) {
+		return info -> {
+			if (info.statusCode() == 304 && cached != null) {
+				return BodySubscribers.replacing(null);
+			}
+
+			BodySubscriber<T> subscriber = bodyHandler.apply(info);
+			if (ConditionalCache.isCacheable(request, info)) {
+				subscriber = conditionalCache.recording(request.uri(), info.headers(), subscriber);
+			}
+			subscriber = ContentDecoding.decode(info.headers(), subscriber);
+			return (endpoint == null) ? subscriber : metrics.countBytes(endpoint, subscriber);
+		};
+	}
+
+	private <T> HttpResponse<T> fromCache(HttpResponse<T> response, ConditionalCache.Entry cached, BodyHandler<T> bodyHandler)
+			throws IOException {
+		if (response.statusCode() != 304 || cached == null) {
+			return response;
+		}
+
+		metrics.increment(Metrics.NOT_MODIFIED);
+		return ConditionalCache.replay(response, cached, bodyHandler);
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger counter = new AtomicInteger();
+
+		return runnable -> {
+			Thread thread = new Thread(runnable, "nsregent-http-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,325 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Two tier cache of scraped issue effects keyed by issue ID.
+ *
+ * Tier one is an in-memory LRU map, tier two is a directory holding one text file per issue.
+ * Entries older than the TTL are ignored by both tiers, and each tier is bounded in size by dropping
+ * its least recently used entries. A disk hit touches the file's modification time, so the disk tier's
+ * order is rebuilt from the directory listing once per instance and then kept in memory.
+ *
+ * File format: first line is the fetch time in epoch millis, then one "option\tcategory\tmean\tmin\tmax" line
+ * per non zero effect (category is the census name); options without effects are written with an empty category.
+ * Files from before ranges were kept have only "option\tcategory\tmean" lines and read back with min = max = mean.
+ */
+public class IssueEffectCache {
+	public static final Duration DEFAULT_TTL = Duration.ofDays(7);
+	public static final int DEFAULT_MEMORY_ENTRIES = 2000;
+	public static final int DEFAULT_DISK_ENTRIES = 5000;
+	private static final String FILE_SUFFIX = ".effects";
+
+	private final Path directory;
+	private final long ttlMillis;
+	private final int diskEntries;
+	private final Map<Integer, Entry> memory;
+	// issue IDs with a file on disk, least recently used first; listed from directory on first write
+	private final Object diskLock = new Object();
+	private LinkedHashSet<Integer> diskIndex;
+
+	/**
+	 * pre: (ttl != null && memoryEntries > 0 && diskEntries > 0)
+	 * post: cache reads and writes files under directory; directory == null disables the disk tier.
+	 *
+	 * @param directory where cached pages are stored, or null for memory only
+	 * @param ttl how long an entry stays valid
+	 * @param memoryEntries maximum number of issues kept in memory
+	 * @param diskEntries maximum number of issue files kept on disk
+	 */
+	public IssueEffectCache(Path directory, Duration ttl, int memoryEntries, int diskEntries) {
+		if (ttl == null || memoryEntries <= 0 || diskEntries <= 0) {
+			throw new IllegalArgumentException("TTL cannot be null and sizes must be positive");
+		}
+
+		this.directory = directory;
+		this.ttlMillis = ttl.toMillis();
+		this.diskEntries = diskEntries;
+		this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+				return size() > memoryEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cache stored under ~/.nsregent/cache/effects with default bounds.
+	 *
+	 * @return cache
+	 */
+	public static IssueEffectCache defaultCache() {
+		Path directory = Path.of(System.getProperty("user.home"), ".nsregent", "cache", "effects");
+
+		return new IssueEffectCache(directory, DEFAULT_TTL, DEFAULT_MEMORY_ENTRIES, DEFAULT_DISK_ENTRIES);
+	}
+
+	/**
+	 * Returns the cached effects for an issue, or null when absent or expired.
+	 * A disk hit is promoted into memory.
+	 *
+	 * pre: issueId > 0
+	 *
+	 * @param issueId
+	 * @return effects or null
+	 */
+	public OptionMatrix get(int issueId) {
+		long now = System.currentTimeMillis();
+		Entry entry;
+
+		synchronized (memory) {
+			entry = memory.get(issueId);
+			if (entry != null && isExpired(entry, now)) {
+				memory.remove(issueId);
+				entry = null;
+			}
+		}
+
+		if (entry == null) {
+			entry = readFromDisk(issueId, now);
+			if (entry != null) {
+				synchronized (memory) {
+					memory.put(issueId, entry);
+				}
+			}
+		}
+
+		return (entry == null) ? null : entry.options;
+	}
+
+	/**
+	 * Stores the effects for an issue in both tiers.
+	 *
+	 * pre: issueId > 0 && options != null
+	 * post: get(issueId) returns options until the TTL elapses
+	 *
+	 * @param issueId
+	 * @param options
+	 */
+	public void put(int issueId, OptionMatrix options) {
+		Entry entry = new Entry(System.currentTimeMillis(), options);
+
+		synchronized (memory) {
+			memory.put(issueId, entry);
+		}
+
+		writeToDisk(issueId, entry);
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return now - entry.fetchedAt > ttlMillis;
+	}
+
+	private Entry readFromDisk(int issueId, long now) {
+		if (directory == null) {
+			return null;
+		}
+
+		Path file = directory.resolve(issueId + FILE_SUFFIX);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			long fetchedAt = Long.parseLong(reader.readLine().trim());
+			if (now - fetchedAt > ttlMillis) {
+				Files.deleteIfExists(file);
+				forgetOnDisk(issueId);
+				return null;
+			}
+
+			OptionMatrix.Builder options = OptionMatrix.builder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if (fields.length != 3 && fields.length != 5) continue;
+
+				int option = Integer.parseInt(fields[0]);
+				CensusScale scale = CensusScale.fromLabel(fields[1]);
+				options.option(option);
+				if (scale != null && fields.length == 5) {
+					options.effect(option, scale, Double.parseDouble(fields[3]), Double.parseDouble(fields[2]),
+							Double.parseDouble(fields[4]));
+				} else if (scale != null) {
+					options.effect(option, scale, Double.parseDouble(fields[2]));
+				}
+			}
+
+			Entry entry = new Entry(fetchedAt, options.build());
+			touchOnDisk(issueId, file, now);
+			return entry;
+		} catch (IOException | RuntimeException e) {
+			// a corrupt or unreadable file counts as a miss
+			return null;
+		}
+	}
+
+	private void writeToDisk(int issueId, Entry entry) {
+		if (directory == null) {
+			return;
+		}
+
+		Path temp = null;
+		try {
+			Files.createDirectories(directory);
+			temp = Files.createTempFile(directory, issueId + "-", ".tmp");
+
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write(Long.toString(entry.fetchedAt));
+				writer.newLine();
+
+				OptionMatrix options = entry.options;
+				for (int i = 0; i < options.optionCount(); i++) {
+					boolean written = false;
+
+					for (CensusScale scale : CensusScale.values()) {
+						int s = scale.ordinal();
+						if (options.effect(i, s) != 0.0 || options.min(i, s) != 0.0 || options.max(i, s) != 0.0) {
+							writer.write(options.optionKey(i) + "\t" + scale.label() + "\t" + options.effect(i, s)
+									+ "\t" + options.min(i, s) + "\t" + options.max(i, s));
+							writer.newLine();
+							written = true;
+						}
+					}
+
+					if (!written) {
+						writer.write(options.optionKey(i) + "\t\t0");
+						writer.newLine();
+					}
+				}
+			}
+
+			Files.move(temp, directory.resolve(issueId + FILE_SUFFIX),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+			recordOnDisk(issueId);
+		} catch (IOException | UncheckedIOException e) {
+			// the disk tier is best effort, the memory tier still holds the entry
+		} finally {
+			deleteQuietly(temp);
+		}
+	}
+
+	/**
+	 * Marks issueId as the most recently used file, then deletes the least recently used files
+	 * over diskEntries.
+	 */
+	private void recordOnDisk(int issueId) throws IOException {
+		synchronized (diskLock) {
+			if (diskIndex == null) {
+				diskIndex = listDisk();
+			}
+
+			diskIndex.remove(issueId);
+			diskIndex.add(issueId);
+
+			Iterator<Integer> eldest = diskIndex.iterator();
+			while (diskIndex.size() > diskEntries) {
+				int evicted = eldest.next();
+				eldest.remove();
+				Files.deleteIfExists(directory.resolve(evicted + FILE_SUFFIX));
+			}
+		}
+	}
+
+	/**
+	 * Records a disk hit, in the index and in the file's modification time for later instances.
+	 */
+	private void touchOnDisk(int issueId, Path file, long now) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+			recordOnDisk(issueId);
+		} catch (IOException | UncheckedIOException e) {
+			// the entry was read, losing its place in the eviction order only makes it go sooner
+		}
+	}
+
+	private void forgetOnDisk(int issueId) {
+		synchronized (diskLock) {
+			if (diskIndex != null) {
+				diskIndex.remove(issueId);
+			}
+		}
+	}
+
+	/**
+	 * Lists the cached issue IDs in directory, least recently used first.
+	 */
+	private LinkedHashSet<Integer> listDisk() throws IOException {
+		List<Path> files;
+
+		try (Stream<Path> listing = Files.list(directory)) {
+			files = listing.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+					.collect(Collectors.toList());
+		}
+
+		files.sort(Comparator.comparingLong(IssueEffectCache::lastModified));
+		LinkedHashSet<Integer> issueIds = new LinkedHashSet<>();
+		for (Path file : files) {
+			String name = file.getFileName().toString();
+			try {
+				issueIds.add(Integer.parseInt(name.substring(0, name.length() - FILE_SUFFIX.length())));
+			} catch (NumberFormatException e) {
+				// not one of ours, leave it alone
+			}
+		}
+		return issueIds;
+	}
+
+	private static void deleteQuietly(Path file) {
+		if (file == null) {
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// best effort, like the rest of the disk tier
+		}
+	}
+
+	private static long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class Entry {
+		private final long fetchedAt;
+		private final OptionMatrix options;
+
+		private Entry(long fetchedAt, OptionMatrix options) {
+			this.fetchedAt = fetchedAt;
+			this.options = options;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package backend;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+/**
+ * Parses an mwq issue results page into an OptionMatrix of effect ranges and means.
+ *
+ * Each table row after the header is one option: the first column starts with the option number,
+ * the second holds one div per effect, eg: "-0.50 to +2.31 Civil Rights (mean +1.25)".
+ */
+public final class IssueEffectsParser {
+	private static final Pattern EFFECT_PATTERN = Pattern.compile("^([+-]?\\d*(?:\\.\\d+)?)\\s+to\\s([+-]?\\d*(?:\\.\\d+)?)\\s+(.+?)\\s+\\(mean\\s([+-]?\\d+(\\.\\d+))\\)$");
+
+	private IssueEffectsParser() {
+	}
+
+	/**
+	 * Every effect whose category is a census scale is kept, options without an effect
+	 * on a scale count as 0 for it.
+	 *
+	 * pre: (html != null)
+	 *
+	 * @param html page body
+	 * @param url page url, used to resolve relative links
+	 * @return option numbers (0-based, as the ns api expects) and their effect range and mean on each census scale
+	 */
+	public static OptionMatrix parse(String html, String url) {
+		OptionMatrix.Builder builder = OptionMatrix.builder();
+	    Document doc = Jsoup.parse(html, url);
+	    
+	    // get all rows except the header
+	    Elements rows = doc.select("tr:gt(0)");
+	    
+	    for (Element row : rows) {
+	        Elements columns = row.select("td");
+	        if (columns.isEmpty()) continue;
+	        
+	        // get option number from the first column & convert to 0-based index (ns api takes option-1).
+	        int optionNumber = Integer.parseInt(String.valueOf(columns.get(0).text().charAt(0))) - 1;
+	        builder.option(optionNumber);
+	        
+	        // second column holds option effects
+            Elements divs = columns.get(1).select("div");
+            for (Element div : divs) {
+                String text = div.text();
+                
+                // parses range, category and mean score
+                try {
+                	Matcher matcher = EFFECT_PATTERN.matcher(text);
+                	
+                	if (matcher.find()) {
+	                    CensusScale scale = CensusScale.fromLabel(matcher.group(3));    // "Civil Rights", "Industry: Retail"...
+	                    double meanEffect = Double.parseDouble(matcher.group(4));
+	                    double minEffect = parseBound(matcher.group(1), meanEffect);
+	                    double maxEffect = parseBound(matcher.group(2), meanEffect);
+	
+	                    if (scale != null) {
+	                    	builder.effect(optionNumber, scale, Math.min(minEffect, meanEffect), meanEffect,
+	                    			Math.max(maxEffect, meanEffect));
+	                    }
+                	}
+
+                } catch (Exception e) {
+                    // skips bad entries
+                    continue;
+                }
+	        }
+	    }
+	    
+	    return builder.build();
+	}
+	
+	// a bound the page left empty (eg: "to +2.31") falls back to the mean
+	private static double parseBound(String bound, double mean) {
+		return (bound.isEmpty() || bound.equals("+") || bound.equals("-")) ? mean : Double.parseDouble(bound);
+	}
+}
@@ -0,0 +1,27 @@
+package backend;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One answered issue, as reported to an IssueListener.
+ *
+ * @param nationName
+ * @param issueId
+ * @param option option number sent to the api (0-based)
+ * @param error api error text when the option was rejected, otherwise null
+ * @param censusChanges {scaleId=change} reported by the answer, empty when rejected
+ * @param requestCount api requests made by the nation's Regent so far
+ * @param rateLimitRemaining RateLimit-Remaining of the answer's response, -1 when the api did not send it
+ * @param time when the answer was received
+ */
+public record IssueEvent(String nationName, int issueId, int option, String error, Map<Integer, Double> censusChanges,
+		int requestCount, long rateLimitRemaining, Instant time) {
+	public IssueEvent {
+		censusChanges = Map.copyOf(censusChanges);
+	}
+
+	public boolean succeeded() {
+		return error == null;
+	}
+}
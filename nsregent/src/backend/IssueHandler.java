@@ -6,4 +6,8 @@ public class IssueHandler extends RegentImpl {
 		// TODO Auto-generated constructor stub
 	}
 	
+	public IssueHandler(String nationName, String nationPassword, String appContact, RegentContext context) {
+		super(nationName, nationPassword, appContact, context);
+	}
+	
 }
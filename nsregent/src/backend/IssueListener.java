@@ -0,0 +1,11 @@
+package backend;
+
+/**
+ * Receives an event for every issue answer a Regent sends, accepted or not.
+ * Called on the thread running handleIssues, so implementations should hand work off quickly
+ * (eg: SwingWorker.publish) rather than block the cycle.
+ */
+@FunctionalInterface
+public interface IssueListener {
+	void issueAnswered(IssueEvent event);
+}
@@ -0,0 +1,378 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plans the options for all pending issues together instead of greedily one issue at a time.
+ *
+ * Option effects add up, so the order issues are answered in does not change where the nation
+ * lands; the planner searches for the combination (one option per issue) whose summed effects
+ * bring the current stats closest to target (squared distance, as in chooseBestOption).
+ *
+ * A range aware planner minimizes the expected squared distance instead: effects of different issues are
+ * independent, so that is the distance after the mean effects plus the variance of every chosen option on
+ * the scored scales (see OptionScorer.EXPECTED), a per option penalty the search carries along.
+ *
+ * Small searches (up to EXHAUSTIVE_LIMIT combinations by default, which covers the usual 5 pending issues)
+ * run an exact branch-and-bound. Larger ones fall back to a beam search. Both work on primitive
+ * arrays prepared once per plan, so scoring a node does not allocate.
+ */
+public class IssuePlanner {
+	public static final int DEFAULT_BEAM_WIDTH = 64;
+	public static final long EXHAUSTIVE_LIMIT = 1_000_000;
+
+	private final int beamWidth;
+	private final long exhaustiveLimit;
+	private final boolean rangeAware;
+
+	public IssuePlanner() {
+		this(DEFAULT_BEAM_WIDTH, EXHAUSTIVE_LIMIT);
+	}
+
+	/**
+	 * pre: beamWidth > 0 && exhaustiveLimit >= 0
+	 *
+	 * @param beamWidth number of partial plans kept per issue when the search is too large to be exact
+	 * @param exhaustiveLimit largest number of option combinations searched exactly
+	 */
+	public IssuePlanner(int beamWidth, long exhaustiveLimit) {
+		this(beamWidth, exhaustiveLimit, false);
+	}
+
+	/**
+	 * pre: beamWidth > 0 && exhaustiveLimit >= 0
+	 *
+	 * @param beamWidth number of partial plans kept per issue when the search is too large to be exact
+	 * @param exhaustiveLimit largest number of option combinations searched exactly
+	 * @param rangeAware minimize the expected distance using the effect ranges instead of the mean distance
+	 */
+	public IssuePlanner(int beamWidth, long exhaustiveLimit, boolean rangeAware) {
+		if (beamWidth <= 0 || exhaustiveLimit < 0) {
+			throw new IllegalArgumentException("Beam width must be positive and exhaustive limit cannot be negative");
+		}
+
+		this.beamWidth = beamWidth;
+		this.exhaustiveLimit = exhaustiveLimit;
+		this.rangeAware = rangeAware;
+	}
+
+	/**
+	 * Chooses one option per issue so the final stats land closest to target.
+	 *
+	 * pre: currentStats, targetStats != null && not empty
+	 * pre: issues != null, every issue has at least one option
+	 * post: plan.options()[i] is an option key of issues.get(i)
+	 *
+	 * @param currentStats
+	 * @param targetStats only scales also present in currentStats are scored
+	 * @param issues pending issues in answer order
+	 * @return plan
+	 */
+	public Plan plan(StatVector currentStats, StatVector targetStats, List<OptionMatrix> issues) {
+		if (currentStats == null || targetStats == null || issues == null
+				|| currentStats.isEmpty() || targetStats.isEmpty()) {
+			throw new IllegalArgumentException("Inputs cannot be null or empty");
+		}
+
+		Problem problem = new Problem(currentStats, targetStats, targetStats.sharedScales(currentStats), issues, rangeAware);
+
+		if (problem.combinations() <= exhaustiveLimit) {
+			return new BranchAndBound(problem).solve();
+		}
+		return beamSearch(problem);
+	}
+
+	private Plan beamSearch(Problem problem) {
+		int n = problem.issueCount;
+		int c = problem.categoryCount;
+		int maxOptions = problem.maxOptions();
+		int candidates = beamWidth * maxOptions;
+
+		double[][] beam = new double[beamWidth][c];
+		double[] beamPenalties = new double[beamWidth];
+		int[][] beamChoices = new int[beamWidth][n];
+		double[][] next = new double[candidates][c];
+		double[] nextPenalties = new double[candidates];
+		int[][] nextChoices = new int[candidates][n];
+		double[] nextScores = new double[candidates];
+		int[] order = new int[beamWidth];
+
+		System.arraycopy(problem.base, 0, beam[0], 0, c);
+		int beamSize = 1;
+
+		for (int depth = 0; depth < n; depth++) {
+			double[][] effects = problem.effects[depth];
+			int nextSize = 0;
+
+			for (int b = 0; b < beamSize; b++) {
+				for (int o = 0; o < effects.length; o++) {
+					double[] sums = next[nextSize];
+					for (int k = 0; k < c; k++) {
+						sums[k] = beam[b][k] + effects[o][k];
+					}
+
+					System.arraycopy(beamChoices[b], 0, nextChoices[nextSize], 0, depth);
+					nextChoices[nextSize][depth] = o;
+					nextPenalties[nextSize] = beamPenalties[b] + problem.penalties[depth][o];
+					nextScores[nextSize] = problem.lowerBound(sums, depth + 1) + nextPenalties[nextSize]
+							+ problem.minPenaltyRemaining[depth + 1];
+					nextSize++;
+				}
+			}
+
+			beamSize = selectBest(nextScores, nextSize, order);
+			for (int b = 0; b < beamSize; b++) {
+				System.arraycopy(next[order[b]], 0, beam[b], 0, c);
+				System.arraycopy(nextChoices[order[b]], 0, beamChoices[b], 0, depth + 1);
+				beamPenalties[b] = nextPenalties[order[b]];
+			}
+		}
+
+		return problem.toPlan(beamChoices[0], distance(beam[0]) + beamPenalties[0]);
+	}
+
+	/**
+	 * Fills order with the indices of the order.length lowest scores, lowest first (ties keep index order),
+	 * by insertion into the bounded prefix, so a beam step neither sorts every candidate nor boxes indices.
+	 *
+	 * @return number of indices kept, min(order.length, size)
+	 */
+	private static int selectBest(double[] scores, int size, int[] order) {
+		int kept = 0;
+
+		for (int i = 0; i < size; i++) {
+			double score = scores[i];
+			if (kept == order.length && Double.compare(score, scores[order[kept - 1]]) >= 0) {
+				continue;
+			}
+
+			int position = (kept == order.length) ? kept - 1 : kept++;
+			while (position > 0 && Double.compare(score, scores[order[position - 1]]) < 0) {
+				order[position] = order[position - 1];
+				position--;
+			}
+			order[position] = i;
+		}
+
+		return kept;
+	}
+
+	private static double distance(double[] sums) {
+		double distance = 0.0;
+		for (double sum : sums) {
+			distance += sum * sum;
+		}
+		return distance;
+	}
+
+	/**
+	 * A chosen option per issue and the squared distance to target they lead to
+	 * (the expected squared distance for a range aware planner).
+	 */
+	public static final class Plan {
+		private final int[] options;
+		private final double distance;
+
+		private Plan(int[] options, double distance) {
+			this.options = options;
+			this.distance = distance;
+		}
+
+		/**
+		 * Returns the option to answer for each issue, in issue order.
+		 *
+		 * @return options
+		 */
+		public int[] options() {
+			return options.clone();
+		}
+
+		/**
+		 * Returns the squared distance to target after all planned options.
+		 *
+		 * @return distance
+		 */
+		public double distance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return "Plan" + Arrays.toString(options) + " distance=" + distance;
+		}
+	}
+
+	/**
+	 * Primitive view of a planning problem: stats are stored as (current - target) per scored scale.
+	 */
+	private static final class Problem {
+		private final int issueCount;
+		private final int categoryCount;
+		private final double[] base;
+		private final double[][][] effects;
+		private final int[][] optionKeys;
+		private final double[][] minRemaining;
+		private final double[][] maxRemaining;
+		// summed effect variance per option, all 0 unless range aware
+		private final double[][] penalties;
+		private final double[] minPenaltyRemaining;
+
+		private Problem(StatVector currentStats, StatVector targetStats, int[] scales, List<OptionMatrix> issues,
+				boolean rangeAware) {
+			this.issueCount = issues.size();
+			this.categoryCount = scales.length;
+			this.base = new double[categoryCount];
+			this.effects = new double[issueCount][][];
+			this.optionKeys = new int[issueCount][];
+			this.minRemaining = new double[issueCount + 1][categoryCount];
+			this.maxRemaining = new double[issueCount + 1][categoryCount];
+			this.penalties = new double[issueCount][];
+			this.minPenaltyRemaining = new double[issueCount + 1];
+
+			for (int k = 0; k < categoryCount; k++) {
+				base[k] = currentStats.values()[scales[k]] - targetStats.values()[scales[k]];
+			}
+
+			for (int i = 0; i < issueCount; i++) {
+				OptionMatrix options = issues.get(i);
+				if (options == null || options.isEmpty()) {
+					throw new IllegalArgumentException("Every issue needs at least one option");
+				}
+
+				optionKeys[i] = new int[options.optionCount()];
+				effects[i] = new double[options.optionCount()][categoryCount];
+				penalties[i] = new double[options.optionCount()];
+
+				for (int o = 0; o < options.optionCount(); o++) {
+					optionKeys[i][o] = options.optionKey(o);
+					for (int k = 0; k < categoryCount; k++) {
+						effects[i][o][k] = options.effect(o, scales[k]);
+						if (rangeAware) {
+							penalties[i][o] += OptionScorer.variance(options.min(o, scales[k]), effects[i][o][k],
+									options.max(o, scales[k]));
+						}
+					}
+				}
+			}
+
+			for (int i = issueCount - 1; i >= 0; i--) {
+				double min = Double.POSITIVE_INFINITY;
+				for (double penalty : penalties[i]) {
+					min = Math.min(min, penalty);
+				}
+				minPenaltyRemaining[i] = minPenaltyRemaining[i + 1] + min;
+			}
+
+			// reachable range of the summed effects of issues i..n-1, used for the lower bound
+			for (int i = issueCount - 1; i >= 0; i--) {
+				for (int k = 0; k < categoryCount; k++) {
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					for (double[] option : effects[i]) {
+						min = Math.min(min, option[k]);
+						max = Math.max(max, option[k]);
+					}
+					minRemaining[i][k] = minRemaining[i + 1][k] + min;
+					maxRemaining[i][k] = maxRemaining[i + 1][k] + max;
+				}
+			}
+		}
+
+		private long combinations() {
+			long combinations = 1;
+			for (int[] keys : optionKeys) {
+				combinations = Math.multiplyHigh(combinations, keys.length) == 0
+						? combinations * keys.length
+						: Long.MAX_VALUE;
+			}
+			return combinations;
+		}
+
+		private int maxOptions() {
+			int max = 1;
+			for (int[] keys : optionKeys) {
+				max = Math.max(max, keys.length);
+			}
+			return max;
+		}
+
+		/**
+		 * Smallest squared distance reachable from sums by answering issues depth..n-1.
+		 * Each category is bounded independently, so the bound never overestimates.
+		 */
+		private double lowerBound(double[] sums, int depth) {
+			double bound = 0.0;
+			for (int k = 0; k < categoryCount; k++) {
+				double low = sums[k] + minRemaining[depth][k];
+				double high = sums[k] + maxRemaining[depth][k];
+
+				if (low > 0) {
+					bound += low * low;
+				} else if (high < 0) {
+					bound += high * high;
+				}
+			}
+			return bound;
+		}
+
+		private Plan toPlan(int[] choices, double distance) {
+			int[] options = new int[issueCount];
+			for (int i = 0; i < issueCount; i++) {
+				options[i] = optionKeys[i][choices[i]];
+			}
+			return new Plan(options, distance);
+		}
+	}
+
+	/**
+	 * Exact depth-first search that prunes any branch whose lower bound cannot beat the best plan so far.
+	 */
+	private static final class BranchAndBound {
+		private final Problem problem;
+		private final double[][] sums;
+		private final int[] choices;
+		private final int[] bestChoices;
+		private double bestDistance = Double.POSITIVE_INFINITY;
+
+		private BranchAndBound(Problem problem) {
+			this.problem = problem;
+			this.sums = new double[problem.issueCount + 1][problem.categoryCount];
+			this.choices = new int[problem.issueCount];
+			this.bestChoices = new int[problem.issueCount];
+			System.arraycopy(problem.base, 0, sums[0], 0, problem.categoryCount);
+		}
+
+		private Plan solve() {
+			search(0, 0.0);
+			return problem.toPlan(bestChoices, bestDistance);
+		}
+
+		private void search(int depth, double penalty) {
+			if (depth == problem.issueCount) {
+				double distance = distance(sums[depth]) + penalty;
+				if (distance < bestDistance) {
+					bestDistance = distance;
+					System.arraycopy(choices, 0, bestChoices, 0, choices.length);
+				}
+				return;
+			}
+
+			if (problem.lowerBound(sums[depth], depth) + penalty + problem.minPenaltyRemaining[depth] >= bestDistance) {
+				return;
+			}
+
+			double[][] effects = problem.effects[depth];
+			double[] parent = sums[depth];
+			double[] child = sums[depth + 1];
+
+			for (int o = 0; o < effects.length; o++) {
+				for (int k = 0; k < problem.categoryCount; k++) {
+					child[k] = parent[k] + effects[o][k];
+				}
+				choices[depth] = o;
+				search(depth + 1, penalty + problem.penalties[depth][o]);
+			}
+		}
+	}
+}
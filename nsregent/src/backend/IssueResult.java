@@ -0,0 +1,30 @@
+package backend;
+
+import java.util.Map;
+
+/**
+ * Parsed response of a c=issue command.
+ *
+ * @param error text of the ERROR element, or null when the option was accepted
+ * @param censusChanges {scaleId=change} from the RANKINGS element
+ * @param hasRankings whether the response reported census changes at all
+ */
+public record IssueResult(String error, Map<Integer, Double> censusChanges, boolean hasRankings) {
+	public IssueResult {
+		censusChanges = Map.copyOf(censusChanges);
+	}
+
+	public boolean succeeded() {
+		return error == null;
+	}
+
+	/**
+	 * Returns whether NationStates rejected the chosen option itself, in which case another
+	 * option of the same issue may still be accepted.
+	 *
+	 * @return invalid choice
+	 */
+	public boolean invalidChoice() {
+		return error != null && error.contains("Invalid choice");
+	}
+}
@@ -0,0 +1,101 @@
+package backend;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Decides how long a nation sleeps before its next cycle.
+ *
+ * After a successful cycle the nation sleeps until the nextissuetime the api reported, plus a random
+ * share of the jitter so a fleet whose issues fall due together does not wake in one burst. Without a
+ * usable next issue time it falls back to a fixed poll interval, and after failures it backs off
+ * exponentially from that interval.
+ */
+public class IssueSchedule {
+	public static final Duration DEFAULT_MIN_DELAY = Duration.ofSeconds(30);
+	public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMinutes(30);
+	public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofHours(6);
+	public static final Duration DEFAULT_JITTER = Duration.ofMinutes(2);
+
+	private final Duration minDelay;
+	private final Duration pollInterval;
+	private final Duration maxBackoff;
+	private final Duration jitter;
+
+	public IssueSchedule() {
+		this(DEFAULT_MIN_DELAY, DEFAULT_POLL_INTERVAL, DEFAULT_MAX_BACKOFF, DEFAULT_JITTER);
+	}
+
+	/**
+	 * pre: (no argument is null or negative) && minDelay <= pollInterval <= maxBackoff
+	 *
+	 * @param minDelay shortest sleep between two cycles of a nation
+	 * @param pollInterval sleep when the next issue time is unknown
+	 * @param maxBackoff longest sleep after repeated failures
+	 * @param jitter upper bound of the random delay added to every sleep
+	 */
+	public IssueSchedule(Duration minDelay, Duration pollInterval, Duration maxBackoff, Duration jitter) {
+		if (minDelay == null || pollInterval == null || maxBackoff == null || jitter == null
+				|| minDelay.isNegative() || jitter.isNegative()
+				|| pollInterval.compareTo(minDelay) < 0 || maxBackoff.compareTo(pollInterval) < 0) {
+			throw new IllegalArgumentException("Delays cannot be null or negative and must be ordered min <= poll <= backoff");
+		}
+
+		this.minDelay = minDelay;
+		this.pollInterval = pollInterval;
+		this.maxBackoff = maxBackoff;
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Returns the sleep before a nation's next cycle.
+	 *
+	 * pre: (now != null && failures >= 0 && 0.0 <= jitterFraction < 1.0)
+	 *
+	 * @param nextIssueTime when the next issue is due, null if unknown
+	 * @param now
+	 * @param failures consecutive failed cycles, 0 after a success
+	 * @param jitterFraction share of the jitter to add, eg: ThreadLocalRandom.current().nextDouble()
+	 * @return delay
+	 */
+	public Duration delay(Instant nextIssueTime, Instant now, int failures, double jitterFraction) {
+		if (now == null || failures < 0 || jitterFraction < 0.0 || jitterFraction >= 1.0) {
+			throw new IllegalArgumentException("Now cannot be null, failures cannot be negative and jitter must be in [0, 1)");
+		}
+
+		Duration base;
+		if (failures > 0) {
+			// pollInterval * 2^(failures - 1), capped before it can overflow
+			int doublings = Math.min(failures - 1, 30);
+			base = pollInterval.multipliedBy(1L << doublings);
+			if (base.compareTo(maxBackoff) > 0) {
+				base = maxBackoff;
+			}
+		} else if (nextIssueTime != null && nextIssueTime.isAfter(now)) {
+			base = Duration.between(now, nextIssueTime);
+		} else if (nextIssueTime != null) {
+			// due already (eg: the issue arrived while the cycle was running)
+			base = minDelay;
+		} else {
+			base = pollInterval;
+		}
+
+		if (base.compareTo(minDelay) < 0) {
+			base = minDelay;
+		}
+
+		return base.plusNanos((long) (jitter.toNanos() * jitterFraction));
+	}
+
+	/**
+	 * Returns a random delay within the jitter, used to spread the first cycle of each nation.
+	 *
+	 * pre: 0.0 <= jitterFraction < 1.0
+	 *
+	 * @param jitterFraction
+	 * @return delay
+	 */
+	public Duration initialDelay(double jitterFraction) {
+		return Duration.ofNanos((long) (jitter.toNanos() * jitterFraction));
+	}
+}
@@ -0,0 +1,115 @@
+package backend;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Values below 2^SUB_BUCKET_BITS are counted exactly; above that every power of two is split into
+ * 2^SUB_BUCKET_BITS equal buckets, so a quantile is reported within ~3% of the recorded value
+ * whatever its magnitude. Recording is one array increment and never allocates.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one value, negative values are recorded as 0.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	public long sum() {
+		return sum.sum();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the value below which the given fraction of recorded values fall, 0 when empty.
+	 *
+	 * pre: 0.0 <= quantile <= 1.0
+	 *
+	 * @param quantile eg: 0.99
+	 * @return highest value of the bucket holding the quantile, capped at max()
+	 */
+	public long quantile(double quantile) {
+		if (quantile < 0.0 || quantile > 1.0) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1");
+		}
+
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max());
+			}
+		}
+		return max();
+	}
+
+	/**
+	 * Returns count, sum and the usual quantiles as one consistent-enough view.
+	 *
+	 * @return timing
+	 */
+	public MetricsSnapshot.Timing snapshot() {
+		return new MetricsSnapshot.Timing(count(), sum(), quantile(0.5), quantile(0.9), quantile(0.99), max());
+	}
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int top = (int) (value >>> shift);            // SUB_BUCKETS <= top < 2 * SUB_BUCKETS
+
+		return (shift + 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+	}
+
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / SUB_BUCKETS - 1;
+		long top = (index % SUB_BUCKETS) + SUB_BUCKETS;
+
+		return ((top + 1) << shift) - 1;
+	}
+}
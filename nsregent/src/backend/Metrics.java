@@ -0,0 +1,260 @@
+package backend;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process level instrumentation of the issue cycle, shared like the transport it belongs to.
+ *
+ * Three kinds of measurements, all created on first use and safe to record from any thread:
+ *   - endpoints: request count, error count, response bytes (as sent, before decoding) and latency per endpoint
+ *   - stages: time spent in a step of the cycle (parsing, planning, rate limiter waits)
+ *   - counters: plain event counts (effect cache hits and misses, 429 responses)
+ *
+ * snapshot() copies everything for callers, toPrometheus() renders it in the Prometheus text format
+ * (see MetricsServer to expose it over http).
+ */
+public class Metrics {
+	public static final String SHARDS = "shards";
+	public static final String ISSUE_ANSWER = "issue_answer";
+	public static final String RESULTS_PAGE = "results_page";
+
+	public static final String PARSE_SHARDS = "parse_shards";
+	public static final String PARSE_ISSUE_ANSWER = "parse_issue_answer";
+	public static final String PARSE_RESULTS_PAGE = "parse_results_page";
+	public static final String DECISION = "decision";
+	public static final String CYCLE = "cycle";
+	public static final String RATE_LIMIT_WAIT = "rate_limit_wait";
+
+	public static final String CACHE_HITS = "effect_cache_hits";
+	public static final String CACHE_MISSES = "effect_cache_misses";
+	public static final String EFFECTS_DB_HITS = "effects_db_hits";
+	public static final String RATE_LIMITED = "rate_limited_responses";
+	public static final String NOT_MODIFIED = "not_modified_responses";
+	public static final String DAEMON_CYCLES = "daemon_cycles";
+	public static final String DAEMON_FAILURES = "daemon_failures";
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final long createdAt = System.nanoTime();
+
+	/**
+	 * Records a response. Body bytes are added separately, see countBytes().
+	 *
+	 * pre: (endpoint != null)
+	 *
+	 * @param endpoint
+	 * @param statusCode
+	 * @param latencyNanos time until the response headers arrived
+	 */
+	public void recordRequest(String endpoint, int statusCode, long latencyNanos) {
+		Endpoint stats = endpoint(endpoint);
+
+		stats.requests.increment();
+		if (statusCode >= 400) {
+			stats.errors.increment();
+		}
+		stats.latency.record(latencyNanos);
+	}
+
+	/**
+	 * Adds response body bytes, as sent by the server, to an endpoint.
+	 *
+	 * @param endpoint
+	 * @param bytes
+	 */
+	public void recordBytes(String endpoint, long bytes) {
+		endpoint(endpoint).bytes.add(bytes);
+	}
+
+	/**
+	 * Wraps a body subscriber so the bytes it receives are added to the endpoint. HttpTransport
+	 * wraps the subscriber ahead of content decoding, so compressed bodies count their sent size.
+	 *
+	 * pre: (endpoint != null && body != null)
+	 *
+	 * @param endpoint
+	 * @param body
+	 * @return counting subscriber producing what body produces
+	 */
+	public <T> BodySubscriber<T> countBytes(String endpoint, BodySubscriber<T> body) {
+		return new CountingSubscriber<>(body, endpoint(endpoint).bytes);
+	}
+
+	/**
+	 * Records the duration of a stage.
+	 *
+	 * pre: (stage != null)
+	 *
+	 * @param stage
+	 * @param nanos
+	 */
+	public void recordStage(String stage, long nanos) {
+		stages.computeIfAbsent(stage, name -> new LatencyHistogram()).record(nanos);
+	}
+
+	/**
+	 * Records the time elapsed since startNanos (a System.nanoTime() value) as a stage.
+	 *
+	 * @param stage
+	 * @param startNanos
+	 */
+	public void recordSince(String stage, long startNanos) {
+		recordStage(stage, System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Adds one to a counter.
+	 *
+	 * pre: (counter != null)
+	 *
+	 * @param counter
+	 */
+	public void increment(String counter) {
+		counters.computeIfAbsent(counter, name -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Copies every measurement recorded so far.
+	 *
+	 * @return snapshot
+	 */
+	public MetricsSnapshot snapshot() {
+		Map<String, MetricsSnapshot.EndpointStats> endpointStats = new TreeMap<>();
+		endpoints.forEach((name, stats) -> endpointStats.put(name, new MetricsSnapshot.EndpointStats(
+				stats.requests.sum(), stats.errors.sum(), stats.bytes.sum(), stats.latency.snapshot())));
+
+		Map<String, MetricsSnapshot.Timing> stageTimings = new TreeMap<>();
+		stages.forEach((name, histogram) -> stageTimings.put(name, histogram.snapshot()));
+
+		Map<String, Long> counts = new TreeMap<>();
+		counters.forEach((name, counter) -> counts.put(name, counter.sum()));
+
+		return new MetricsSnapshot(endpointStats, stageTimings, counts, Duration.ofNanos(System.nanoTime() - createdAt));
+	}
+
+	/**
+	 * Renders every measurement in the Prometheus text exposition format (version 0.0.4).
+	 * Latencies are summaries in seconds with 0.5, 0.9 and 0.99 quantiles.
+	 *
+	 * @return text
+	 */
+	public String toPrometheus() {
+		StringBuilder text = new StringBuilder(2048);
+		Map<String, Endpoint> sortedEndpoints = new TreeMap<>(endpoints);
+		Map<String, LatencyHistogram> sortedStages = new TreeMap<>(stages);
+		Map<String, LongAdder> sortedCounters = new TreeMap<>(counters);
+
+		header(text, "nsregent_requests_total", "counter", "Responses received per endpoint.");
+		sortedEndpoints.forEach((name, stats) -> sample(text, "nsregent_requests_total", "endpoint", name, stats.requests.sum()));
+
+		header(text, "nsregent_request_errors_total", "counter", "Responses with a 4xx or 5xx status per endpoint.");
+		sortedEndpoints.forEach((name, stats) -> sample(text, "nsregent_request_errors_total", "endpoint", name, stats.errors.sum()));
+
+		header(text, "nsregent_response_bytes_total", "counter", "Response body bytes received per endpoint, before decoding.");
+		sortedEndpoints.forEach((name, stats) -> sample(text, "nsregent_response_bytes_total", "endpoint", name, stats.bytes.sum()));
+
+		header(text, "nsregent_request_duration_seconds", "summary", "Time from request to response headers per endpoint.");
+		sortedEndpoints.forEach((name, stats) -> summary(text, "nsregent_request_duration_seconds", "endpoint", name, stats.latency));
+
+		header(text, "nsregent_stage_duration_seconds", "summary", "Time spent per stage of the issue cycle.");
+		sortedStages.forEach((name, histogram) -> summary(text, "nsregent_stage_duration_seconds", "stage", name, histogram));
+
+		header(text, "nsregent_events_total", "counter", "Counted events such as effect cache hits.");
+		sortedCounters.forEach((name, counter) -> sample(text, "nsregent_events_total", "event", name, counter.sum()));
+
+		return text.toString();
+	}
+
+	private Endpoint endpoint(String endpoint) {
+		return endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+	}
+
+	private static void header(StringBuilder text, String metric, String type, String help) {
+		text.append("# HELP ").append(metric).append(' ').append(help).append('\n')
+				.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder text, String metric, String label, String value, double sample) {
+		text.append(metric).append('{').append(label).append("=\"").append(escape(value)).append("\"} ")
+				.append(number(sample)).append('\n');
+	}
+
+	private static void summary(StringBuilder text, String metric, String label, String value, LatencyHistogram histogram) {
+		String labels = label + "=\"" + escape(value) + "\"";
+
+		for (double quantile : QUANTILES) {
+			text.append(metric).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+					.append(number(histogram.quantile(quantile) / 1e9)).append('\n');
+		}
+		text.append(metric).append("_sum{").append(labels).append("} ").append(number(histogram.sum() / 1e9)).append('\n')
+				.append(metric).append("_count{").append(labels).append("} ").append(histogram.count()).append('\n');
+	}
+
+	private static String number(double value) {
+		return (value == Math.rint(value) && Math.abs(value) < 1e15)
+				? Long.toString((long) value)
+				: String.format(Locale.ROOT, "%.9g", value);
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static final class Endpoint {
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+	}
+
+	private static final class CountingSubscriber<T> implements BodySubscriber<T> {
+		private final BodySubscriber<T> downstream;
+		private final LongAdder bytes;
+
+		private CountingSubscriber(BodySubscriber<T> downstream, LongAdder bytes) {
+			this.downstream = downstream;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public CompletionStage<T> getBody() {
+			return downstream.getBody();
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			downstream.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> items) {
+			for (ByteBuffer item : items) {
+				bytes.add(item.remaining());
+			}
+			downstream.onNext(items);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			downstream.onError(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			downstream.onComplete();
+		}
+	}
+}
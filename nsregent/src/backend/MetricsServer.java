@@ -0,0 +1,72 @@
+package backend;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Optional http endpoint serving Metrics.toPrometheus() at /metrics for a Prometheus scraper.
+ * Runs on the server's own single thread, a scrape never touches the issue cycle's threads.
+ */
+public class MetricsServer implements AutoCloseable {
+	public static final String PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final HttpServer server;
+	private final Metrics metrics;
+
+	private MetricsServer(HttpServer server, Metrics metrics) {
+		this.server = server;
+		this.metrics = metrics;
+
+		server.createContext(PATH, this::scrape);
+	}
+
+	/**
+	 * pre: (metrics != null && address != null)
+	 *
+	 * @param metrics registry to expose
+	 * @param address eg: new InetSocketAddress(9464), port 0 picks a free port
+	 * @return running server
+	 * @throws IOException if the address cannot be bound
+	 */
+	public static MetricsServer start(Metrics metrics, InetSocketAddress address) throws IOException {
+		if (metrics == null || address == null) {
+			throw new IllegalArgumentException("Metrics and address cannot be null");
+		}
+
+		MetricsServer metricsServer = new MetricsServer(HttpServer.create(address, 0), metrics);
+		metricsServer.server.start();
+
+		return metricsServer;
+	}
+
+	public InetSocketAddress address() {
+		return server.getAddress();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void scrape(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+}
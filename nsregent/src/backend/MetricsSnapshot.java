@@ -0,0 +1,82 @@
+package backend;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Point in time copy of a Metrics registry.
+ *
+ * @param endpoints request statistics keyed by endpoint, eg: "shards", "issue_answer", "results_page"
+ * @param stages timings keyed by stage, eg: "decision", "parse_shards", "rate_limit_wait"
+ * @param counters event counts keyed by name, eg: "effect_cache_hits"
+ * @param uptime time since the registry was created
+ */
+public record MetricsSnapshot(Map<String, EndpointStats> endpoints, Map<String, Timing> stages,
+		Map<String, Long> counters, Duration uptime) {
+
+	public MetricsSnapshot {
+		endpoints = Map.copyOf(endpoints);
+		stages = Map.copyOf(stages);
+		counters = Map.copyOf(counters);
+	}
+
+	/**
+	 * Returns a counter's value, 0 if it was never incremented.
+	 *
+	 * @param name
+	 * @return count
+	 */
+	public long counter(String name) {
+		return counters.getOrDefault(name, 0L);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(String.format("Metrics after %d s%n", uptime.toSeconds()));
+
+		endpoints.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+			EndpointStats stats = entry.getValue();
+			text.append(String.format("  %-24s %7d requests %5d errors %10d bytes  %s%n", entry.getKey(),
+					stats.requests(), stats.errors(), stats.bytes(), stats.latency()));
+		});
+		stages.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry ->
+				text.append(String.format("  %-24s %s%n", entry.getKey(), entry.getValue())));
+		counters.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry ->
+				text.append(String.format("  %-24s %d%n", entry.getKey(), entry.getValue())));
+
+		return text.toString();
+	}
+
+	/**
+	 * Statistics of one endpoint.
+	 *
+	 * @param requests responses received
+	 * @param errors responses with a 4xx/5xx status
+	 * @param bytes response body bytes received, before decoding
+	 * @param latency time from sending a request to receiving its response headers
+	 */
+	public record EndpointStats(long requests, long errors, long bytes, Timing latency) {
+	}
+
+	/**
+	 * Distribution of recorded durations, all values in nanoseconds.
+	 *
+	 * @param count
+	 * @param totalNanos
+	 * @param p50Nanos
+	 * @param p90Nanos
+	 * @param p99Nanos
+	 * @param maxNanos
+	 */
+	public record Timing(long count, long totalNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+		public double meanNanos() {
+			return (count == 0) ? 0.0 : (double) totalNanos / count;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("n=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", count,
+					meanNanos() / 1e6, p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package backend;
+
+/**
+ * Login details for one nation in a fleet.
+ *
+ * pre: (nationName != null && password != null)
+ * pre: (!nationName.isBlank() && !password.isBlank())
+ *
+ * @param nationName
+ * @param password
+ */
+public record NationCredentials(String nationName, String password) {
+	public NationCredentials {
+		if (nationName == null || password == null || nationName.isBlank() || password.isBlank()) {
+			throw new IllegalArgumentException("Nation name and password cannot be null or blank");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "NationCredentials[nationName=" + nationName + "]";
+	}
+}
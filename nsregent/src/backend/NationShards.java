@@ -0,0 +1,25 @@
+package backend;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed parts of a combined shard response. Shards that were not requested are empty.
+ *
+ * @param issueIds ids from the issues shard, in document order
+ * @param freedomScores {category=score} from the freedomscores shard
+ * @param censusScores {scaleId=score} from the census shard
+ * @param nextIssueTime epoch seconds from the nextissuetime shard, 0 when absent
+ */
+public record NationShards(List<Integer> issueIds, Map<String, Double> freedomScores, Map<Integer, Double> censusScores,
+		long nextIssueTime) {
+	public NationShards {
+		issueIds = List.copyOf(issueIds);
+		freedomScores = Map.copyOf(freedomScores);
+		censusScores = Map.copyOf(censusScores);
+	}
+
+	public NationShards(List<Integer> issueIds, Map<String, Double> freedomScores, Map<Integer, Double> censusScores) {
+		this(issueIds, freedomScores, censusScores, 0);
+	}
+}
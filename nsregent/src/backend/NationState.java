@@ -0,0 +1,75 @@
+package backend;
+
+import java.util.Map;
+
+/**
+ * Local model of a nation's current stats.
+ *
+ * Starts from one full fetch and is kept up to date by applying the census changes reported in
+ * each issue answer, so the cycle does not re-fetch stats before every decision. Because the
+ * reported changes are rounded (and not every answer reports rankings), the model asks for a
+ * full re-sync after resyncInterval applied answers, or as soon as an answer has no rankings.
+ */
+public class NationState {
+	private final StatVector stats;
+	private final int resyncInterval;
+	private int appliedSinceSync;
+	private boolean drifted;
+
+	/**
+	 * pre: (stats != null && !stats.isEmpty())
+	 * pre: (resyncInterval >= 0), 0 disables periodic re-sync
+	 *
+	 * @param stats scores from a full fetch
+	 * @param resyncInterval number of applied answers after which a full fetch is requested
+	 */
+	public NationState(StatVector stats, int resyncInterval) {
+		if (stats == null || stats.isEmpty() || resyncInterval < 0) {
+			throw new IllegalArgumentException("Stats cannot be null or empty and resync interval cannot be negative");
+		}
+
+		this.stats = stats.copy();
+		this.resyncInterval = resyncInterval;
+	}
+
+	/**
+	 * Applies the census changes of an accepted issue answer to the tracked scales.
+	 *
+	 * pre: (result != null && result.succeeded())
+	 * post: tracked scales move by the reported change, untracked scales stay absent
+	 *
+	 * @param result parsed issue answer
+	 */
+	public void apply(IssueResult result) {
+		if (!result.hasRankings()) {
+			drifted = true;
+		}
+
+		for (Map.Entry<Integer, Double> change : result.censusChanges().entrySet()) {
+			CensusScale scale = CensusScale.fromId(change.getKey());
+			if (scale != null) {
+				stats.add(scale, change.getValue());
+			}
+		}
+
+		appliedSinceSync++;
+	}
+
+	/**
+	 * Returns true when the model should be replaced by a full fetch.
+	 *
+	 * @return needsResync
+	 */
+	public boolean needsResync() {
+		return drifted || (resyncInterval > 0 && appliedSinceSync >= resyncInterval);
+	}
+
+	/**
+	 * Returns a copy of the current stats.
+	 *
+	 * @return stats
+	 */
+	public StatVector stats() {
+		return stats.copy();
+	}
+}
@@ -0,0 +1,330 @@
+package backend;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Starting stats of many nations read from the NationStates daily nations dump (nations.xml.gz).
+ *
+ * The dump is streamed through gzip and StAX in one pass, so memory stays constant however large
+ * the file is; only the nations asked for (by name, or every nation of a region) are kept, each as
+ * the StatVector an api freedomscores+census request would have produced. A RegentContext holding
+ * a dump seeds every nation it covers, and the authentication request then skips those shards.
+ *
+ * Dumps are generated once a day, so seeded stats are as of the last daily update; they are not
+ * used once older than MAX_AGE, and setResyncInterval() bounds how long a nation runs on them.
+ */
+public final class NationsDump {
+	public static final String DUMP_URL = "https://www.nationstates.net/pages/nations.xml.gz";
+	public static final Duration MAX_AGE = Duration.ofHours(36);
+	private static final String APP_NAME = "NSRegent";
+	private static final int BUFFER_BYTES = 1 << 16;
+	// NATIONS is depth 1, so a NATION's own fields are at depth 3
+	private static final int FIELD_DEPTH = 3;
+
+	private final Map<String, StatVector> stats;
+	private final Instant dumpedAt;
+
+	private NationsDump(Map<String, StatVector> stats, Instant dumpedAt) {
+		this.stats = stats;
+		this.dumpedAt = dumpedAt;
+	}
+
+	/**
+	 * Reads a dump file, gzipped or not, keeping the nations named and every nation of region.
+	 * Without names or region every nation is kept, which takes memory in proportion to the dump.
+	 *
+	 * pre: (dump != null && nationNames != null)
+	 * post: dumpedAt() is the file's modification time, which download() sets to when the dump was generated
+	 *
+	 * @param dump path of nations.xml.gz
+	 * @param nationNames nations to keep, in any case and with spaces or underscores
+	 * @param region region whose nations are all kept, or null
+	 * @return index
+	 * @throws IOException if the file cannot be read or is not well formed xml
+	 */
+	public static NationsDump read(Path dump, Collection<String> nationNames, String region) throws IOException {
+		if (dump == null || nationNames == null) {
+			throw new IllegalArgumentException("Dump and nation names cannot be null");
+		}
+
+		Instant dumpedAt = Files.getLastModifiedTime(dump).toInstant();
+		try (InputStream body = decompressed(new BufferedInputStream(Files.newInputStream(dump), BUFFER_BYTES))) {
+			return read(body, nationNames, region, dumpedAt);
+		}
+	}
+
+	/**
+	 * Reads an uncompressed dump stream, see read(dump, nationNames, region).
+	 * Stops reading as soon as every named nation has been found when no region is asked for.
+	 *
+	 * pre: (body != null && nationNames != null && dumpedAt != null)
+	 *
+	 * @param body nations xml
+	 * @param nationNames nations to keep
+	 * @param region region whose nations are all kept, or null
+	 * @param dumpedAt when the dump was generated
+	 * @return index
+	 * @throws IOException if the body is not well formed xml
+	 */
+	public static NationsDump read(InputStream body, Collection<String> nationNames, String region, Instant dumpedAt)
+			throws IOException {
+		if (body == null || nationNames == null || dumpedAt == null) {
+			throw new IllegalArgumentException("Body, nation names and dump time cannot be null");
+		}
+
+		Set<String> wanted = new HashSet<>();
+		for (String nationName : nationNames) {
+			wanted.add(canonical(nationName));
+		}
+		String wantedRegion = (region == null) ? null : canonical(region);
+		boolean everything = wanted.isEmpty() && wantedRegion == null;
+
+		Map<String, StatVector> index = new HashMap<>();
+		XMLStreamReader reader = ApiResponseParser.open(body);
+		int depth = 0;
+		String section = null;
+		int currentScale = -1;
+		String name = null;
+		String nationRegion = null;
+		StatVector nationStats = null;
+		double civilRights = Double.NaN;
+		double politicalFreedom = Double.NaN;
+		boolean skipping = false;
+
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					String element = reader.getLocalName();
+
+					if (depth == FIELD_DEPTH - 1 && "NATION".equals(element)) {
+						name = null;
+						nationRegion = null;
+						nationStats = new StatVector();
+						civilRights = Double.NaN;
+						politicalFreedom = Double.NaN;
+						skipping = false;
+					} else if (skipping || nationStats == null) {
+						continue;
+					} else if (depth == FIELD_DEPTH) {
+						section = element;
+						if ("NAME".equals(element) || "REGION".equals(element)) {
+							String value = canonical(reader.getElementText());
+							depth--;
+							if ("NAME".equals(element)) {
+								name = value;
+							} else {
+								nationRegion = value;
+							}
+							// the rest of an unwanted nation is only walked, not parsed
+							skipping = name != null && nationRegion != null
+									&& !(everything || wanted.contains(name) || nationRegion.equals(wantedRegion));
+						}
+					} else if (depth == FIELD_DEPTH + 1 && "FREEDOMSCORES".equals(section)) {
+						if ("CIVILRIGHTS".equals(element)) {
+							civilRights = Double.parseDouble(reader.getElementText().trim());
+							depth--;
+						} else if ("POLITICALFREEDOM".equals(element)) {
+							politicalFreedom = Double.parseDouble(reader.getElementText().trim());
+							depth--;
+						}
+					} else if (depth == FIELD_DEPTH + 1 && "CENSUS".equals(section) && "SCALE".equals(element)) {
+						String id = reader.getAttributeValue(null, "id");
+						currentScale = (id == null) ? -1 : Integer.parseInt(id.trim());
+					} else if (depth == FIELD_DEPTH + 2 && currentScale >= 0 && "SCORE".equals(element)) {
+						CensusScale scale = CensusScale.fromId(currentScale);
+						String score = reader.getElementText();
+						depth--;
+						if (scale != null) {
+							nationStats.set(scale, Double.parseDouble(score.trim()));
+						}
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+
+					if (depth == FIELD_DEPTH - 1) {
+						section = null;
+					} else if (depth == FIELD_DEPTH) {
+						currentScale = -1;
+					} else if (depth == FIELD_DEPTH - 2 && nationStats != null) {
+						if (!skipping && name != null
+								&& (everything || wanted.contains(name) || (nationRegion != null && nationRegion.equals(wantedRegion)))
+								&& !Double.isNaN(civilRights) && !Double.isNaN(politicalFreedom)
+								&& nationStats.has(CensusScale.ECONOMIC_FREEDOM)) {
+							// freedomscores win over the census scores of the same name, as in the api
+							nationStats.set(CensusScale.CIVIL_RIGHTS, civilRights);
+							nationStats.set(CensusScale.POLITICAL_FREEDOM, politicalFreedom);
+							index.put(name, nationStats);
+						}
+						nationStats = null;
+
+						if (wantedRegion == null && !wanted.isEmpty() && index.size() == wanted.size()) {
+							break;
+						}
+					}
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Malformed nations dump", e);
+		} finally {
+			ApiResponseParser.close(reader);
+		}
+
+		return new NationsDump(index, dumpedAt);
+	}
+
+	/**
+	 * Downloads the current dump from DUMP_URL to target, see download(transport, appContact, source, target).
+	 *
+	 * pre: (transport != null && appContact != null && target != null)
+	 *
+	 * @param transport
+	 * @param appContact contact sent in the User-Agent
+	 * @param target where to store nations.xml.gz
+	 * @return target
+	 * @throws IOException if the download fails
+	 * @throws InterruptedException
+	 */
+	public static Path download(HttpTransport transport, String appContact, Path target) throws IOException, InterruptedException {
+		return download(transport, appContact, URI.create(DUMP_URL), target);
+	}
+
+	/**
+	 * Downloads a dump to target, replacing it only once the download is complete. The file's
+	 * modification time is set to the response's Last-Modified, so read() dates the stats by when
+	 * the dump was generated rather than downloaded; without the header it stays the download time.
+	 *
+	 * pre: (transport != null && appContact != null && source != null && target != null)
+	 *
+	 * @param transport
+	 * @param appContact contact sent in the User-Agent
+	 * @param source url of nations.xml.gz
+	 * @param target where to store nations.xml.gz
+	 * @return target
+	 * @throws IOException if the download fails
+	 * @throws InterruptedException
+	 */
+	public static Path download(HttpTransport transport, String appContact, URI source, Path target)
+			throws IOException, InterruptedException {
+		if (transport == null || appContact == null || source == null || target == null) {
+			throw new IllegalArgumentException("Transport, contact, source and target cannot be null");
+		}
+
+		Path directory = target.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, "nations", ".tmp");
+		// a few hundred MB, so not bound by the usual request timeout
+		HttpRequest request = HttpRequest.newBuilder(source)
+				.header("User-Agent", String.format("%s | Contact: %s", APP_NAME, appContact))
+				.timeout(Duration.ofMinutes(30))
+				.GET()
+				.build();
+
+		try {
+			HttpResponse<Path> response = transport.send(request, HttpResponse.BodyHandlers.ofFile(temp));
+			if (response.statusCode() != 200) {
+				throw new IOException("Dump download failed with status " + response.statusCode());
+			}
+			Instant generated = lastModified(response.headers());
+			if (generated != null) {
+				Files.setLastModifiedTime(temp, FileTime.from(generated));
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		return target;
+	}
+
+	/**
+	 * Returns a copy of a nation's stats.
+	 *
+	 * @param nationName in any case and with spaces or underscores
+	 * @return stats, null if the nation is not in the index
+	 */
+	public StatVector stats(String nationName) {
+		StatVector nationStats = (nationName == null) ? null : stats.get(canonical(nationName));
+		return (nationStats == null) ? null : nationStats.copy();
+	}
+
+	/**
+	 * Returns the canonical names (lower case, underscores) of every indexed nation.
+	 *
+	 * @return names
+	 */
+	public Set<String> nationNames() {
+		return Collections.unmodifiableSet(stats.keySet());
+	}
+
+	public int size() {
+		return stats.size();
+	}
+
+	public Instant dumpedAt() {
+		return dumpedAt;
+	}
+
+	/**
+	 * Returns whether the dump is older than MAX_AGE and should no longer seed stats.
+	 *
+	 * @return stale
+	 */
+	public boolean isStale() {
+		return dumpedAt.plus(MAX_AGE).isBefore(Instant.now());
+	}
+
+	private static InputStream decompressed(BufferedInputStream in) throws IOException {
+		in.mark(2);
+		boolean gzipped = in.read() == 0x1f && in.read() == 0x8b;
+		in.reset();
+
+		return gzipped ? new GZIPInputStream(in, BUFFER_BYTES) : in;
+	}
+
+	/**
+	 * Returns the Last-Modified time of a response, or null when it is absent or malformed.
+	 */
+	private static Instant lastModified(HttpHeaders headers) {
+		try {
+			return headers.firstValue("Last-Modified")
+					.map(value -> ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())
+					.orElse(null);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	private static String canonical(String name) {
+		return name.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+	}
+}
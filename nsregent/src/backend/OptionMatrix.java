@@ -0,0 +1,255 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Effects of every option of one issue, stored as flat options x scales double[]s of means,
+ * minimums and maximums.
+ *
+ * Row i holds the effect of option optionKey(i) on each CensusScale (by ordinal); scales an
+ * option does not touch are 0. When a source has no range (eg: fromMap) min and max equal the mean.
+ * Matrices are immutable, without() returns a smaller copy.
+ */
+public final class OptionMatrix {
+	private final int[] optionKeys;
+	private final double[] effects;
+	private final double[] minEffects;
+	private final double[] maxEffects;
+
+	private OptionMatrix(int[] optionKeys, double[] effects, double[] minEffects, double[] maxEffects) {
+		this.optionKeys = optionKeys;
+		this.effects = effects;
+		this.minEffects = minEffects;
+		this.maxEffects = maxEffects;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Builds a matrix from {option={category=effect}}; unknown categories are ignored.
+	 *
+	 * pre: (options != null)
+	 *
+	 * @param options
+	 * @return matrix
+	 */
+	public static OptionMatrix fromMap(Map<Integer, Map<String, Double>> options) {
+		Builder builder = builder();
+
+		for (Map.Entry<Integer, Map<String, Double>> option : options.entrySet()) {
+			builder.option(option.getKey());
+			for (Map.Entry<String, Double> effect : option.getValue().entrySet()) {
+				CensusScale scale = CensusScale.fromLabel(effect.getKey());
+				if (scale != null && effect.getValue() != null) {
+					builder.effect(option.getKey(), scale, effect.getValue());
+				}
+			}
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Returns {option={category=effect}} with only the non zero effects of each option.
+	 *
+	 * @return options
+	 */
+	public Map<Integer, Map<String, Double>> toMap() {
+		Map<Integer, Map<String, Double>> options = new LinkedHashMap<>();
+
+		for (int i = 0; i < optionKeys.length; i++) {
+			Map<String, Double> optionEffects = new LinkedHashMap<>();
+			for (CensusScale scale : CensusScale.values()) {
+				double effect = effect(i, scale.ordinal());
+				if (effect != 0.0) {
+					optionEffects.put(scale.label(), effect);
+				}
+			}
+			options.put(optionKeys[i], optionEffects);
+		}
+
+		return options;
+	}
+
+	public int optionCount() {
+		return optionKeys.length;
+	}
+
+	public boolean isEmpty() {
+		return optionKeys.length == 0;
+	}
+
+	/**
+	 * Returns the option number the api expects for row i.
+	 *
+	 * @param i row
+	 * @return optionKey
+	 */
+	public int optionKey(int i) {
+		return optionKeys[i];
+	}
+
+	/**
+	 * Returns the mean effect of row i on the scale with the given ordinal.
+	 *
+	 * @param i row
+	 * @param scaleOrdinal
+	 * @return effect
+	 */
+	public double effect(int i, int scaleOrdinal) {
+		return effects[i * CensusScale.COUNT + scaleOrdinal];
+	}
+
+	/**
+	 * Returns the smallest observed effect of row i on the scale with the given ordinal.
+	 *
+	 * @param i row
+	 * @param scaleOrdinal
+	 * @return minimum effect
+	 */
+	public double min(int i, int scaleOrdinal) {
+		return minEffects[i * CensusScale.COUNT + scaleOrdinal];
+	}
+
+	/**
+	 * Returns the largest observed effect of row i on the scale with the given ordinal.
+	 *
+	 * @param i row
+	 * @param scaleOrdinal
+	 * @return maximum effect
+	 */
+	public double max(int i, int scaleOrdinal) {
+		return maxEffects[i * CensusScale.COUNT + scaleOrdinal];
+	}
+
+	/**
+	 * Returns a copy without the given option (eg: after the api rejected it).
+	 *
+	 * @param optionKey
+	 * @return matrix
+	 */
+	public OptionMatrix without(int optionKey) {
+		int row = -1;
+		for (int i = 0; i < optionKeys.length; i++) {
+			if (optionKeys[i] == optionKey) {
+				row = i;
+			}
+		}
+
+		if (row < 0) {
+			return this;
+		}
+
+		int[] keys = new int[optionKeys.length - 1];
+		System.arraycopy(optionKeys, 0, keys, 0, row);
+		System.arraycopy(optionKeys, row + 1, keys, row, keys.length - row);
+
+		return new OptionMatrix(keys, withoutRow(effects, row, keys.length), withoutRow(minEffects, row, keys.length),
+				withoutRow(maxEffects, row, keys.length));
+	}
+
+	private static double[] withoutRow(double[] values, int row, int remainingRows) {
+		double[] rows = new double[remainingRows * CensusScale.COUNT];
+		System.arraycopy(values, 0, rows, 0, row * CensusScale.COUNT);
+		System.arraycopy(values, (row + 1) * CensusScale.COUNT, rows, row * CensusScale.COUNT,
+				(remainingRows - row) * CensusScale.COUNT);
+		return rows;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof OptionMatrix
+				&& Arrays.equals(optionKeys, ((OptionMatrix) other).optionKeys)
+				&& Arrays.equals(effects, ((OptionMatrix) other).effects)
+				&& Arrays.equals(minEffects, ((OptionMatrix) other).minEffects)
+				&& Arrays.equals(maxEffects, ((OptionMatrix) other).maxEffects);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(optionKeys) + Arrays.hashCode(effects);
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+
+	/**
+	 * Collects options and effects in any order; options are sorted by key on build().
+	 */
+	public static final class Builder {
+		// per option: means, minimums and maximums back to back
+		private final Map<Integer, double[]> rows = new LinkedHashMap<>();
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds an option with no effects, or does nothing if it already exists.
+		 *
+		 * @param optionKey
+		 * @return this
+		 */
+		public Builder option(int optionKey) {
+			row(optionKey);
+			return this;
+		}
+
+		/**
+		 * Sets the mean effect of an option on a scale, with no range, adding the option if needed.
+		 *
+		 * @param optionKey
+		 * @param scale
+		 * @param effect
+		 * @return this
+		 */
+		public Builder effect(int optionKey, CensusScale scale, double effect) {
+			return effect(optionKey, scale, effect, effect, effect);
+		}
+
+		/**
+		 * Sets the range and mean effect of an option on a scale, adding the option if needed.
+		 *
+		 * pre: min <= mean <= max
+		 *
+		 * @param optionKey
+		 * @param scale
+		 * @param min
+		 * @param mean
+		 * @param max
+		 * @return this
+		 */
+		public Builder effect(int optionKey, CensusScale scale, double min, double mean, double max) {
+			double[] row = row(optionKey);
+			row[scale.ordinal()] = mean;
+			row[CensusScale.COUNT + scale.ordinal()] = min;
+			row[2 * CensusScale.COUNT + scale.ordinal()] = max;
+			return this;
+		}
+
+		public OptionMatrix build() {
+			int[] keys = rows.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+			double[] effects = new double[keys.length * CensusScale.COUNT];
+			double[] minEffects = new double[effects.length];
+			double[] maxEffects = new double[effects.length];
+
+			for (int i = 0; i < keys.length; i++) {
+				double[] row = rows.get(keys[i]);
+				System.arraycopy(row, 0, effects, i * CensusScale.COUNT, CensusScale.COUNT);
+				System.arraycopy(row, CensusScale.COUNT, minEffects, i * CensusScale.COUNT, CensusScale.COUNT);
+				System.arraycopy(row, 2 * CensusScale.COUNT, maxEffects, i * CensusScale.COUNT, CensusScale.COUNT);
+			}
+
+			return new OptionMatrix(keys, effects, minEffects, maxEffects);
+		}
+
+		private double[] row(int optionKey) {
+			return rows.computeIfAbsent(optionKey, key -> new double[3 * CensusScale.COUNT]);
+		}
+	}
+}
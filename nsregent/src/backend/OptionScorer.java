@@ -0,0 +1,236 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Scores the options of one issue against a target using the effect ranges, not only the means.
+ * Lower scores are better; every mode measures squared distance to target over the scored scales.
+ *
+ * An effect is modelled as a triangular distribution over [min, max] whose mode is placed so its
+ * mean matches the mwq mean (clamped into the range). Modes:
+ *   - MEAN: distance after the mean effects, what chooseBestOption and IssuePlanner use
+ *   - EXPECTED: expected distance, (current + mean - target)^2 + variance per scale
+ *   - WORST_CASE: per scale, the worse end of the range
+ *   - MONTE_CARLO: average distance over sampled outcomes, every option seeing the same draws
+ * WORST_CASE and MONTE_CARLO clamp outcomes to the scale bounds (freedom scores stay within 0-100),
+ * so an option that can only push a capped stat further past its cap is not rewarded for it.
+ *
+ * Scoring runs on primitive arrays with no allocation per option beyond the result array, so a
+ * fleet can score thousands of option / nation combinations per millisecond in the closed form modes.
+ */
+public final class OptionScorer {
+	public static final int DEFAULT_SAMPLES = 256;
+	private static final double[] LOWER_BOUNDS = new double[CensusScale.COUNT];
+	private static final double[] UPPER_BOUNDS = new double[CensusScale.COUNT];
+
+	static {
+		Arrays.fill(LOWER_BOUNDS, Double.NEGATIVE_INFINITY);
+		Arrays.fill(UPPER_BOUNDS, Double.POSITIVE_INFINITY);
+		for (CensusScale freedom : new CensusScale[] {
+				CensusScale.CIVIL_RIGHTS, CensusScale.POLITICAL_FREEDOM, CensusScale.ECONOMIC_FREEDOM }) {
+			LOWER_BOUNDS[freedom.ordinal()] = 0.0;
+			UPPER_BOUNDS[freedom.ordinal()] = 100.0;
+		}
+	}
+
+	public enum Mode {
+		MEAN, EXPECTED, WORST_CASE, MONTE_CARLO
+	}
+
+	private final Mode mode;
+	private final int samples;
+	// MONTE_CARLO draws, samples x CensusScale.COUNT, fixed by the seed
+	private final double[] uniforms;
+
+	/**
+	 * pre: (mode != null)
+	 *
+	 * @param mode
+	 */
+	public OptionScorer(Mode mode) {
+		this(mode, DEFAULT_SAMPLES, 0x5EED);
+	}
+
+	/**
+	 * pre: (mode != null && samples > 0)
+	 *
+	 * @param mode
+	 * @param samples outcomes drawn per option in MONTE_CARLO mode
+	 * @param seed makes MONTE_CARLO scores repeatable
+	 */
+	public OptionScorer(Mode mode, int samples, long seed) {
+		if (mode == null || samples <= 0) {
+			throw new IllegalArgumentException("Mode cannot be null and samples must be positive");
+		}
+
+		this.mode = mode;
+		this.samples = samples;
+
+		if (mode == Mode.MONTE_CARLO) {
+			SplittableRandom random = new SplittableRandom(seed);
+			uniforms = new double[samples * CensusScale.COUNT];
+			for (int u = 0; u < uniforms.length; u++) {
+				uniforms[u] = random.nextDouble();
+			}
+		} else {
+			uniforms = null;
+		}
+	}
+
+	public Mode mode() {
+		return mode;
+	}
+
+	/**
+	 * Returns the score of every option, indexed like the matrix rows.
+	 *
+	 * pre: currentStats, targetStats, options != null
+	 *
+	 * @param currentStats
+	 * @param targetStats only scales also present in currentStats are scored
+	 * @param options
+	 * @return scores, lower is better
+	 */
+	public double[] score(StatVector currentStats, StatVector targetStats, OptionMatrix options) {
+		if (currentStats == null || targetStats == null || options == null) {
+			throw new IllegalArgumentException("Inputs cannot be null");
+		}
+
+		double[] scores = new double[options.optionCount()];
+		score(currentStats.values(), targetStats.values(), currentStats.sharedScales(targetStats), options, scores);
+		return scores;
+	}
+
+	/**
+	 * Returns the key of the option with the lowest score.
+	 *
+	 * pre: currentStats, targetStats != null && options not empty
+	 *
+	 * @param currentStats
+	 * @param targetStats
+	 * @param options
+	 * @return option key
+	 */
+	public int bestOption(StatVector currentStats, StatVector targetStats, OptionMatrix options) {
+		if (options == null || options.isEmpty()) {
+			throw new IllegalArgumentException("Options cannot be null or empty");
+		}
+
+		double[] scores = score(currentStats, targetStats, options);
+		int best = 0;
+		for (int i = 1; i < scores.length; i++) {
+			if (scores[i] < scores[best]) {
+				best = i;
+			}
+		}
+		return options.optionKey(best);
+	}
+
+	/**
+	 * Allocation free form of score() for fleet scale callers that keep their own arrays.
+	 *
+	 * pre: current and target are indexed by CensusScale ordinal && scores.length >= options.optionCount()
+	 *
+	 * @param current
+	 * @param target
+	 * @param scales ordinals to score, eg: StatVector.sharedScales()
+	 * @param options
+	 * @param scores receives one score per option
+	 */
+	public void score(double[] current, double[] target, int[] scales, OptionMatrix options, double[] scores) {
+		switch (mode) {
+			case MEAN -> scoreMean(current, target, scales, options, scores);
+			case EXPECTED -> scoreExpected(current, target, scales, options, scores);
+			case WORST_CASE -> scoreWorstCase(current, target, scales, options, scores);
+			case MONTE_CARLO -> scoreMonteCarlo(current, target, scales, options, scores);
+		}
+	}
+
+	/**
+	 * Variance of the effect model for one range, used by EXPECTED and the range aware IssuePlanner.
+	 *
+	 * @param min
+	 * @param mean
+	 * @param max
+	 * @return variance
+	 */
+	static double variance(double min, double mean, double max) {
+		double mode = triangularMode(min, mean, max);
+		return (min * min + max * max + mode * mode - min * max - min * mode - max * mode) / 18.0;
+	}
+
+	private static void scoreMean(double[] current, double[] target, int[] scales, OptionMatrix options, double[] scores) {
+		for (int i = 0; i < options.optionCount(); i++) {
+			double distance = 0.0;
+			for (int scale : scales) {
+				double difference = current[scale] + options.effect(i, scale) - target[scale];
+				distance += difference * difference;
+			}
+			scores[i] = distance;
+		}
+	}
+
+	private static void scoreExpected(double[] current, double[] target, int[] scales, OptionMatrix options, double[] scores) {
+		for (int i = 0; i < options.optionCount(); i++) {
+			double distance = 0.0;
+			for (int scale : scales) {
+				double mean = options.effect(i, scale);
+				double difference = current[scale] + mean - target[scale];
+				distance += difference * difference + variance(options.min(i, scale), mean, options.max(i, scale));
+			}
+			scores[i] = distance;
+		}
+	}
+
+	private static void scoreWorstCase(double[] current, double[] target, int[] scales, OptionMatrix options, double[] scores) {
+		for (int i = 0; i < options.optionCount(); i++) {
+			double distance = 0.0;
+			for (int scale : scales) {
+				// clamping is monotone, so the worst outcome is at one end of the range
+				double low = clamp(current[scale] + options.min(i, scale), scale) - target[scale];
+				double high = clamp(current[scale] + options.max(i, scale), scale) - target[scale];
+				distance += Math.max(low * low, high * high);
+			}
+			scores[i] = distance;
+		}
+	}
+
+	private void scoreMonteCarlo(double[] current, double[] target, int[] scales, OptionMatrix options, double[] scores) {
+		// one uniform per (sample, scale) shared by every option and every call, so differences
+		// between options come from their ranges rather than from sampling noise
+		for (int i = 0; i < options.optionCount(); i++) {
+			double total = 0.0;
+			for (int scale : scales) {
+				double min = options.min(i, scale);
+				double max = options.max(i, scale);
+				double mode = triangularMode(min, options.effect(i, scale), max);
+				double split = (max > min) ? (mode - min) / (max - min) : 0.0;
+
+				for (int s = 0; s < samples; s++) {
+					double u = uniforms[s * CensusScale.COUNT + scale];
+					double effect;
+					if (max <= min) {
+						effect = min;
+					} else if (u < split) {
+						effect = min + Math.sqrt(u * (max - min) * (mode - min));
+					} else {
+						effect = max - Math.sqrt((1.0 - u) * (max - min) * (max - mode));
+					}
+
+					double difference = clamp(current[scale] + effect, scale) - target[scale];
+					total += difference * difference;
+				}
+			}
+			scores[i] = total / samples;
+		}
+	}
+
+	private static double triangularMode(double min, double mean, double max) {
+		return Math.max(min, Math.min(max, 3.0 * mean - min - max));
+	}
+
+	private static double clamp(double value, int scale) {
+		return Math.max(LOWER_BOUNDS[scale], Math.min(UPPER_BOUNDS[scale], value));
+	}
+}
@@ -0,0 +1,372 @@
+package backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * X-Pin session tokens per nation, shared by every Regent of the process and kept across runs
+ * in an encrypted file, so most cycles skip the password login.
+ *
+ * Each pin is encrypted with AES-GCM under a key derived from a passphrase with PBKDF2 (the salt
+ * and iteration count are in the file header), with the nation name as associated data so a
+ * record cannot be moved to another nation. Pins NationStates has expired are removed by the
+ * Regent when a request using one gets a 403.
+ *
+ * Lookups are lock free; put() and remove() rewrite the file atomically and never throw, a failed
+ * write only costs a password login on the next run.
+ */
+public final class PinStore {
+	public static final String PASSPHRASE_ENV = "NSREGENT_PIN_PASSPHRASE";
+	public static final int PBKDF2_ITERATIONS = 210_000;
+	private static final System.Logger LOG = System.getLogger(PinStore.class.getName());
+	private static final int MAGIC = 0x4E53_5049; // "NSPI"
+	private static final int VERSION = 1;
+	private static final int SALT_BYTES = 16;
+	private static final int IV_BYTES = 12;
+	private static final int TAG_BITS = 128;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final Path file;
+	private final SecretKey key;
+	private final byte[] salt;
+	private final int iterations;
+	private final Map<String, String> pins = new ConcurrentHashMap<>();
+
+	private PinStore(Path file, SecretKey key, byte[] salt, int iterations) {
+		this.file = file;
+		this.key = key;
+		this.salt = salt;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Opens the store kept in file, creating it on the first put() if it does not exist.
+	 *
+	 * pre: (file != null && passphrase != null && passphrase.length > 0)
+	 *
+	 * @param file
+	 * @param passphrase the key is derived from it; the array is not kept
+	 * @return store
+	 * @throws IOException if the file cannot be read, is corrupt or was written with another passphrase
+	 */
+	public static PinStore open(Path file, char[] passphrase) throws IOException {
+		if (file == null || passphrase == null || passphrase.length == 0) {
+			throw new IllegalArgumentException("File and passphrase cannot be null or empty");
+		}
+
+		if (!Files.exists(file)) {
+			return create(file, passphrase);
+		}
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a pin store, or an unsupported version");
+			}
+			int iterations = in.readInt();
+			byte[] salt = in.readNBytes(SALT_BYTES);
+			PinStore store = new PinStore(file, deriveKey(passphrase, salt, iterations), salt, iterations);
+
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String nationName = in.readUTF();
+				byte[] iv = in.readNBytes(IV_BYTES);
+				byte[] sealed = in.readNBytes(in.readInt());
+				store.pins.put(nationName, store.decrypt(nationName, iv, sealed));
+			}
+			return store;
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Wrong passphrase or corrupt pin store", e);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt pin store", e);
+		}
+	}
+
+	/**
+	 * Returns an empty store that replaces file on the first put().
+	 */
+	private static PinStore create(Path file, char[] passphrase) throws IOException {
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		return new PinStore(file, deriveKey(passphrase, salt, PBKDF2_ITERATIONS), salt, PBKDF2_ITERATIONS);
+	}
+
+	/**
+	 * Returns a store that only shares pins within the process.
+	 *
+	 * @return store
+	 */
+	public static PinStore inMemory() {
+		return new PinStore(null, null, null, 0);
+	}
+
+	/**
+	 * Opens the store at defaultFile(). The passphrase is the PASSPHRASE_ENV environment variable
+	 * if set, otherwise a random one kept in ~/.nsregent/pin.key, created on first use readable by
+	 * the owner only (POSIX permissions, or an owner only ACL on file systems such as NTFS).
+	 * A store that can't be read (eg: the passphrase changed) is started afresh, its pins only
+	 * cost a password login each.
+	 *
+	 * post: an in memory store if no passphrase is available
+	 *
+	 * @return store
+	 */
+	public static PinStore openDefault() {
+		try {
+			String passphrase = System.getenv(PASSPHRASE_ENV);
+			if (passphrase == null || passphrase.isEmpty()) {
+				passphrase = defaultPassphrase(defaultFile().resolveSibling("pin.key"));
+			}
+			try {
+				return open(defaultFile(), passphrase.toCharArray());
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Starting a new pin store, the old one is unreadable: {0}", e.getMessage());
+				return create(defaultFile(), passphrase.toCharArray());
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Pin store unavailable, pins are kept in memory only: {0}", e.getMessage());
+			return inMemory();
+		}
+	}
+
+	/**
+	 * Returns where openDefault() keeps the store.
+	 *
+	 * @return path
+	 */
+	public static Path defaultFile() {
+		return Path.of(System.getProperty("user.home"), ".nsregent", "pins.dat");
+	}
+
+	/**
+	 * Returns the stored pin of a nation.
+	 *
+	 * @param nationName in any case and with spaces or underscores
+	 * @return pin, null if there is none
+	 */
+	public String pin(String nationName) {
+		return pins.get(canonical(nationName));
+	}
+
+	/**
+	 * Stores a nation's pin, replacing any previous one.
+	 *
+	 * pre: (nationName != null && pin != null && !pin.isBlank())
+	 *
+	 * @param nationName
+	 * @param pin
+	 */
+	public void put(String nationName, String pin) {
+		if (nationName == null || pin == null || pin.isBlank()) {
+			throw new IllegalArgumentException("Nation name and pin cannot be null or blank");
+		}
+
+		if (!pin.equals(pins.put(canonical(nationName), pin))) {
+			save();
+		}
+	}
+
+	/**
+	 * Forgets a nation's pin, eg: once NationStates has expired it.
+	 *
+	 * @param nationName
+	 */
+	public void remove(String nationName) {
+		if (pins.remove(canonical(nationName)) != null) {
+			save();
+		}
+	}
+
+	public int size() {
+		return pins.size();
+	}
+
+	/**
+	 * Rewrites the file from the current pins, every record under a fresh iv.
+	 */
+	private synchronized void save() {
+		if (file == null) {
+			return;
+		}
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				Map<String, String> snapshot = new TreeMap<>(pins);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(iterations);
+				out.write(salt);
+				out.writeInt(snapshot.size());
+				for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+					byte[] iv = new byte[IV_BYTES];
+					RANDOM.nextBytes(iv);
+					byte[] sealed = encrypt(entry.getKey(), iv, entry.getValue());
+					out.writeUTF(entry.getKey());
+					out.write(iv);
+					out.writeInt(sealed.length);
+					out.write(sealed);
+				}
+			}
+
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			Path temp = createOwnerOnly(directory, "pins");
+			try {
+				Files.write(temp, bytes.toByteArray());
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException | GeneralSecurityException e) {
+			LOG.log(Level.WARNING, "Could not save the pin store {0}: {1}", file, e.getMessage());
+		}
+	}
+
+	private byte[] encrypt(String nationName, byte[] iv, String pin) throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+		cipher.updateAAD(nationName.getBytes(StandardCharsets.UTF_8));
+		return cipher.doFinal(pin.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String decrypt(String nationName, byte[] iv, byte[] sealed) throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+		cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+		cipher.updateAAD(nationName.getBytes(StandardCharsets.UTF_8));
+		return new String(cipher.doFinal(sealed), StandardCharsets.UTF_8);
+	}
+
+	private static SecretKey deriveKey(char[] passphrase, byte[] salt, int iterations) throws IOException {
+		if (iterations <= 0 || iterations > 100 * PBKDF2_ITERATIONS) {
+			throw new IOException("Corrupt pin store header");
+		}
+
+		PBEKeySpec spec = new PBEKeySpec(passphrase, salt, iterations, 256);
+		try {
+			byte[] encoded = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+			SecretKey key = new SecretKeySpec(encoded, "AES");
+			Arrays.fill(encoded, (byte) 0);
+			return key;
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Unable to derive the pin store key", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+
+	private static String defaultPassphrase(Path keyFile) throws IOException {
+		String passphrase = readKey(keyFile);
+
+		if (passphrase == null) {
+			Path directory = keyFile.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			byte[] secret = new byte[32];
+			RANDOM.nextBytes(secret);
+			// the key is complete and owner only before it takes its name, so no run reads a partial key
+			Path temp = createOwnerOnly(directory, "pin");
+			try {
+				Files.writeString(temp, Base64.getEncoder().encodeToString(secret));
+				publishKey(temp, keyFile);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+
+			passphrase = readKey(keyFile);
+			if (passphrase == null) {
+				throw new IOException("Pin key file " + keyFile + " is empty");
+			}
+		}
+
+		return passphrase;
+	}
+
+	/**
+	 * Returns the key kept in keyFile, or null if there is none. An empty file (left by a run that
+	 * stopped while creating it, before keys were written to a temporary file first) is removed.
+	 */
+	private static String readKey(Path keyFile) throws IOException {
+		try {
+			String passphrase = Files.readString(keyFile).trim();
+			if (passphrase.isEmpty()) {
+				LOG.log(Level.WARNING, "Replacing the empty pin key file {0}", keyFile);
+				Files.deleteIfExists(keyFile);
+				return null;
+			}
+			return passphrase;
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gives temp the name keyFile unless a concurrent first run already has, in which case its key
+	 * is kept. A hard link fails if keyFile exists; where links aren't supported the rename can
+	 * replace a key published a moment earlier, whose run then finds its pins unreadable and
+	 * starts them afresh.
+	 */
+	private static void publishKey(Path temp, Path keyFile) throws IOException {
+		try {
+			Files.createLink(keyFile, temp);
+		} catch (FileAlreadyExistsException e) {
+			// read by the caller
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			Files.move(temp, keyFile, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	/**
+	 * Creates an empty temporary file in directory that only its owner can read: with POSIX
+	 * permissions where the file system has them, otherwise with an ACL granting the owner alone
+	 * (eg: NTFS). On a file system with neither the file keeps the directory's default access.
+	 */
+	private static Path createOwnerOnly(Path directory, String prefix) throws IOException {
+		if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return Files.createTempFile(directory, prefix, ".tmp",
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+
+		Path temp = Files.createTempFile(directory, prefix, ".tmp");
+		AclFileAttributeView acl = Files.getFileAttributeView(temp, AclFileAttributeView.class);
+		if (acl != null) {
+			acl.setAcl(List.of(AclEntry.newBuilder().setType(AclEntryType.ALLOW).setPrincipal(acl.getOwner())
+					.setPermissions(AclEntryPermission.values()).build()));
+		}
+		return temp;
+	}
+
+	private static String canonical(String name) {
+		return name.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+	}
+}
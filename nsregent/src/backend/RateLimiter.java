@@ -0,0 +1,172 @@
+package backend;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket that keeps API traffic under the NationStates rate limit (50 requests / 30 s per IP).
+ *
+ * Callers block in acquire() until a token is available. Waiters are served in arrival order, so no
+ * nation in a fleet can starve the others. The lock is only held while the bucket is updated, waiting
+ * happens on a condition signalled whenever the bucket changes, so observe() and available() never
+ * queue behind a waiting caller. The bucket is corrected from the server's RateLimit-Remaining
+ * header; when that lowers it, no tokens come back before the RateLimit-Reset the server gave with
+ * it. Every caller is paused on Retry-After.
+ */
+public class RateLimiter {
+	public static final int NS_REQUESTS = 50;
+	public static final Duration NS_WINDOW = Duration.ofSeconds(30);
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final Condition changed = lock.newCondition();
+	// callers blocked in acquire(), the first is the only one taking tokens
+	private final ArrayDeque<Thread> waiters = new ArrayDeque<>();
+	private final int capacity;
+	private final double tokensPerNano;
+	private double tokens;
+	// refills start here, ahead of now while a RateLimit-Reset holds the bucket
+	private long lastRefill;
+	private long pausedUntil;
+
+	/**
+	 * pre: (capacity > 0 && window != null && !window.isZero() && !window.isNegative())
+	 * post: a full bucket refilling capacity tokens evenly over window.
+	 *
+	 * @param capacity maximum number of requests allowed in a window
+	 * @param window length of the rate limit window
+	 */
+	public RateLimiter(int capacity, Duration window) {
+		if (capacity <= 0 || window == null || window.isZero() || window.isNegative()) {
+			throw new IllegalArgumentException("Capacity and window must be positive");
+		}
+
+		this.capacity = capacity;
+		this.tokensPerNano = (double) capacity / window.toNanos();
+		this.tokens = capacity;
+		this.lastRefill = System.nanoTime();
+		this.pausedUntil = lastRefill;
+	}
+
+	/**
+	 * Returns a limiter matching the NationStates API policy.
+	 *
+	 * @return limiter
+	 */
+	public static RateLimiter nationStates() {
+		return new RateLimiter(NS_REQUESTS, NS_WINDOW);
+	}
+
+	/**
+	 * Blocks until a request may be sent, then consumes one token.
+	 *
+	 * post: one token consumed
+	 *
+	 * @return nanoseconds spent waiting, including time queued behind other callers
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public long acquire() throws InterruptedException {
+		long start = System.nanoTime();
+		Thread current = Thread.currentThread();
+		lock.lockInterruptibly();
+		try {
+			waiters.addLast(current);
+			try {
+				while (true) {
+					if (waiters.peekFirst() != current) {
+						changed.await();
+						continue;
+					}
+
+					long now = System.nanoTime();
+					refill(now);
+
+					long waitNanos = pausedUntil - now;
+					if (waitNanos <= 0 && tokens >= 1.0) {
+						tokens -= 1.0;
+						return now - start;
+					}
+
+					if (waitNanos <= 0) {
+						waitNanos = Math.max(0, lastRefill - now) + (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+					}
+					changed.awaitNanos(waitNanos);
+				}
+			} finally {
+				// served or interrupted, either way the next caller is now first
+				waiters.remove(current);
+				changed.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Corrects the bucket from the rate limit headers of a response. A RateLimit-Remaining below the
+	 * bucket lowers it, and refilling then waits for RateLimit-Reset seconds when that is given.
+	 * A 429 status pauses every caller for Retry-After seconds (or a full window when absent).
+	 *
+	 * pre: (headers != null)
+	 *
+	 * @param statusCode
+	 * @param headers
+	 */
+	public void observe(int statusCode, HttpHeaders headers) {
+		long now = System.nanoTime();
+		long retryAfter = headers.firstValueAsLong("Retry-After").orElse(-1);
+		long remaining = headers.firstValueAsLong("RateLimit-Remaining").orElse(-1);
+		long reset = headers.firstValueAsLong("RateLimit-Reset").orElse(-1);
+
+		lock.lock();
+		try {
+			refill(now);
+
+			if (remaining >= 0 && remaining < tokens) {
+				tokens = remaining;
+				// the server hands back no more requests before its window resets
+				if (reset > 0) {
+					lastRefill = Math.max(lastRefill, now + TimeUnit.SECONDS.toNanos(reset));
+				}
+			}
+
+			if (statusCode == 429) {
+				tokens = 0;
+				long pauseNanos = (retryAfter >= 0)
+						? TimeUnit.SECONDS.toNanos(retryAfter)
+						: (long) (capacity / tokensPerNano);
+				pausedUntil = Math.max(pausedUntil, now + pauseNanos);
+			} else if (retryAfter >= 0) {
+				pausedUntil = Math.max(pausedUntil, now + TimeUnit.SECONDS.toNanos(retryAfter));
+			}
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of whole tokens currently available.
+	 *
+	 * @return available
+	 */
+	public int available() {
+		lock.lock();
+		try {
+			refill(System.nanoTime());
+			return (int) tokens;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void refill(long now) {
+		if (now > lastRefill) {
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+			lastRefill = now;
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package backend;
+
+/**
+ * Process level services shared by Regent instances: the HTTP transport (with its rate limiter),
+ * the issue effect cache, an optional effects database snapshot, an optional nations dump seeding
+ * starting stats, an optional PinStore sharing session pins, an optional StatsJournal recording
+ * every snapshot and decision, and the endpoints requests are sent to.
+ * A fleet of nations should share one context.
+ */
+public class RegentContext {
+	private static volatile RegentContext defaults;
+
+	private final HttpTransport transport;
+	private final IssueEffectCache effectCache;
+	private final Endpoints endpoints;
+	private final EffectsDatabase effectsDatabase;
+	private final NationsDump nationsDump;
+	private final StatsJournal statsJournal;
+	// opened on first use by the default context, see pinStore()
+	private final boolean openDefaultPinStore;
+	private volatile PinStore pinStore;
+
+	private RegentContext(Builder builder, boolean openDefaultPinStore) {
+		this.transport = builder.transport;
+		this.effectCache = builder.effectCache;
+		this.endpoints = builder.endpoints;
+		this.effectsDatabase = builder.effectsDatabase;
+		this.nationsDump = builder.nationsDump;
+		this.pinStore = builder.pinStore;
+		this.statsJournal = builder.statsJournal;
+		this.openDefaultPinStore = openDefaultPinStore;
+	}
+
+	/**
+	 * Starts a context that sends requests to the live endpoints and has no effects database,
+	 * nations dump, pin store or journal until the builder is given them.
+	 *
+	 * pre: (transport != null && effectCache != null)
+	 *
+	 * @param transport
+	 * @param effectCache
+	 * @return builder
+	 */
+	public static Builder builder(HttpTransport transport, IssueEffectCache effectCache) {
+		if (transport == null || effectCache == null) {
+			throw new IllegalArgumentException("Context services cannot be null");
+		}
+
+		return new Builder(transport, effectCache);
+	}
+
+	/**
+	 * Returns the process wide context built from the shared transport, the default cache,
+	 * the default effects database when one has been crawled (see EffectsDatabase.openDefault())
+	 * and the default pin store (see PinStore.openDefault()), opened when a Regent first needs a pin.
+	 *
+	 * @return defaults
+	 */
+	public static RegentContext defaults() {
+		RegentContext context = defaults;
+
+		if (context == null) {
+			synchronized (RegentContext.class) {
+				context = defaults;
+				if (context == null) {
+					context = new RegentContext(builder(HttpTransport.shared(), IssueEffectCache.defaultCache())
+							.effectsDatabase(EffectsDatabase.openDefault()), true);
+					defaults = context;
+				}
+			}
+		}
+
+		return context;
+	}
+
+	public HttpTransport transport() {
+		return transport;
+	}
+
+	public IssueEffectCache effectCache() {
+		return effectCache;
+	}
+
+	public Endpoints endpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * Returns the effects database snapshot.
+	 *
+	 * @return effectsDatabase, null when the context has none
+	 */
+	public EffectsDatabase effectsDatabase() {
+		return effectsDatabase;
+	}
+
+	/**
+	 * Returns the nations dump seeding starting stats.
+	 *
+	 * @return nationsDump, null when the context has none
+	 */
+	public NationsDump nationsDump() {
+		return nationsDump;
+	}
+
+	/**
+	 * Returns the store sharing session pins. The default context opens PinStore.openDefault() on
+	 * the first call, which touches disk and derives a key, so Regents call this from their cycle
+	 * rather than on the thread that creates them (eg: the event dispatch thread).
+	 *
+	 * @return pinStore, null when the context has none
+	 */
+	public PinStore pinStore() {
+		PinStore store = pinStore;
+
+		if (store == null && openDefaultPinStore) {
+			synchronized (this) {
+				store = pinStore;
+				if (store == null) {
+					store = PinStore.openDefault();
+					pinStore = store;
+				}
+			}
+		}
+
+		return store;
+	}
+
+	/**
+	 * Returns the journal of snapshots and decisions.
+	 *
+	 * @return statsJournal, null when the context has none
+	 */
+	public StatsJournal statsJournal() {
+		return statsJournal;
+	}
+
+	/**
+	 * Returns the metrics of the context's transport, shared by every Regent using this context.
+	 *
+	 * @return metrics
+	 */
+	public Metrics metrics() {
+		return transport.metrics();
+	}
+
+	/**
+	 * Collects the services of a context; every optional service is absent unless set.
+	 */
+	public static final class Builder {
+		private final HttpTransport transport;
+		private final IssueEffectCache effectCache;
+		private Endpoints endpoints = Endpoints.live();
+		private EffectsDatabase effectsDatabase;
+		private NationsDump nationsDump;
+		private PinStore pinStore;
+		private StatsJournal statsJournal;
+
+		private Builder(HttpTransport transport, IssueEffectCache effectCache) {
+			this.transport = transport;
+			this.effectCache = effectCache;
+		}
+
+		/**
+		 * pre: (endpoints != null)
+		 *
+		 * @param endpoints where api and results page requests are sent
+		 * @return this
+		 */
+		public Builder endpoints(Endpoints endpoints) {
+			if (endpoints == null) {
+				throw new IllegalArgumentException("Endpoints cannot be null");
+			}
+
+			this.endpoints = endpoints;
+			return this;
+		}
+
+		/**
+		 * @param effectsDatabase snapshot consulted before the cache and the results pages, or null for none
+		 * @return this
+		 */
+		public Builder effectsDatabase(EffectsDatabase effectsDatabase) {
+			this.effectsDatabase = effectsDatabase;
+			return this;
+		}
+
+		/**
+		 * @param nationsDump starting stats of the nations it covers, or null for none
+		 * @return this
+		 */
+		public Builder nationsDump(NationsDump nationsDump) {
+			this.nationsDump = nationsDump;
+			return this;
+		}
+
+		/**
+		 * @param pinStore session pins shared by every Regent of the context, or null to keep them per Regent
+		 * @return this
+		 */
+		public Builder pinStore(PinStore pinStore) {
+			this.pinStore = pinStore;
+			return this;
+		}
+
+		/**
+		 * @param statsJournal journal every Regent of the context records to, or null for none
+		 * @return this
+		 */
+		public Builder statsJournal(StatsJournal statsJournal) {
+			this.statsJournal = statsJournal;
+			return this;
+		}
+
+		public RegentContext build() {
+			return new RegentContext(this, false);
+		}
+	}
+}
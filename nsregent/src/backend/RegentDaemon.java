@@ -0,0 +1,221 @@
+package backend;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long running scheduler that answers each nation's issues as they arrive.
+ *
+ * Every nation keeps its own IssueHandler and schedule state. A cycle authenticates (which also reads
+ * the nextissuetime shard), answers whatever is pending, and the nation then sleeps until its next
+ * issue is due plus jitter (see IssueSchedule), so a quiet nation costs one request per issue instead
+ * of one per poll. Due nations run on virtual threads, one cycle per nation at a time; the shared
+ * context keeps the whole fleet under the rate limit.
+ */
+public class RegentDaemon implements AutoCloseable {
+	private final RegentContext context;
+	private final String appContact;
+	private final StatVector targetStats;
+	private final IssueSchedule schedule;
+	private final ScheduledExecutorService timer;
+	private final ExecutorService workers;
+	private final Map<String, NationTask> nations = new ConcurrentHashMap<>();
+	private volatile boolean closed;
+
+	/**
+	 * pre: (context != null && appContact != null && !appContact.isBlank())
+	 * pre: (targetStats != null && !targetStats.isEmpty() && schedule != null)
+	 * post: a running daemon without nations
+	 *
+	 * @param context services shared by every nation
+	 * @param appContact contact sent in the User-Agent of every request
+	 * @param targetStats target statistics shared by every nation
+	 * @param schedule sleep policy between cycles
+	 */
+	public RegentDaemon(RegentContext context, String appContact, Map<String, Double> targetStats, IssueSchedule schedule) {
+		if (context == null || appContact == null || appContact.isBlank()
+				|| targetStats == null || targetStats.isEmpty() || schedule == null) {
+			throw new IllegalArgumentException("Context, contact, target stats and schedule cannot be null or empty");
+		}
+
+		this.context = context;
+		this.appContact = appContact;
+		this.targetStats = StatVector.fromMap(targetStats);
+		this.schedule = schedule;
+		this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "nsregent-daemon");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.workers = Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	/**
+	 * Adds a nation; its first cycle starts within the schedule's jitter.
+	 *
+	 * pre: (nation != null) && the nation is not already scheduled
+	 *
+	 * @param nation
+	 */
+	public void addNation(NationCredentials nation) {
+		if (nation == null) {
+			throw new IllegalArgumentException("Nation cannot be null");
+		}
+
+		NationTask task = new NationTask(nation,
+				new IssueHandler(nation.nationName(), nation.password(), appContact, context));
+		if (nations.putIfAbsent(key(nation.nationName()), task) != null) {
+			throw new IllegalArgumentException("Nation is already scheduled: " + nation.nationName());
+		}
+
+		scheduleNext(task, schedule.initialDelay(ThreadLocalRandom.current().nextDouble()));
+	}
+
+	/**
+	 * Stops scheduling a nation. A cycle already running is allowed to finish.
+	 *
+	 * @param nationName
+	 * @return true if the nation was scheduled
+	 */
+	public boolean removeNation(String nationName) {
+		NationTask task = (nationName == null) ? null : nations.remove(key(nationName));
+		if (task == null) {
+			return false;
+		}
+
+		synchronized (task) {
+			task.removed = true;
+			if (task.future != null) {
+				task.future.cancel(false);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the schedule state of every nation.
+	 *
+	 * @return statuses in no particular order
+	 */
+	public List<NationStatus> status() {
+		List<NationStatus> statuses = new ArrayList<>(nations.size());
+
+		for (NationTask task : nations.values()) {
+			synchronized (task) {
+				statuses.add(new NationStatus(task.credentials.nationName(), task.cycles, task.failures,
+						task.lastStatus, task.lastRun, task.nextRun));
+			}
+		}
+
+		return statuses;
+	}
+
+	/**
+	 * Stops all scheduling and interrupts running cycles.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		timer.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	private void scheduleNext(NationTask task, Duration delay) {
+		synchronized (task) {
+			if (closed || task.removed) {
+				return;
+			}
+
+			task.nextRun = Instant.now().plus(delay);
+			try {
+				task.future = timer.schedule(() -> startCycle(task), delay.toNanos(), TimeUnit.NANOSECONDS);
+			} catch (RejectedExecutionException e) {
+				// closed concurrently
+			}
+		}
+	}
+
+	private void startCycle(NationTask task) {
+		try {
+			workers.execute(() -> runCycle(task));
+		} catch (RejectedExecutionException e) {
+			// closed concurrently
+		}
+	}
+
+	private void runCycle(NationTask task) {
+		String status;
+
+		try {
+			status = task.handler.handleIssues(targetStats);
+		} catch (InterruptedException e) {
+			return;
+		} catch (Exception e) {
+			status = "error: " + e.getMessage();
+		}
+
+		int failures;
+		synchronized (task) {
+			task.cycles++;
+			task.lastRun = Instant.now();
+			task.lastStatus = status;
+			task.failures = "success".equals(status) ? 0 : task.failures + 1;
+			failures = task.failures;
+		}
+
+		context.metrics().increment(Metrics.DAEMON_CYCLES);
+		if (failures > 0) {
+			context.metrics().increment(Metrics.DAEMON_FAILURES);
+		}
+
+		scheduleNext(task, schedule.delay(task.handler.getNextIssueTime(), Instant.now(), failures,
+				ThreadLocalRandom.current().nextDouble()));
+	}
+
+	private static String key(String nationName) {
+		return nationName.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+	}
+
+	/**
+	 * Schedule state of one nation.
+	 *
+	 * @param nationName
+	 * @param cycles completed cycles
+	 * @param consecutiveFailures failed cycles since the last success
+	 * @param lastStatus value returned by the last handleIssues, or "error: <message>"; null before the first cycle
+	 * @param lastRun end of the last cycle, null before the first cycle
+	 * @param nextRun when the next cycle is due
+	 */
+	public record NationStatus(String nationName, int cycles, int consecutiveFailures, String lastStatus,
+			Instant lastRun, Instant nextRun) {
+	}
+
+	private static final class NationTask {
+		private final NationCredentials credentials;
+		private final IssueHandler handler;
+		private ScheduledFuture<?> future;
+		private boolean removed;
+		private int cycles;
+		private int failures;
+		private String lastStatus;
+		private Instant lastRun;
+		private Instant nextRun;
+
+		private NationTask(NationCredentials credentials, IssueHandler handler) {
+			this.credentials = credentials;
+			this.handler = handler;
+		}
+	}
+}
@@ -1,31 +1,48 @@
 package backend;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger.Level;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.net.http.HttpResponse.BodyHandler;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class RegentImpl {
 	private static final String APP_NAME = "NSRegent";
+	private static final System.Logger LOG = System.getLogger(RegentImpl.class.getName());
+	private final HttpTransport transport;
+	private final IssueEffectCache effectCache;
+	private final EffectsDatabase effectsDatabase;
+	private final NationsDump nationsDump;
+	private final RegentContext context;
+	private final StatsJournal statsJournal;
+	private final Endpoints endpoints;
+	private final Metrics metrics;
+	private final IssuePlanner planner;
+	private final IssuePlanner rangeAwarePlanner;
+	private volatile OptionScorer scorer = new OptionScorer(OptionScorer.Mode.MEAN);
 	private String appContact;
 	private String nationName;
 	private String nationPassword;
 	private String nationPin;
-	private Integer requestCounter;
+	private int requestCount;
+	private NationShards shards;
+	private NationState nationState;
+	private Instant nextIssueTime;
+	private int resyncInterval;
+	private int[] trackedCensusScales;
+	private volatile IssueListener issueListener;
 
 	/**
 	 * pre: (nationName != null && nationPassword != null && appContact != null)
@@ -37,14 +54,41 @@ public class RegentImpl {
 	 * @param appContact
 	 */
 	public RegentImpl(String nationName, String nationPassword, String appContact) {
+		this(nationName, nationPassword, appContact, RegentContext.defaults());
+	}
+	
+	/**
+	 * pre: (nationName != null && nationPassword != null && appContact != null && context != null)
+	 * pre: (!nationName.isBlank() && !nationPassword.isBlank() && !appContact.isBlank())
+	 * post: instance variable state is set with usable values, requests go through the context's services.
+	 * 
+	 * @param nationName
+	 * @param nationPassword
+	 * @param appContact
+	 * @param context shared transport and caches
+	 */
+	public RegentImpl(String nationName, String nationPassword, String appContact, RegentContext context) {
+		assert context != null;
 		assert !nationName.equals(null) && !nationPassword.equals(null) && !appContact.equals(null);
 		assert !nationName.isBlank() && !nationPassword.isBlank() && !appContact.isBlank();
 		
+		this.transport = context.transport();
+		this.effectCache = context.effectCache();
+		this.effectsDatabase = context.effectsDatabase();
+		this.nationsDump = context.nationsDump();
+		this.context = context;
+		this.statsJournal = context.statsJournal();
+		this.endpoints = context.endpoints();
+		this.metrics = context.metrics();
+		this.planner = new IssuePlanner();
+		this.rangeAwarePlanner = new IssuePlanner(IssuePlanner.DEFAULT_BEAM_WIDTH, IssuePlanner.EXHAUSTIVE_LIMIT, true);
 		this.appContact = appContact;
 		this.nationName = nationName;
 		this.nationPin = "";
 		this.nationPassword = nationPassword;
-		this.requestCounter = 0;
+		this.requestCount = 0;
+		this.resyncInterval = 0;
+		this.trackedCensusScales = new int[] {CensusScale.ECONOMIC_FREEDOM.id()};
 	}
 	
 
@@ -53,7 +97,7 @@ public class RegentImpl {
 	 * 
 	 * pre: targetStats cannot be null or empty
 	 * 
-	 * @param targetStats Map containing target statistics to aim for
+	 * @param targetStats Map containing target statistics to aim for, keyed by census name
 	 * @return String indicating success or error status
 	 * @throws IOException if there's an error with the HTTP requests
 	 * @throws InterruptedException if any HTTP request is interrupted
@@ -64,73 +108,140 @@ public class RegentImpl {
 		assert nationsTargetStats.size() > 0 && nationsTargetStats.equals(null);
 		assert !nationsTargetStats.containsKey(null) && !nationsTargetStats.containsValue(null);
 		
+		return handleIssues(StatVector.fromMap(nationsTargetStats));
+	}
+	
+	/**
+	 * Main function to handle all pending issues.
+	 * Effects for every pending issue are fetched concurrently as soon as the issue ids are known,
+	 * and each decision waits only for its own issue's effects. It is planned together with the
+	 * issues still to come whose effects have already arrived (see IssuePlanner); the plan is redone
+	 * before every answer, since actual effects differ from the mwq means.
+	 * 
+	 * pre: targetStats cannot be null or empty
+	 * 
+	 * @param targetStats target statistics to aim for
+	 * @return String indicating success or error status
+	 * @throws IOException if there's an error with the HTTP requests
+	 * @throws InterruptedException if any HTTP request is interrupted
+	 */
+	public String handleIssues(StatVector targetStats) throws IOException, InterruptedException {
+		if (targetStats == null || targetStats.isEmpty()) {
+			throw new IllegalArgumentException("Target stats cannot be null or empty");
+		}
+		
+		long cycleStart = System.nanoTime();
+		trackedCensusScales = trackedCensusScales(targetStats);
+		
 	    Boolean authSuccess = authenticateNation();
 	    if (!authSuccess) {
 	        return "authentication failed";
 	    }
 	    
 	    List<Integer> issueIds = getIssueIds();
-	    System.out.println(issueIds);
+	    LOG.log(Level.DEBUG, "{0}: pending issues {1}", nationName, issueIds);
+	    
+	    List<CompletableFuture<OptionMatrix>> prefetched = new ArrayList<>();
+	    for (int id : issueIds) {
+	    	prefetched.add(fetchIssueOptions(id));
+	    }
 	    
-        for (int id : issueIds) {
-        	Map<Integer, Map<String, Double>> issueOptions = getIssueOptions(id);
+	    List<OptionMatrix> pendingOptions = new ArrayList<>();
+        for (int i = 0; i < issueIds.size(); i++) {
+        	int id = issueIds.get(i);
+        	OptionMatrix issueOptions = awaitIssueOptions(prefetched.get(i));
+        	
+        	pendingOptions.clear();
+        	pendingOptions.add(issueOptions);
+        	for (CompletableFuture<OptionMatrix> later : prefetched.subList(i + 1, prefetched.size())) {
+        		if (later.isDone() && !later.isCompletedExceptionally()) {
+        			pendingOptions.add(later.join());
+        		}
+        	}
 
-        	Map<String, Double> nationsCurrentStats = getNationsCurrentStats();
-        	int bestOption = chooseBestOption(nationsCurrentStats, nationsTargetStats, issueOptions);
-        	System.out.println("Current stats: " 
-        			+ nationsCurrentStats 
-        			+ "Issue options: " 
-        			+ issueOptions 
-        			+ "Best option: " 
-        			+ bestOption 
-        			+ "\n");
+        	StatVector nationsCurrentStats = getNationsCurrentStats();
+        	if (statsJournal != null) {
+        		statsJournal.recordSnapshot(nationName, nationsCurrentStats);
+        	}
+        	int bestOption = planNextOption(nationsCurrentStats, targetStats, pendingOptions);
+        	LOG.log(Level.DEBUG, "{0}: issue {1} current stats {2}, options {3}, best option {4}",
+        			nationName, id, nationsCurrentStats, issueOptions, bestOption);
         	
-        	boolean executionSucceeded = executeOption(id, bestOption);
+        	boolean executionSucceeded = executeOption(id, bestOption, issueOptions);
         	
         	while (!executionSucceeded) {
-        		issueOptions.remove(bestOption);
+        		issueOptions = issueOptions.without(bestOption);
+        		pendingOptions.set(0, issueOptions);
         		
         		if (!issueOptions.isEmpty()) {
-        			bestOption = chooseBestOption(nationsCurrentStats, nationsTargetStats, issueOptions);
-        			executionSucceeded = executeOption(id, bestOption);
+        			bestOption = planNextOption(nationsCurrentStats, targetStats, pendingOptions);
+        			executionSucceeded = executeOption(id, bestOption, issueOptions);
         		} else {
+        			metrics.recordSince(Metrics.CYCLE, cycleStart);
         			return "failure to execute";
         		}
         	}
         }
         
-        System.out.printf("%n%n Instance Request Count: %d %n%n", requestCounter);
+        metrics.recordSince(Metrics.CYCLE, cycleStart);
+        LOG.log(Level.DEBUG, "{0}: cycle finished after {1} requests", nationName, requestCount);
         
 	    return "success";
 	}
 	
 	/**
-	 * Returns true if POST succeeds && response.body() doesn't include any failure message
+	 * Returns true if the request succeeds && response doesn't include any failure message.
+	 * Authenticates with a single combined request for every shard the cycle needs
+	 * (issues, freedom scores, tracked census scales, next issue time), so the parsed response
+	 * also seeds getIssueIds(), getNationsCurrentStats() and getNextIssueTime().
+	 * A nation without local state that the context's nations dump covers starts from the dump
+	 * instead, and only issues and next issue time are requested.
+	 * The pin of an earlier cycle, or of the context's PinStore, is used when there is one, so the
+	 * password is only sent once the pin has expired (see sendAuthenticated()).
+	 * 
+	 * post: shards holds the nation's issues and current stats when authSuccess
 	 * 
 	 * @return authSuccess
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
 	private Boolean authenticateNation() throws IOException, InterruptedException {
-		String url = String.format("https://www.nationstates.net/cgi-bin/api.cgi?nation=%s&q=issues", nationName);
-		String credential = "X-Password";
+		NationState seeded = (nationState == null) ? seededState() : null;
+		ShardRequest shardRequest = ShardRequest.nation(nationName).shard("issues");
+		if (seeded == null) {
+			shardRequest.shard("freedomscores").census(trackedCensusScales);
+		}
+		shardRequest.shard("nextissuetime");
+		// first use opens the default context's store, always on the cycle's thread
+		PinStore pinStore = context.pinStore();
+		if (nationPin.isEmpty() && pinStore != null) {
+			String storedPin = pinStore.pin(nationName);
+			nationPin = (storedPin == null) ? "" : storedPin;
+		}
 		
-		HttpResponse<String> response = getRequest(url, credential);
+		HttpResponse<InputStream> response = getRequest(Metrics.SHARDS, shardRequest.toUrl(endpoints.apiUrl()), getCredentialType(), HttpResponse.BodyHandlers.ofInputStream());
 		Boolean authSuccess;
 		
-	    if (response.body().contains("Unknown nation") || response.body().contains("Authentication Failed")) {
-	    	authSuccess = false;
-	    } else {
-	    	authSuccess = true;
-	    	nationPin = response.headers().firstValue("X-Pin").orElse("");
-	    	System.out.printf("Authentication successful. PIN: %s%n", nationPin);
-	    }
+		try (InputStream body = response.body()) {
+		    if (response.statusCode() != 200) {
+		    	authSuccess = false;
+		    } else {
+		    	authSuccess = true;
+		    	long parseStart = System.nanoTime();
+		    	shards = ApiResponseParser.parseShards(body, shardRequest.censusScales());
+		    	metrics.recordSince(Metrics.PARSE_SHARDS, parseStart);
+		    	nationState = (seeded != null) ? seeded : toNationState(shards);
+		    	nextIssueTime = (shards.nextIssueTime() > 0) ? Instant.ofEpochSecond(shards.nextIssueTime()) : null;
+		    	LOG.log(Level.DEBUG, "{0}: authentication successful", nationName);
+		    }
+		}
 		
 	    return authSuccess;
 	}
 	
 	/**
-	 * Gets a list of all issue ids using the ns api.
+	 * Gets a list of all issue ids using the ns api, reusing the shards fetched during
+	 * authentication when available.
 	 * 
 	 * post: issueIds can be empty if no issues are found
 	 * post: (issueIds.size() <= 5)
@@ -140,129 +251,265 @@ public class RegentImpl {
 	 * @throws InterruptedException
 	 */
 	private List<Integer> getIssueIds() throws IOException, InterruptedException {
-	    String issuesUrl = String.format("https://www.nationstates.net/cgi-bin/api.cgi?nation=%s&q=issues", nationName);
-	    HttpResponse<String> response = getRequest(issuesUrl, getCredentialType());
-	    List<Integer> issueIds = new ArrayList<>();
-	    
-	    Pattern pattern = Pattern.compile("<ISSUE id=\"(\\d+?)\">");
-	    Matcher matcher = pattern.matcher(response.body());
-	    
-	    while (matcher.find()) {
-	    	issueIds.add(Integer.parseInt(matcher.group(1)));
+		if (shards != null) {
+			return shards.issueIds();
+		}
+		
+	    String issuesUrl = ShardRequest.nation(nationName).shard("issues").toUrl(endpoints.apiUrl());
+	    try (InputStream body = getRequest(Metrics.SHARDS, issuesUrl, getCredentialType(),
+	    		HttpResponse.BodyHandlers.ofInputStream()).body()) {
+	    	long parseStart = System.nanoTime();
+	    	List<Integer> issueIds = ApiResponseParser.parseIssueIds(body);
+	    	metrics.recordSince(Metrics.PARSE_SHARDS, parseStart);
+	    	return issueIds;
 	    }
-	    
-	    return issueIds;
 	}
 	
 	/**
-	 * Gets effects of each option for an issue.
+	 * Starts fetching the effects of each option for an issue, from the effects database (unless it is
+	 * stale, see EffectsDatabase.MAX_AGE) or the effect cache when possible.
+	 * Pages are requested through HttpTransport.sendAsync, so every pending issue of a cycle is
+	 * fetched at once, and parsed by IssueEffectsParser on the transport's executor.
 	 * 
 	 * pre: issueId > 0
+	 * post: a fresh scrape is stored in the effect cache once the future completes
 	 * 
 	 * @param issueId: the ID of the issue to analyze.
-	 * @return Map containing option numbers and their effects: {option={category=effect}}
-	 * @throws IOException if there's an error fetching or parsing the page
+	 * @return future of the option numbers and their effects on each census scale, completed
+	 *         exceptionally with an IOException if the page can't be fetched
 	 */
-	 private Map<Integer, Map<String, Double>> getIssueOptions(int issueId) throws IOException {
-	    Map<Integer, Map<String, Double>> issueOptions = new HashMap<>();
-	    String url = String.format("http://www.mwq.dds.nl/ns/results/%d.html", issueId);    
-	    Document doc = Jsoup.connect(url).get();
-	    
-	    // get all rows except the header
-	    Elements rows = doc.select("tr:gt(0)");
+	private CompletableFuture<OptionMatrix> fetchIssueOptions(int issueId) {
+	    OptionMatrix stored = (effectsDatabase == null || effectsDatabase.isStale()) ? null : effectsDatabase.get(issueId);
+	    if (stored != null) {
+	    	metrics.increment(Metrics.EFFECTS_DB_HITS);
+	    	return CompletableFuture.completedFuture(stored);
+	    }
 	    
-	    for (Element row : rows) {
-	        Elements columns = row.select("td");
-	        if (columns.isEmpty()) continue;
-	        
-	        // get option number from the first column & convert to 0-based index (ns api takes option-1).
-	        int optionNumber = Integer.parseInt(String.valueOf(columns.get(0).text().charAt(0))) - 1;
-	        Map<String, Double> optionEffects = new HashMap<>();
-	        
-	        // second column holds option effects
-            Elements divs = columns.get(1).select("div");
-            for (Element div : divs) {
-                String text = div.text();
-                
-                // parses category and mean score
-                try {
-                	Pattern pattern = Pattern.compile("^[+-]?\\d*(\\.\\d+)?\\s+to\\s[+-]?\\d*(\\.\\d+)?\\s+([\\w\\s]+)\\s+\\(mean\\s([+-]?\\d+(\\.\\d+))\\)$");
-                	Matcher matcher = pattern.matcher(text);
-                	
-                	if (matcher.find()) {
-	                    String category = matcher.group(3).trim();;    // "Civil Rights" or "Political Freedom"
-	                    Double meanEffect = Double.parseDouble(matcher.group(4));
-	
-	                    switch (category) {
-	                        case "Civil Rights":
-	                        case "Economic Freedom":
-	                        case "Political Freedom":
-	                            optionEffects.put(category, meanEffect);
-	                            break;
-	                    }
-                	}
-
-                } catch (Exception e) {
-                    // skips bad entries
-                    continue;
-                }
-	        }
-	        
-	        optionEffects.putIfAbsent("Civil Rights", 0.0);
-	        optionEffects.putIfAbsent("Economic Freedom", 0.0);
-	        optionEffects.putIfAbsent("Political Freedom", 0.0);
-	        
-	        issueOptions.put(optionNumber, optionEffects);
+	    OptionMatrix cached = effectCache.get(issueId);
+	    if (cached != null) {
+	    	metrics.increment(Metrics.CACHE_HITS);
+	    	return CompletableFuture.completedFuture(cached);
 	    }
+	    metrics.increment(Metrics.CACHE_MISSES);
 	    
-	    return issueOptions;
+	    String url = endpoints.resultsUrl(issueId);
+	    
+	    HttpRequest request = transport.configure(HttpRequest.newBuilder())
+	    		.uri(URI.create(url))
+	    		.header("User-Agent", String.format("%s | Contact: %s", APP_NAME, appContact))
+	    		.GET()
+	    		.build();
+	    
+	    return transport.sendAsync(Metrics.RESULTS_PAGE, request, HttpResponse.BodyHandlers.ofByteArray())
+	    		.thenApply(response -> {
+	    			if (response.statusCode() != 200) {
+	    				throw new CompletionException(new IOException(String.format(
+	    						"Failed to fetch effects for issue %d: HTTP %d", issueId, response.statusCode())));
+	    			}
+	    			
+	    			long parseStart = System.nanoTime();
+	    			OptionMatrix issueOptions = IssueEffectsParser.parse(new String(response.body(), StandardCharsets.UTF_8), url);
+	    			metrics.recordSince(Metrics.PARSE_RESULTS_PAGE, parseStart);
+	    			if (!issueOptions.isEmpty()) {
+	    				effectCache.put(issueId, issueOptions);
+	    			}
+	    			return issueOptions;
+	    		});
+	}
+	
+	/**
+	 * Blocks until a prefetched issue's effects are ready.
+	 * 
+	 * @param issueOptions future returned by fetchIssueOptions
+	 * @return option numbers and their mean effect on each census scale
+	 * @throws IOException if there's an error fetching or parsing the page
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static OptionMatrix awaitIssueOptions(CompletableFuture<OptionMatrix> issueOptions)
+			throws IOException, InterruptedException {
+		try {
+			return issueOptions.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException io) {
+				throw io;
+			}
+			if (cause instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			throw new IOException(cause);
+		}
 	}
 	
 
 	/**
-	 * Retrieves current nation scores; civil rights, political freedom, and economic freedom.
+	 * Retrieves current nation scores; civil rights, political freedom, economic freedom and
+	 * any other census scale in the last target.
+	 * Served from the local nation state, which is seeded by the authentication request and
+	 * updated from each executed option. A combined freedomscores+census request is only made
+	 * when there is no state yet or the state asks for a re-sync.
 	 * 
-	 * post: a non null or empty map {category=score} representing the nations current scores.
+	 * post: a non null vector representing the nations current scores, empty if no match is found.
 	 * 
-	 * @return Map containing the current statistics, or null if no match is found
+	 * @return the current statistics
 	 * @throws IOException if there's an error with the HTTP request
 	 * @throws InterruptedException if the HTTP request is interrupted
 	 */
-	public Map<String, Double> getNationsCurrentStats() throws IOException, InterruptedException {
-        Map<String, Double> nationsCurrentStats = new HashMap<>();
-        
-	    String freedomScoresUrl = String.format("https://www.nationstates.net/cgi-bin/api.cgi?nation=%s&q=freedomscores&v=12", nationName);
-	    String economicFreedomScoreUrl = String.format("https://www.nationstates.net/cgi-bin/api.cgi?nation=%s&q=census;scale=48&v=12", nationName);
-	    
-	    HttpResponse<String> freedomScoresResponse = getRequest(freedomScoresUrl, getCredentialType());
-	    HttpResponse<String> economicFreedomScore = getRequest(economicFreedomScoreUrl, getCredentialType());
-	    
-	    Pattern freedomScoresPattern = Pattern.compile("<CIVILRIGHTS>(.*?)</CIVILRIGHTS>\\s*<ECONOMY>(.*?)</ECONOMY>\\s*<POLITICALFREEDOM>(.*?)</POLITICALFREEDOM>");
-	    Pattern economicFreedomPattern = Pattern.compile("<SCALE id=\"48\">\\s*<SCORE>(.*?)</SCORE>");
+	public StatVector getNationsCurrentStats() throws IOException, InterruptedException {
+		if (nationState == null || nationState.needsResync()) {
+			ShardRequest shardRequest = ShardRequest.nation(nationName)
+					.shard("freedomscores")
+					.census(trackedCensusScales);
+			
+			try (InputStream body = getRequest(Metrics.SHARDS, shardRequest.toUrl(endpoints.apiUrl()), getCredentialType(),
+					HttpResponse.BodyHandlers.ofInputStream()).body()) {
+				long parseStart = System.nanoTime();
+				NationShards currentShards = ApiResponseParser.parseShards(body, shardRequest.censusScales());
+				metrics.recordSince(Metrics.PARSE_SHARDS, parseStart);
+				nationState = toNationState(currentShards);
+			}
+		}
+		
+	    return (nationState == null) ? new StatVector() : nationState.stats();
+	}
+	
+	/**
+	 * Sets how many executed options the local stats may absorb before a full re-fetch.
+	 * 
+	 * pre: resyncInterval >= 0, 0 (default) only re-fetches when an answer reports no rankings
+	 * 
+	 * @param resyncInterval
+	 */
+	public void setResyncInterval(int resyncInterval) {
+		if (resyncInterval < 0) {
+			throw new IllegalArgumentException("Resync interval cannot be negative");
+		}
+		
+		this.resyncInterval = resyncInterval;
+	}
+	
+	/**
+	 * Builds the nation state from freedomscores and census shards.
+	 * Civil rights and political freedom come from freedomscores, every other scale from census.
+	 * 
+	 * post: null if a shard is missing civil rights, political freedom or economic freedom
+	 * 
+	 * @param shards
+	 * @return nationState
+	 */
+	private NationState toNationState(NationShards shards) {
+		Double civilRights = shards.freedomScores().get("Civil Rights");
+	    Double politicalFreedom = shards.freedomScores().get("Political Freedom");
 	    
-	    Matcher freedomScores = freedomScoresPattern.matcher(freedomScoresResponse.body());
-	    Matcher economicFreedoms = economicFreedomPattern.matcher(economicFreedomScore.body());
+	    if (civilRights == null || politicalFreedom == null
+	    		|| !shards.censusScores().containsKey(CensusScale.ECONOMIC_FREEDOM.id())) {
+	    	return null;
+	    }
 	    
-	    if (freedomScores.find() && economicFreedoms.find()) {
-	        double civilRights = Double.parseDouble(freedomScores.group(1));
-	        double politicalFreedom = Double.parseDouble(freedomScores.group(3));
-	        double economicFreedom = Double.parseDouble(economicFreedoms.group(1));
-	        
-	        nationsCurrentStats.put("Civil Rights", civilRights);
-	        nationsCurrentStats.put("Economic Freedom", economicFreedom);
-	        nationsCurrentStats.put("Political Freedom", politicalFreedom);
+	    StatVector stats = new StatVector();
+	    for (Map.Entry<Integer, Double> score : shards.censusScores().entrySet()) {
+	    	CensusScale scale = CensusScale.fromId(score.getKey());
+	    	if (scale != null) {
+	    		stats.set(scale, score.getValue());
+	    	}
 	    }
-	        
-	    return nationsCurrentStats;
+        stats.set(CensusScale.CIVIL_RIGHTS, civilRights);
+        stats.set(CensusScale.POLITICAL_FREEDOM, politicalFreedom);
+        
+        return new NationState(stats, resyncInterval);
+	}
+	
+	/**
+	 * Builds the nation state from the context's nations dump.
+	 * 
+	 * post: null if there is no fresh dump, it does not cover the nation or lacks a tracked scale
+	 * 
+	 * @return nationState
+	 */
+	private NationState seededState() {
+		if (nationsDump == null || nationsDump.isStale()) {
+			return null;
+		}
+		
+		StatVector stats = nationsDump.stats(nationName);
+		if (stats == null) {
+			return null;
+		}
+		for (int scaleId : trackedCensusScales) {
+			CensusScale scale = CensusScale.fromId(scaleId);
+			if (scale == null || !stats.has(scale)) {
+				return null;
+			}
+		}
+		
+		LOG.log(Level.DEBUG, "{0}: starting stats seeded from the nations dump of {1}", nationName, nationsDump.dumpedAt());
+		return new NationState(stats, resyncInterval);
+	}
+	
+	/**
+	 * Returns the census scales to request for a target: economic freedom plus every targeted
+	 * scale that freedomscores does not already cover.
+	 * 
+	 * @param targetStats
+	 * @return census ids
+	 */
+	private static int[] trackedCensusScales(StatVector targetStats) {
+		List<Integer> scaleIds = new ArrayList<>();
+		scaleIds.add(CensusScale.ECONOMIC_FREEDOM.id());
+		
+		for (CensusScale scale : CensusScale.values()) {
+			if (targetStats.has(scale) && scale != CensusScale.ECONOMIC_FREEDOM
+					&& scale != CensusScale.CIVIL_RIGHTS && scale != CensusScale.POLITICAL_FREEDOM) {
+				scaleIds.add(scale.id());
+			}
+		}
+		
+		return scaleIds.stream().mapToInt(Integer::intValue).toArray();
 	}
 		
+	/**
+	 * Plans all remaining issues together and returns the option for the first of them.
+	 * Later issues without known effects are left out of the lookahead.
+	 * MEAN and EXPECTED scoring plan with lookahead (EXPECTED through the range aware planner);
+	 * WORST_CASE and MONTE_CARLO do not add up across issues, so they score the current issue alone.
+	 * 
+	 * pre: remainingOptions.get(0) is not empty
+	 * 
+	 * @param currentStats The current statistics of the nation
+	 * @param targetStats The target statistics to aim for
+	 * @param remainingOptions options of the issue being answered followed by the issues after it
+	 * @return The option number for the issue being answered
+	 */
+	private int planNextOption(StatVector currentStats, StatVector targetStats, List<OptionMatrix> remainingOptions) {
+		List<OptionMatrix> lookahead = new ArrayList<>();
+		lookahead.add(remainingOptions.get(0));
+		
+		for (OptionMatrix options : remainingOptions.subList(1, remainingOptions.size())) {
+			if (!options.isEmpty()) {
+				lookahead.add(options);
+			}
+		}
+		
+		long decisionStart = System.nanoTime();
+		OptionScorer optionScorer = scorer;
+		int option = switch (optionScorer.mode()) {
+			case MEAN -> planner.plan(currentStats, targetStats, lookahead).options()[0];
+			case EXPECTED -> rangeAwarePlanner.plan(currentStats, targetStats, lookahead).options()[0];
+			case WORST_CASE, MONTE_CARLO -> optionScorer.bestOption(currentStats, targetStats, lookahead.get(0));
+		};
+		metrics.recordSince(Metrics.DECISION, decisionStart);
+		
+		return option;
+	}
+	
 	/**
 	 * Chooses the option that gets closest to target stats using distance formula.
 	 * Eg: sqrt((X1-Y1)^2 + (Xn-Yn)^2);
+	 * Only scales present in both currentStats and targetStats are scored.
 	 * 
-	 * pre: !(currentStats.equals(null)) && is well formed {category=score}
-	 * pre: !(targetStats.equals(null)) && is well formed {category=score}
-	 * pre: !(options.equals(null)) && sub map is not null. {option={category=score}}
+	 * pre: !(currentStats.equals(null)) && !currentStats.isEmpty()
+	 * pre: !(targetStats.equals(null)) && !targetStats.isEmpty()
+	 * pre: !(options.equals(null)) && !options.isEmpty()
 	 * 
 	 * post: Returns the option that brings the user closest to their goal scores.
 	 * 
@@ -270,37 +517,33 @@ public class RegentImpl {
 	 * @param targetStats The target statistics to aim for
 	 * @param options Available options and their effects
 	 * @return The option number that minimizes distance to target stats
-	 * @throws IllegalArgumentException if input maps are null or empty
+	 * @throws IllegalArgumentException if inputs are null or empty
 	 */
-	public int chooseBestOption(Map<String, Double> currentStats, Map<String, Double> targetStats, Map<Integer, Map<String, Double>> options) {
+	public int chooseBestOption(StatVector currentStats, StatVector targetStats, OptionMatrix options) {
 	    if (currentStats == null || targetStats == null || options == null ||
 	        currentStats.isEmpty() || targetStats.isEmpty() || options.isEmpty()) {
-	        throw new IllegalArgumentException("Input maps cannot be null or empty");
+	        throw new IllegalArgumentException("Inputs cannot be null or empty");
 	    }
 	    
+	    int[] scales = currentStats.sharedScales(targetStats);
+	    double[] current = currentStats.values();
+	    double[] target = targetStats.values();
 	    double bestDistance = Double.POSITIVE_INFINITY;
 	    int bestOption = 0;
 	    
-	    for (Map.Entry<Integer, Map<String, Double>> entry : options.entrySet()) {
-	        int optionNum = entry.getKey();
-	        Map<String, Double> effects = entry.getValue();
+	    for (int i = 0; i < options.optionCount(); i++) {
 	        double distance = 0.0;
 	        
-	        for (String category : currentStats.keySet()) {
-	            double currentValue = currentStats.get(category);
-	            
-	            double effectValue = effects.get(category);
-	            double currentValueWithEffect = currentValue + effectValue;
-	            double targetValue = targetStats.get(category);
-	            
-	            distance += Math.pow(currentValueWithEffect - targetValue, 2);
+	        for (int scale : scales) {
+	            double difference = current[scale] + options.effect(i, scale) - target[scale];
+	            distance += difference * difference;
 	        }
 	        
 //	        distance = Math.sqrt(distance);
 	        
 	        if (distance < bestDistance) {
 	            bestDistance = distance;
-	            bestOption = optionNum;
+	            bestOption = options.optionKey(i);
 	        }
 	    }
 	    
@@ -310,102 +553,246 @@ public class RegentImpl {
 	/**
 	 * Sends a post request with parameters to solve an issue.
 	 * Returns boolean dependent on successful option execution.
+	 * The census changes reported by the answer are applied to the local nation state, and the
+	 * decision is recorded in the context's journal next to the mean effects it expected.
 	 * 
 	 * pre: ((issueId >= 0) && (option >= 0))
 	 * post: successfulExecution == true if valid choice executed
 	 * 
 	 * @param issueId the ID of the issue
 	 * @param option the option number to submit
-	 * @return true if the issue was successfully completed, false if failed
-	 * @throws IOException if there's an error with the HTTP request
+	 * @param options effects of the issue's options, option among them
+	 * @return true if the issue was successfully completed, false if the option was an invalid choice
+	 * @throws IOException if there's an error with the HTTP request, or the answer failed for another reason
 	 * @throws InterruptedException if the HTTP request is interrupted
 	 */
-	private boolean executeOption(int issueId, int option) throws IOException, InterruptedException {
-	    String url = "https://www.nationstates.net/cgi-bin/api.cgi";
+	private boolean executeOption(int issueId, int option, OptionMatrix options) throws IOException, InterruptedException {
+	    String url = endpoints.apiUrl();
 	    String parameters = String.format("nation=%s&c=issue&issue=%d&option=%d", nationName, issueId, option);
 	    BodyPublisher payload = HttpRequest.BodyPublishers.ofString(parameters);
 	  
-	    HttpResponse<String> response = postRequest(url, getCredentialType(), payload);
-	    System.out.println("Execute option response: " + response.body());
+	    HttpResponse<InputStream> response = postRequest(Metrics.ISSUE_ANSWER, url, getCredentialType(), payload, HttpResponse.BodyHandlers.ofInputStream());
+	    IssueResult result;
+	    try (InputStream body = response.body()) {
+	    	long parseStart = System.nanoTime();
+	    	result = ApiResponseParser.parseIssueResult(body);
+	    	metrics.recordSince(Metrics.PARSE_ISSUE_ANSWER, parseStart);
+	    }
+	    
+	    boolean successfulExecution = result.succeeded();
+	    if (successfulExecution && nationState != null) {
+	    	nationState.apply(result);
+	    }
+	    if (statsJournal != null) {
+	    	statsJournal.recordDecision(nationName, Instant.now(), issueId, option, successfulExecution,
+	    			expectedEffects(options, option), reportedChanges(result));
+	    }
+	    LOG.log(Level.DEBUG, "{0}: option {1} for issue {2} {3}", nationName, option, issueId,
+	    		successfulExecution ? "executed successfully" : "was invalid");
+	    
+	    IssueListener listener = issueListener;
+	    if (listener != null) {
+	    	listener.issueAnswered(new IssueEvent(nationName, issueId, option, result.error(), result.censusChanges(),
+	    			requestCount, response.headers().firstValueAsLong("RateLimit-Remaining").orElse(-1), Instant.now()));
+	    }
 	    
-	    boolean successfulExecution = !response.body().contains("Invalid choice");
-	    System.out.println("Option " + option + " for issue " + issueId + 
-	        (successfulExecution ? " executed successfully" : " was invalid"));
+	    // only a rejected option is worth retrying with another, any other error would repeat for each
+	    if (!successfulExecution && !result.invalidChoice()) {
+	    	throw new IOException(String.format("Answering issue %d failed: %s", issueId, result.error()));
+	    }
 	        
 	    return successfulExecution;
 	}
 	
 	/**
-	 * Returns a response from the request receiver at a url using auth.
+	 * Returns the mean effects of an option, empty if options does not hold it.
+	 * 
+	 * @param options
+	 * @param option
+	 * @return effects
+	 */
+	private static StatVector expectedEffects(OptionMatrix options, int option) {
+		StatVector effects = new StatVector();
+		for (int i = 0; i < options.optionCount(); i++) {
+			if (options.optionKey(i) == option) {
+				for (CensusScale scale : CensusScale.values()) {
+					effects.set(scale, options.effect(i, scale.ordinal()));
+				}
+			}
+		}
+		return effects;
+	}
+	
+	/**
+	 * Returns the census changes an answer reported, keyed by scale.
+	 * 
+	 * @param result
+	 * @return changes
+	 */
+	private static StatVector reportedChanges(IssueResult result) {
+		StatVector changes = new StatVector();
+		for (Map.Entry<Integer, Double> change : result.censusChanges().entrySet()) {
+			CensusScale scale = CensusScale.fromId(change.getKey());
+			if (scale != null) {
+				changes.set(scale, change.getValue());
+			}
+		}
+		return changes;
+	}
+	
+	/**
+	 * Returns a response from the request receiver at a url using auth, with the body
+	 * delivered by bodyHandler (eg: as an InputStream for streaming parsers).
 	 * 
 	 * pre: (!url.equals(null) && (!url.isBlank()) && (must be a valid url)
 	 * pre: (!credential.equals(null) && !credential.isBlank()) && (must be either "X-Password || X-Pin")
+	 * pre: (!bodyHandler.equals(null))
 	 * 
-	 * post: increments requestCounter
-	 * post: HttpResponse response (can be null)
+	 * post: increments requestCount, records the request under endpoint in the context's metrics
+	 * post: blocks until the shared rate limiter allows the request
 	 * 
+	 * @param endpoint metrics endpoint name, eg: Metrics.SHARDS
 	 * @param url
 	 * @param credential
+	 * @param bodyHandler
 	 * @return response
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
-	private HttpResponse<String> getRequest(String url, String credential) throws IOException, InterruptedException {
-		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
-		
-		String headerKey = (credential == "X-Pin") ? "X-Pin" : "X-Password";
-		String headerValue = (headerKey == "X-Pin") ? nationPin : nationPassword;
-		
-		HttpRequest request = HttpRequest.newBuilder()
+	private <T> HttpResponse<T> getRequest(String endpoint, String url, String credential, BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		HttpRequest.Builder request = transport.configure(HttpRequest.newBuilder())
 		        .uri(URI.create(url))
-		        .header(headerKey, headerValue)
 		        .header("User-Agent", String.format("%s | Contact: %s", APP_NAME, appContact))
-		        .GET()
-		        .build();
-		
-		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		        .GET();
 		
-		requestCounter++;
-		return response;
+		return sendAuthenticated(endpoint, request, credential, bodyHandler);
 	}
 	
 	/**
-	 * Takes a payload and delivers it to a url address via POST request using auth headers.
-	 * Returns the reciever's response
+	 * Takes a payload and delivers it to a url address via POST request using auth headers,
+	 * with the receiver's response body delivered by bodyHandler.
 	 * 
 	 * pre: (!url.equals(null) && (!url.isBlank()) && (must be a valid url)
 	 * pre: (!credential.equals(null) && !credential.isBlank()) && (must be either "X-Password || X-Pin")
 	 * pre: (!payload.equals(null)) && payload is well formed
+	 * pre: (!bodyHandler.equals(null))
 	 * 
-	 * post: increments requestCounter
-	 * post: HttpResponse response (can be null)
+	 * post: increments requestCount, records the request under endpoint in the context's metrics
+	 * post: blocks until the shared rate limiter allows the request
 	 * 
+	 * @param endpoint metrics endpoint name, eg: Metrics.SHARDS
 	 * @param url
 	 * @param credential
 	 * @param payload
+	 * @param bodyHandler
 	 * @return response
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
-	private HttpResponse<String> postRequest(String url, String credential, BodyPublisher payload) throws IOException, InterruptedException {
-		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
-		
-		String headerKey = (credential == "X-Pin") ? "X-Pin" : "X-Password";
-		String headerValue = (headerKey == "X-Pin") ? nationPin : nationPassword;
-		
-		HttpRequest request = HttpRequest.newBuilder()
+	private <T> HttpResponse<T> postRequest(String endpoint, String url, String credential, BodyPublisher payload, BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		HttpRequest.Builder request = transport.configure(HttpRequest.newBuilder())
 		        .uri(URI.create(url))
-		        .header(headerKey, headerValue)
 		        .header("User-Agent", String.format("%s | Contact: %s", APP_NAME, appContact))
-		        .POST(payload)
-		        .build();
+		        .POST(payload);
+		
+		return sendAuthenticated(endpoint, request, credential, bodyHandler);
+	}
+	
+	/**
+	 * Sends an API request with the nation's credential. A 403 to a request using the pin means
+	 * NationStates has expired it: the pin is forgotten and the request is sent once more with the
+	 * password (a 403 means nothing was done, so this is safe for issue answers too).
+	 * A pin returned by a password login is kept, and shared through the context's PinStore.
+	 * 
+	 * post: increments requestCount per request sent, records them under endpoint in the context's metrics
+	 * post: blocks until the shared rate limiter allows each request
+	 * 
+	 * @param endpoint metrics endpoint name
+	 * @param request request without credential headers
+	 * @param credential "X-Pin" or "X-Password"
+	 * @param bodyHandler
+	 * @return response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private <T> HttpResponse<T> sendAuthenticated(String endpoint, HttpRequest.Builder request, String credential, BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		boolean usingPin = "X-Pin".equals(credential) && !nationPin.isEmpty();
+		PinStore pinStore = context.pinStore();
+		HttpResponse<T> response;
+		
+		if (usingPin) {
+			// the body of a rejected pin is never read, so it is discarded rather than handed back
+			response = transport.sendApi(endpoint, request.copy().setHeader("X-Pin", nationPin).build(),
+					info -> (info.statusCode() == 403) ? HttpResponse.BodySubscribers.replacing(null) : bodyHandler.apply(info));
+			requestCount++;
+			if (response.statusCode() != 403) {
+				return response;
+			}
+			
+			LOG.log(Level.DEBUG, "{0}: pin expired, authenticating with the password", nationName);
+			nationPin = "";
+			if (pinStore != null) {
+				pinStore.remove(nationName);
+			}
+		}
 		
-		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		response = transport.sendApi(endpoint, request.copy().setHeader("X-Password", nationPassword).build(), bodyHandler);
+		requestCount++;
 		
-		requestCounter++;
+		String newPin = response.headers().firstValue("X-Pin").orElse("");
+		if (!newPin.isEmpty()) {
+			nationPin = newPin;
+			if (pinStore != null) {
+				pinStore.put(nationName, newPin);
+			}
+		}
 		return response;
 	}
 	
+	/**
+	 * Sets how options are scored, see OptionScorer.Mode. The default is MEAN.
+	 * 
+	 * pre: (scorer != null)
+	 * 
+	 * @param scorer
+	 */
+	public void setOptionScorer(OptionScorer scorer) {
+		if (scorer == null) {
+			throw new IllegalArgumentException("Scorer cannot be null");
+		}
+		this.scorer = scorer;
+	}
+	
+	/**
+	 * Sets the listener told about every issue answer, replacing any previous one.
+	 * 
+	 * @param listener listener, or null to stop reporting
+	 */
+	public void setIssueListener(IssueListener listener) {
+		this.issueListener = listener;
+	}
+	
+	/**
+	 * Returns when the nation's next issue is due, as reported by the last authentication.
+	 * 
+	 * post: null before the first cycle or if the api did not report it
+	 * 
+	 * @return nextIssueTime
+	 */
+	public Instant getNextIssueTime() {
+		return nextIssueTime;
+	}
+	
+	/**
+	 * Returns the number of API requests this instance has made.
+	 * Process wide numbers (latency, bytes, cache hits...) are in the context's Metrics.
+	 * 
+	 * @return requestCount
+	 */
+	public int getRequestCount() {
+		return requestCount;
+	}
+	
 	/**
 	 * Returns X-Pin once it's been set and is not empty, otherwise returns X-Password
 	 * 
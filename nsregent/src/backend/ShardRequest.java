@@ -0,0 +1,124 @@
+package backend;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Builds a NationStates API url that requests several shards in one call,
+ * eg: ?nation=testlandia&q=issues+freedomscores+census;scale=48&v=12
+ *
+ * Shards are sent in the order they were added and duplicates are merged, so consumers can
+ * each add what they need and the cycle still makes a single request.
+ */
+public class ShardRequest {
+	public static final String API_URL = "https://www.nationstates.net/cgi-bin/api.cgi";
+	public static final int API_VERSION = 12;
+
+	private final String nationName;
+	private final Set<String> shards = new LinkedHashSet<>();
+	private final Set<Integer> censusScales = new TreeSet<>();
+
+	private ShardRequest(String nationName) {
+		this.nationName = nationName;
+	}
+
+	/**
+	 * pre: (nationName != null && !nationName.isBlank())
+	 *
+	 * @param nationName
+	 * @return an empty request for the nation
+	 */
+	public static ShardRequest nation(String nationName) {
+		if (nationName == null || nationName.isBlank()) {
+			throw new IllegalArgumentException("Nation name cannot be null or blank");
+		}
+
+		return new ShardRequest(nationName);
+	}
+
+	/**
+	 * Adds a shard without modifiers, eg: "issues" or "freedomscores".
+	 *
+	 * pre: (shard != null && !shard.isBlank())
+	 *
+	 * @param shard
+	 * @return this
+	 */
+	public ShardRequest shard(String shard) {
+		if (shard == null || shard.isBlank()) {
+			throw new IllegalArgumentException("Shard cannot be null or blank");
+		}
+
+		shards.add(shard.toLowerCase());
+		return this;
+	}
+
+	/**
+	 * Adds the census shard restricted to the given scales.
+	 *
+	 * pre: (scaleIds != null && scaleIds.length > 0) && each id >= 0
+	 *
+	 * @param scaleIds
+	 * @return this
+	 */
+	public ShardRequest census(int... scaleIds) {
+		if (scaleIds == null || scaleIds.length == 0) {
+			throw new IllegalArgumentException("At least one census scale is required");
+		}
+
+		shards.add("census");
+		for (int scaleId : scaleIds) {
+			censusScales.add(scaleId);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns the census scales requested so far.
+	 *
+	 * @return censusScales
+	 */
+	public Set<Integer> censusScales() {
+		return Set.copyOf(censusScales);
+	}
+
+	/**
+	 * Returns the url for every shard added so far against the given api endpoint.
+	 *
+	 * pre: shard() or census() has been called at least once
+	 *
+	 * @param apiUrl
+	 * @return url
+	 */
+	public String toUrl(String apiUrl) {
+		if (shards.isEmpty()) {
+			throw new IllegalStateException("No shards requested");
+		}
+
+		StringBuilder url = new StringBuilder(apiUrl)
+				.append("?nation=").append(URLEncoder.encode(nationName, StandardCharsets.UTF_8))
+				.append("&q=").append(String.join("+", shards));
+
+		if (!censusScales.isEmpty()) {
+			StringJoiner scales = new StringJoiner("+", ";scale=", "");
+			censusScales.forEach(scale -> scales.add(Integer.toString(scale)));
+			url.append(scales);
+		}
+
+		return url.append("&v=").append(API_VERSION).toString();
+	}
+
+	/**
+	 * Returns the url against the live NationStates api.
+	 *
+	 * @return url
+	 */
+	public String toUrl() {
+		return toUrl(API_URL);
+	}
+}
@@ -0,0 +1,166 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A value per census scale, backed by a double[] indexed by CensusScale ordinal.
+ *
+ * Scales without a value hold NaN, so presence checks and arithmetic need no boxing or hashing.
+ * Conversions to and from {category=score} maps are only meant for the I/O edges.
+ */
+public final class StatVector {
+	private final double[] values;
+
+	/**
+	 * post: every scale is absent
+	 */
+	public StatVector() {
+		this.values = new double[CensusScale.COUNT];
+		Arrays.fill(values, Double.NaN);
+	}
+
+	private StatVector(double[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * Builds a vector from {category=score}, keyed by census name (eg: "Civil Rights").
+	 *
+	 * pre: (stats != null)
+	 * post: unknown categories and null scores are ignored
+	 *
+	 * @param stats
+	 * @return vector
+	 */
+	public static StatVector fromMap(Map<String, Double> stats) {
+		StatVector vector = new StatVector();
+
+		for (Map.Entry<String, Double> stat : stats.entrySet()) {
+			CensusScale scale = CensusScale.fromLabel(stat.getKey());
+			if (scale != null && stat.getValue() != null) {
+				vector.set(scale, stat.getValue());
+			}
+		}
+
+		return vector;
+	}
+
+	/**
+	 * Returns the present scales as {category=score} in census id order.
+	 *
+	 * @return stats
+	 */
+	public Map<String, Double> toMap() {
+		Map<String, Double> stats = new LinkedHashMap<>();
+
+		for (CensusScale scale : CensusScale.values()) {
+			if (has(scale)) {
+				stats.put(scale.label(), get(scale));
+			}
+		}
+
+		return stats;
+	}
+
+	public boolean has(CensusScale scale) {
+		return !Double.isNaN(values[scale.ordinal()]);
+	}
+
+	/**
+	 * Returns the value of a scale, NaN when absent.
+	 *
+	 * @param scale
+	 * @return value
+	 */
+	public double get(CensusScale scale) {
+		return values[scale.ordinal()];
+	}
+
+	public void set(CensusScale scale, double value) {
+		values[scale.ordinal()] = value;
+	}
+
+	public void remove(CensusScale scale) {
+		values[scale.ordinal()] = Double.NaN;
+	}
+
+	/**
+	 * Adds delta to a scale if it is present.
+	 *
+	 * @param scale
+	 * @param delta
+	 */
+	public void add(CensusScale scale, double delta) {
+		values[scale.ordinal()] += delta;
+	}
+
+	/**
+	 * Returns the number of present scales.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		int size = 0;
+		for (double value : values) {
+			if (!Double.isNaN(value)) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the ordinals of the scales present in both vectors, for tight scoring loops.
+	 *
+	 * pre: (other != null)
+	 *
+	 * @param other
+	 * @return ordinals in ascending order
+	 */
+	public int[] sharedScales(StatVector other) {
+		int[] shared = new int[CensusScale.COUNT];
+		int count = 0;
+
+		for (int i = 0; i < values.length; i++) {
+			if (!Double.isNaN(values[i]) && !Double.isNaN(other.values[i])) {
+				shared[count++] = i;
+			}
+		}
+
+		return Arrays.copyOf(shared, count);
+	}
+
+	/**
+	 * Returns the backing array. Callers on the hot path may read it but must not modify it.
+	 *
+	 * @return values indexed by CensusScale ordinal
+	 */
+	public double[] values() {
+		return values;
+	}
+
+	public StatVector copy() {
+		return new StatVector(values.clone());
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof StatVector && Arrays.equals(values, ((StatVector) other).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(values);
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+}
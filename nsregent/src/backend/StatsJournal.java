@@ -0,0 +1,770 @@
+package backend;
+
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Embedded append-only journal of everything a cycle learns: stat snapshots, and every decision
+ * with the mwq mean effects it expected next to the changes NationStates reported.
+ *
+ * Records go to memory-mapped segment files under one directory. An append reserves its bytes in
+ * the active segment with a compare-and-set, writes them straight into the mapping and publishes
+ * the record by setting its type last (release store), so concurrent writers never share a lock;
+ * only rolling to a new segment is synchronized. Each segment indexes the offsets of every nation's
+ * records, so a range query reads only that nation's records.
+ *
+ * Segments other than the active one are compacted in the background, once at open and then every
+ * compaction interval: records older than the retention are dropped and small segments are merged
+ * into one that replaces the newest of them and names the others, so a crash part way through
+ * never loses or duplicates records.
+ *
+ * Segment layout, big endian: magic, version, created (epoch millis), first and last id compacted into it,
+ * then records of (length, type, time, nation, body) padded to 8 bytes. A zero length ends the segment.
+ * Census scales are stored by census id, which does not change when CensusScale does.
+ */
+public final class StatsJournal implements AutoCloseable {
+	public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+	public static final Duration DEFAULT_RETENTION = Duration.ofDays(365);
+	public static final Duration DEFAULT_COMPACTION_INTERVAL = Duration.ofHours(1);
+	private static final System.Logger LOG = System.getLogger(StatsJournal.class.getName());
+	private static final int MAGIC = 0x4E53_544A; // "NSTJ"
+	private static final int VERSION = 1;
+	private static final int SEGMENT_HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+	private static final int RECORD_HEADER_BYTES = 4 + 4 + 8;
+	private static final int UNCOMMITTED = 0;
+	private static final int SNAPSHOT = 1;
+	private static final int DECISION = 2;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final String TEMP_PREFIX = "compacting";
+	// atomic access modes on the mapping, used to publish the type of a record
+	private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final Duration retention;
+	private final Object segmentsLock = new Object();
+	private final ScheduledExecutorService compactor;
+	// copy on write, changed under segmentsLock
+	private volatile List<Segment> segments;
+	private volatile Segment active;
+	private volatile boolean closed;
+	private int nextId;
+
+	/**
+	 * A stat snapshot of one nation.
+	 */
+	public record Snapshot(String nationName, Instant time, StatVector stats) {
+	}
+
+	/**
+	 * An answered issue: the option chosen, whether NationStates accepted it, the mean effects the
+	 * decision expected and the census changes actually reported.
+	 */
+	public record Decision(String nationName, Instant time, int issueId, int option, boolean succeeded,
+			StatVector expected, StatVector actual) {
+
+		/**
+		 * Returns how far the reported change of a scale was from the expected mean, absent scales
+		 * counting as no change.
+		 *
+		 * @param scale
+		 * @return actual - expected
+		 */
+		public double error(CensusScale scale) {
+			return (actual.has(scale) ? actual.get(scale) : 0.0) - (expected.has(scale) ? expected.get(scale) : 0.0);
+		}
+	}
+
+	private StatsJournal(Path directory, int segmentBytes, Duration retention, Duration compactionInterval) throws IOException {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.retention = retention;
+
+		Files.createDirectories(directory);
+		List<Segment> opened = openSegments();
+		nextId = opened.isEmpty() ? 1 : opened.get(opened.size() - 1).id + 1;
+		active = Segment.create(directory, nextId++, segmentBytes, 0, 0);
+		opened.add(active);
+		segments = List.copyOf(opened);
+
+		if (compactionInterval == null) {
+			compactor = null;
+		} else {
+			compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "nsregent-journal-compactor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			// a run per open as well, so short lived processes such as cron cycles still merge their segments
+			compactor.execute(this::compactQuietly);
+			long millis = compactionInterval.toMillis();
+			compactor.scheduleWithFixedDelay(this::compactQuietly, millis, millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Opens the journal in directory with the default segment size, retention and compaction interval.
+	 *
+	 * pre: (directory != null)
+	 *
+	 * @param directory created if missing
+	 * @return journal
+	 * @throws IOException if a segment can't be read or created
+	 */
+	public static StatsJournal open(Path directory) throws IOException {
+		return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_RETENTION, DEFAULT_COMPACTION_INTERVAL);
+	}
+
+	/**
+	 * Opens the journal in directory. Existing segments are kept read-only and appends go to a new one.
+	 * With a compaction interval, the existing segments are also compacted in the background right away.
+	 *
+	 * pre: (directory != null && retention != null && segmentBytes >= 4096)
+	 *
+	 * @param directory created if missing
+	 * @param segmentBytes size of each segment file
+	 * @param retention how long records are kept by compaction
+	 * @param compactionInterval time between background compactions after the one at open, null to only compact on compact()
+	 * @return journal
+	 * @throws IOException if a segment can't be read or created
+	 */
+	public static StatsJournal open(Path directory, int segmentBytes, Duration retention, Duration compactionInterval)
+			throws IOException {
+		if (directory == null || retention == null || segmentBytes < 4096
+				|| (compactionInterval != null && (compactionInterval.isZero() || compactionInterval.isNegative()))) {
+			throw new IllegalArgumentException("Directory and retention cannot be null, segments must be at least 4096 bytes");
+		}
+
+		return new StatsJournal(directory, segmentBytes, retention, compactionInterval);
+	}
+
+	/**
+	 * Returns ~/.nsregent/journal, where the default journal lives.
+	 *
+	 * @return path
+	 */
+	public static Path defaultDirectory() {
+		return Path.of(System.getProperty("user.home"), ".nsregent", "journal");
+	}
+
+	/**
+	 * Appends a nation's stats as of now.
+	 *
+	 * pre: (nationName != null && stats != null)
+	 *
+	 * @param nationName
+	 * @param stats
+	 */
+	public void recordSnapshot(String nationName, StatVector stats) {
+		recordSnapshot(nationName, Instant.now(), stats);
+	}
+
+	/**
+	 * Appends a nation's stats.
+	 *
+	 * pre: (nationName != null && time != null && stats != null)
+	 *
+	 * @param nationName
+	 * @param time
+	 * @param stats
+	 * @throws IllegalStateException if the journal is closed
+	 */
+	public void recordSnapshot(String nationName, Instant time, StatVector stats) {
+		if (nationName == null || time == null || stats == null) {
+			throw new IllegalArgumentException("Nation name, time and stats cannot be null");
+		}
+
+		append(SNAPSHOT, time.toEpochMilli(), nationName, 2 + stats.size() * 10, body -> putScales(body, stats));
+	}
+
+	/**
+	 * Appends an answered issue.
+	 *
+	 * pre: (nationName != null && time != null && expected != null && actual != null)
+	 *
+	 * @param nationName
+	 * @param time
+	 * @param issueId
+	 * @param option
+	 * @param succeeded
+	 * @param expected mean effect of the option per scale
+	 * @param actual census changes reported by the answer
+	 * @throws IllegalStateException if the journal is closed
+	 */
+	public void recordDecision(String nationName, Instant time, int issueId, int option, boolean succeeded,
+			StatVector expected, StatVector actual) {
+		if (nationName == null || time == null || expected == null || actual == null) {
+			throw new IllegalArgumentException("Nation name, time and effects cannot be null");
+		}
+
+		append(DECISION, time.toEpochMilli(), nationName, 4 + 4 + 1 + 2 + expected.size() * 10 + 2 + actual.size() * 10, body -> {
+			body.putInt(issueId).putInt(option).put((byte) (succeeded ? 1 : 0));
+			putScales(body, expected);
+			putScales(body, actual);
+		});
+	}
+
+	/**
+	 * Returns a nation's snapshots with from <= time < to, oldest first.
+	 *
+	 * pre: (nationName != null && from != null && to != null)
+	 *
+	 * @param nationName
+	 * @param from
+	 * @param to
+	 * @return snapshots
+	 */
+	public List<Snapshot> snapshots(String nationName, Instant from, Instant to) {
+		List<Snapshot> snapshots = new ArrayList<>();
+		String nation = canonical(nationName);
+
+		for (Segment segment : segments) {
+			for (int offset : segment.offsets(nation, millis(from), millis(to), SNAPSHOT)) {
+				ByteBuffer record = segment.body(offset);
+				snapshots.add(new Snapshot(nation, Instant.ofEpochMilli(segment.time(offset)), getScales(record)));
+			}
+		}
+
+		snapshots.sort(Comparator.comparing(Snapshot::time));
+		return snapshots;
+	}
+
+	/**
+	 * Returns a nation's decisions with from <= time < to, oldest first.
+	 *
+	 * pre: (nationName != null && from != null && to != null)
+	 *
+	 * @param nationName
+	 * @param from
+	 * @param to
+	 * @return decisions
+	 */
+	public List<Decision> decisions(String nationName, Instant from, Instant to) {
+		List<Decision> decisions = new ArrayList<>();
+		String nation = canonical(nationName);
+
+		for (Segment segment : segments) {
+			for (int offset : segment.offsets(nation, millis(from), millis(to), DECISION)) {
+				ByteBuffer record = segment.body(offset);
+				int issueId = record.getInt();
+				int option = record.getInt();
+				boolean succeeded = record.get() != 0;
+				decisions.add(new Decision(nation, Instant.ofEpochMilli(segment.time(offset)), issueId, option, succeeded,
+						getScales(record), getScales(record)));
+			}
+		}
+
+		decisions.sort(Comparator.comparing(Decision::time));
+		return decisions;
+	}
+
+	/**
+	 * Returns the number of segment files, the active one included.
+	 *
+	 * @return segments
+	 */
+	public int segmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Compacts every segment but the active one: drops records older than the retention and
+	 * merges segments while the result fits in one segment. Runs in the background at open and
+	 * every compaction interval; callers may also run it directly.
+	 *
+	 * @return number of segments replaced
+	 * @throws IOException if a compacted segment can't be written
+	 */
+	public synchronized int compact() throws IOException {
+		long cutoff = Instant.now().minus(retention).toEpochMilli();
+		List<Segment> group = new ArrayList<>();
+		long groupBytes = SEGMENT_HEADER_BYTES;
+		boolean groupDrops = false;
+		int replaced = 0;
+
+		for (Segment segment : segments) {
+			// the active segment and any still being written to are left for a later run
+			if (segment == active || segment.writers.get() > 0) {
+				break;
+			}
+
+			long kept = segment.keptBytes(cutoff);
+			if (!group.isEmpty() && groupBytes + kept > segmentBytes) {
+				replaced += compactGroup(group, cutoff, groupBytes, groupDrops);
+				group.clear();
+				groupBytes = SEGMENT_HEADER_BYTES;
+				groupDrops = false;
+			}
+			group.add(segment);
+			groupBytes += kept;
+			groupDrops |= kept < segment.used() - SEGMENT_HEADER_BYTES;
+		}
+		replaced += compactGroup(group, cutoff, groupBytes, groupDrops);
+
+		return replaced;
+	}
+
+	/**
+	 * Stops background compaction, waiting for a run in flight and the one started at open, waits
+	 * for appends in flight, flushes the active segment and trims it to its records. Appends made
+	 * afterwards throw IllegalStateException.
+	 */
+	@Override
+	public void close() throws IOException {
+		Segment last;
+		synchronized (segmentsLock) {
+			if (closed) {
+				return;
+			}
+			// roll() checks closed under the lock, so active can no longer change
+			closed = true;
+			last = active;
+		}
+		if (compactor != null) {
+			stopCompactor();
+		}
+
+		// writers counted before closed was set finish their record, later ones see closed and back out
+		last.seal();
+		while (last.writers.get() > 0) {
+			Thread.onSpinWait();
+		}
+		last.buffer.force();
+
+		int used = last.used();
+		if (used <= SEGMENT_HEADER_BYTES) {
+			Files.deleteIfExists(last.file);
+		} else {
+			try (FileChannel channel = FileChannel.open(last.file, StandardOpenOption.WRITE)) {
+				channel.truncate(used);
+			}
+		}
+	}
+
+	private void append(int type, long time, String nationName, int bodyBytes, Consumer<ByteBuffer> body) {
+		String nation = canonical(nationName);
+		byte[] name = nation.getBytes(StandardCharsets.UTF_8);
+		int length = (RECORD_HEADER_BYTES + 1 + name.length + bodyBytes + 7) & ~7;
+		if (name.length > 255 || length > segmentBytes - SEGMENT_HEADER_BYTES) {
+			throw new IllegalArgumentException("Record too large for a segment");
+		}
+
+		while (true) {
+			Segment segment = active;
+			segment.writers.incrementAndGet();
+			try {
+				if (closed) {
+					throw new IllegalStateException("Journal is closed: " + directory);
+				}
+				int offset = segment.reserve(length);
+				if (offset < 0) {
+					roll(segment);
+					continue;
+				}
+
+				ByteBuffer record = segment.buffer.slice(offset, length);
+				record.putInt(length).putInt(UNCOMMITTED).putLong(time).put((byte) name.length).put(name);
+				body.accept(record);
+				INTS.setRelease(segment.buffer, offset + 4, type);
+				segment.index(nation, offset, time, type);
+				return;
+			} finally {
+				segment.writers.decrementAndGet();
+			}
+		}
+	}
+
+	private void roll(Segment full) {
+		synchronized (segmentsLock) {
+			// the caller retries, and backs out once it sees closed
+			if (active != full || closed) {
+				return;
+			}
+
+			full.seal();
+			try {
+				Segment next = Segment.create(directory, nextId++, segmentBytes, 0, 0);
+				List<Segment> rolled = new ArrayList<>(segments);
+				rolled.add(next);
+				segments = List.copyOf(rolled);
+				active = next;
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not create a journal segment in " + directory, e);
+			}
+		}
+	}
+
+	private int compactGroup(List<Segment> group, long cutoff, long bytes, boolean drops) throws IOException {
+		// a lone segment is only rewritten when it has records to drop
+		if (group.isEmpty() || (group.size() == 1 && !drops)) {
+			return 0;
+		}
+
+		// the output takes the id of the newest segment it replaces, so segments stay in id order
+		int first = group.get(0).id;
+		int last = group.get(group.size() - 1).id;
+		Segment compacted = null;
+		if (bytes > SEGMENT_HEADER_BYTES) {
+			Path temp = Files.createTempFile(directory, TEMP_PREFIX, ".tmp");
+			try {
+				Segment output = Segment.createAt(temp, last, (int) bytes, first, last);
+				for (Segment segment : group) {
+					segment.copyTo(output, cutoff);
+				}
+				output.buffer.force();
+				Files.move(temp, segmentFile(directory, last), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				compacted = Segment.openReadOnly(segmentFile(directory, last));
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+		synchronized (segmentsLock) {
+			List<Segment> swapped = new ArrayList<>(segments);
+			int at = swapped.indexOf(group.get(0));
+			swapped.removeAll(group);
+			if (compacted != null) {
+				swapped.add(at, compacted);
+			}
+			segments = List.copyOf(swapped);
+		}
+		for (Segment segment : group) {
+			// readers still holding the old list keep their mapping, the file can go
+			if (compacted == null || segment.id != last) {
+				Files.deleteIfExists(segment.file);
+			}
+		}
+
+		LOG.log(Level.DEBUG, "Compacted journal segments {0} to {1}", first, last);
+		return group.size();
+	}
+
+	/**
+	 * Cancels the periodic compaction and waits until no compaction touches the segment files. If
+	 * interrupted, the run queued at open is dropped too, but one already running is still awaited.
+	 */
+	private void stopCompactor() {
+		compactor.shutdown();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (compactor.awaitTermination(1, TimeUnit.MINUTES)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+				compactor.shutdownNow();
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void compactQuietly() {
+		try {
+			compact();
+		} catch (IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Journal compaction failed: {0}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Opens every segment in the directory, deleting the ones a compacted segment supersedes and
+	 * any unfinished compaction (left behind if the process stopped part way through compact()).
+	 */
+	private List<Segment> openSegments() throws IOException {
+		try (DirectoryStream<Path> temps = Files.newDirectoryStream(directory, TEMP_PREFIX + "*.tmp")) {
+			for (Path temp : temps) {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+		Map<Integer, Segment> byId = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : files) {
+				Segment segment = Segment.openReadOnly(file);
+				byId.put(segment.id, segment);
+			}
+		}
+
+		for (Segment segment : List.copyOf(byId.values())) {
+			for (int superseded = segment.supersedesFirst; superseded > 0 && superseded <= segment.supersedesLast; superseded++) {
+				Segment old = (superseded == segment.id) ? null : byId.remove(superseded);
+				if (old != null) {
+					Files.deleteIfExists(old.file);
+				}
+			}
+		}
+
+		return new ArrayList<>(byId.values());
+	}
+
+	private static void putScales(ByteBuffer body, StatVector stats) {
+		body.putShort((short) stats.size());
+		for (CensusScale scale : CensusScale.values()) {
+			if (stats.has(scale)) {
+				body.putShort((short) scale.id()).putDouble(stats.get(scale));
+			}
+		}
+	}
+
+	private static StatVector getScales(ByteBuffer body) {
+		StatVector stats = new StatVector();
+		int count = body.getShort();
+		for (int i = 0; i < count; i++) {
+			CensusScale scale = CensusScale.fromId(body.getShort());
+			double value = body.getDouble();
+			if (scale != null) {
+				stats.set(scale, value);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Returns time in epoch millis, clamped so range bounds such as Instant.MAX don't overflow.
+	 */
+	private static long millis(Instant time) {
+		if (time.isAfter(Instant.ofEpochMilli(Long.MAX_VALUE))) {
+			return Long.MAX_VALUE;
+		}
+		return time.isBefore(Instant.ofEpochMilli(Long.MIN_VALUE)) ? Long.MIN_VALUE : time.toEpochMilli();
+	}
+
+	private static Path segmentFile(Path directory, int id) {
+		return directory.resolve(String.format(Locale.ROOT, "%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+	}
+
+	private static String canonical(String name) {
+		return name.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+	}
+
+	/**
+	 * One segment file and the per nation index of its records.
+	 */
+	private static final class Segment {
+		private final int id;
+		private final Path file;
+		private final MappedByteBuffer buffer;
+		private final int supersedesFirst;
+		private final int supersedesLast;
+		// next free offset, the capacity once sealed
+		private final AtomicInteger position;
+		private final AtomicInteger writers = new AtomicInteger();
+		private final Map<String, NationIndex> index = new ConcurrentHashMap<>();
+
+		private Segment(int id, Path file, MappedByteBuffer buffer, int position) {
+			this.id = id;
+			this.file = file;
+			this.buffer = buffer;
+			this.supersedesFirst = buffer.getInt(16);
+			this.supersedesLast = buffer.getInt(20);
+			this.position = new AtomicInteger(position);
+		}
+
+		private static Segment create(Path directory, int id, int capacity, int supersedesFirst, int supersedesLast)
+				throws IOException {
+			return createAt(segmentFile(directory, id), id, capacity, supersedesFirst, supersedesLast);
+		}
+
+		private static Segment createAt(Path file, int id, int capacity, int supersedesFirst, int supersedesLast)
+				throws IOException {
+			MappedByteBuffer buffer;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+				// a sparse file on most file systems, blocks are only allocated as records arrive
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			}
+
+			buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, System.currentTimeMillis())
+					.putInt(16, supersedesFirst).putInt(20, supersedesLast);
+			return new Segment(id, file, buffer, SEGMENT_HEADER_BYTES);
+		}
+
+		private static Segment openReadOnly(Path file) throws IOException {
+			MappedByteBuffer buffer;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				if (channel.size() < SEGMENT_HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+					throw new IOException("Not a journal segment: " + file);
+				}
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("Not a journal segment, or an unsupported version: " + file);
+			}
+
+			String name = file.getFileName().toString();
+			int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+			Segment segment = new Segment(id, file, buffer, buffer.capacity());
+
+			for (int offset = SEGMENT_HEADER_BYTES; offset >= 0; offset = segment.next(offset)) {
+				int type = (int) INTS.getAcquire(buffer, offset + 4);
+				if (type != UNCOMMITTED) {
+					segment.index(segment.nation(offset), offset, segment.time(offset), type);
+				}
+			}
+			return segment;
+		}
+
+		/**
+		 * Reserves length bytes.
+		 *
+		 * @return offset, or -1 if the segment is full or sealed
+		 */
+		private int reserve(int length) {
+			while (true) {
+				int offset = position.get();
+				if (offset + length > buffer.capacity()) {
+					return -1;
+				}
+				if (position.compareAndSet(offset, offset + length)) {
+					return offset;
+				}
+			}
+		}
+
+		private void seal() {
+			position.getAndAccumulate(buffer.capacity(), Math::max);
+		}
+
+		private void index(String nation, int offset, long time, int type) {
+			index.computeIfAbsent(nation, name -> new NationIndex()).add(offset, time, type);
+		}
+
+		private int[] offsets(String nation, long from, long to, int type) {
+			NationIndex records = index.get(nation);
+			return (records == null) ? new int[0] : records.range(from, to, type);
+		}
+
+		/**
+		 * Returns the offset of the record after the one at offset, or -1 past the last record.
+		 * Records left uncommitted by a crash still carry their length and are stepped over.
+		 */
+		private int next(int offset) {
+			int length = (offset + RECORD_HEADER_BYTES <= buffer.capacity()) ? buffer.getInt(offset) : 0;
+			if (length < RECORD_HEADER_BYTES || offset + length > buffer.capacity()) {
+				return -1;
+			}
+			int next = offset + length;
+			return (next + RECORD_HEADER_BYTES <= buffer.capacity() && buffer.getInt(next) >= RECORD_HEADER_BYTES) ? next : -1;
+		}
+
+		/**
+		 * Returns the bytes holding the header and records.
+		 */
+		private int used() {
+			int end = SEGMENT_HEADER_BYTES;
+			for (int offset = SEGMENT_HEADER_BYTES; offset >= 0; offset = next(offset)) {
+				int length = buffer.getInt(offset);
+				if (length >= RECORD_HEADER_BYTES) {
+					end = offset + length;
+				}
+			}
+			return end;
+		}
+
+		private long keptBytes(long cutoff) {
+			long kept = 0;
+			for (int offset = SEGMENT_HEADER_BYTES; offset >= 0; offset = next(offset)) {
+				if (buffer.getInt(offset) >= RECORD_HEADER_BYTES && (int) INTS.getAcquire(buffer, offset + 4) != UNCOMMITTED
+						&& time(offset) >= cutoff) {
+					kept += buffer.getInt(offset);
+				}
+			}
+			return kept;
+		}
+
+		private void copyTo(Segment output, long cutoff) {
+			for (int offset = SEGMENT_HEADER_BYTES; offset >= 0; offset = next(offset)) {
+				int length = buffer.getInt(offset);
+				if (length >= RECORD_HEADER_BYTES && (int) INTS.getAcquire(buffer, offset + 4) != UNCOMMITTED
+						&& time(offset) >= cutoff) {
+					int target = output.reserve(length);
+					output.buffer.put(target, buffer, offset, length);
+				}
+			}
+		}
+
+		private long time(int offset) {
+			return buffer.getLong(offset + 8);
+		}
+
+		private String nation(int offset) {
+			byte[] name = new byte[buffer.get(offset + RECORD_HEADER_BYTES) & 0xff];
+			buffer.get(offset + RECORD_HEADER_BYTES + 1, name);
+			return new String(name, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Returns a buffer positioned at the body of the record at offset.
+		 */
+		private ByteBuffer body(int offset) {
+			int nameLength = buffer.get(offset + RECORD_HEADER_BYTES) & 0xff;
+			ByteBuffer record = buffer.slice(offset, buffer.getInt(offset));
+			return record.position(RECORD_HEADER_BYTES + 1 + nameLength);
+		}
+	}
+
+	/**
+	 * Offsets, times and types of one nation's records in one segment, in append order.
+	 * Each nation is normally written by a single Regent, so the monitor is uncontended.
+	 */
+	private static final class NationIndex {
+		private int[] offsets = new int[8];
+		private long[] times = new long[8];
+		private byte[] types = new byte[8];
+		private int size;
+
+		private synchronized void add(int offset, long time, int type) {
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+				times = Arrays.copyOf(times, size * 2);
+				types = Arrays.copyOf(types, size * 2);
+			}
+			offsets[size] = offset;
+			times[size] = time;
+			types[size] = (byte) type;
+			size++;
+		}
+
+		private synchronized int[] range(long from, long to, int type) {
+			int[] matching = new int[size];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (types[i] == type && times[i] >= from && times[i] < to) {
+					matching[count++] = offsets[i];
+				}
+			}
+			return Arrays.copyOf(matching, count);
+		}
+	}
+}
@@ -1,11 +1,21 @@
 package frontend;
 
+import javax.swing.SwingUtilities;
+
 public class App {
-	public static void main(String[] args) {
-		// instantiate gui
-		NSRegentGUI gui = new NSRegentGUI();
+	public static void main(String[] args) throws Exception {
+		// with arguments run headless (see RegentCli), Swing is never loaded
+		if (args.length > 0) {
+			RegentCli.main(args);
+			return;
+		}
 		
-		gui.setVisible(true);
+		// instantiate gui on the event dispatch thread, cycles run on background workers
+		SwingUtilities.invokeLater(() -> {
+			NSRegentGUI gui = new NSRegentGUI();
+			
+			gui.setVisible(true);
+		});
 	
 	}
 }
@@ -0,0 +1,103 @@
+package frontend;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import javax.swing.table.AbstractTableModel;
+
+import backend.CensusScale;
+import backend.IssueEvent;
+
+/**
+ * Rows of answered issues for the live table. Only touched on the event dispatch thread.
+ */
+public class IssueEventTableModel extends AbstractTableModel {
+	private static final long serialVersionUID = 1L;
+	private static final String[] COLUMNS = {"Time", "Nation", "Issue", "Option", "Result", "Target changes", "Requests", "Rate limit left"};
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+	private final transient List<IssueEvent> events = new ArrayList<>();
+	private transient Map<String, Double> targetStats = Map.of();
+
+	/**
+	 * Sets the scales shown in the changes column.
+	 *
+	 * @param targetStats
+	 */
+	public void setTargetStats(Map<String, Double> targetStats) {
+		this.targetStats = Map.copyOf(targetStats);
+	}
+
+	/**
+	 * Appends events to the end of the table.
+	 *
+	 * @param newEvents
+	 */
+	public void addAll(List<IssueEvent> newEvents) {
+		if (newEvents.isEmpty()) {
+			return;
+		}
+
+		int first = events.size();
+		events.addAll(newEvents);
+		fireTableRowsInserted(first, events.size() - 1);
+	}
+
+	public void clear() {
+		events.clear();
+		fireTableDataChanged();
+	}
+
+	@Override
+	public int getRowCount() {
+		return events.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return COLUMNS.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return COLUMNS[column];
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		IssueEvent event = events.get(row);
+
+		return switch (column) {
+			case 0 -> LocalTime.ofInstant(event.time(), ZoneId.systemDefault()).format(TIME);
+			case 1 -> event.nationName();
+			case 2 -> event.issueId();
+			// the api counts options from 0, the issue page from 1
+			case 3 -> event.option() + 1;
+			case 4 -> event.succeeded() ? "accepted" : event.error();
+			case 5 -> targetChanges(event);
+			case 6 -> event.requestCount();
+			case 7 -> (event.rateLimitRemaining() < 0) ? "" : event.rateLimitRemaining();
+			default -> null;
+		};
+	}
+
+	private String targetChanges(IssueEvent event) {
+		StringJoiner changes = new StringJoiner(", ");
+
+		for (String label : targetStats.keySet()) {
+			CensusScale scale = CensusScale.fromLabel(label);
+			Double change = (scale == null) ? null : event.censusChanges().get(scale.id());
+			if (change != null) {
+				changes.add(String.format(Locale.ROOT, "%s %+.2f", label, change));
+			}
+		}
+
+		return changes.toString();
+	}
+}
@@ -0,0 +1,121 @@
+package frontend;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import backend.IssueEvent;
+import backend.IssueHandler;
+
+/**
+ * Runs one nation's issue cycle off the event dispatch thread.
+ *
+ * Every answer is published as it arrives and handed to onEvents on the event dispatch thread;
+ * onDone gets the final status there too, exactly once and only after doInBackground() has
+ * returned or will never run. Cancel with stop() rather than cancel(true): SwingWorker does not
+ * promise done() waits for doInBackground() after a cancel, and never calls done() at all for a
+ * worker cancelled before it started, which would leave the caller waiting forever.
+ */
+public class IssueWorker extends SwingWorker<String, IssueEvent> {
+	private static final int NOT_STARTED = 0;
+	private static final int RUNNING = 1;
+	private static final int EXITED = 2;
+
+	private final AtomicInteger phase = new AtomicInteger(NOT_STARTED);
+	private final IssueHandler handler;
+	private final Map<String, Double> targetStats;
+	private final Consumer<List<IssueEvent>> onEvents;
+	private final Consumer<String> onDone;
+	// only touched on the event dispatch thread
+	private String status;
+	private boolean reported;
+
+	/**
+	 * pre: no argument is null && !targetStats.isEmpty()
+	 *
+	 * @param handler regent of the nation to run
+	 * @param targetStats target statistics to aim for
+	 * @param onEvents receives batches of answers on the event dispatch thread
+	 * @param onDone receives the cycle's status on the event dispatch thread
+	 */
+	public IssueWorker(IssueHandler handler, Map<String, Double> targetStats, Consumer<List<IssueEvent>> onEvents,
+			Consumer<String> onDone) {
+		if (handler == null || targetStats == null || targetStats.isEmpty() || onEvents == null || onDone == null) {
+			throw new IllegalArgumentException("Handler, target stats and callbacks cannot be null or empty");
+		}
+
+		this.handler = handler;
+		this.targetStats = targetStats;
+		this.onEvents = onEvents;
+		this.onDone = onDone;
+	}
+
+	@Override
+	protected String doInBackground() throws Exception {
+		if (!phase.compareAndSet(NOT_STARTED, RUNNING)) {
+			return null;
+		}
+
+		handler.setIssueListener(this::publish);
+		try {
+			return handler.handleIssues(targetStats);
+		} finally {
+			handler.setIssueListener(null);
+			phase.set(EXITED);
+			SwingUtilities.invokeLater(this::report);
+		}
+	}
+
+	/**
+	 * Cancels the cycle, interrupting the request in flight. Called on the event dispatch thread;
+	 * onDone receives "cancelled" once the background thread has stopped.
+	 */
+	public void stop() {
+		cancel(true);
+		if (phase.compareAndSet(NOT_STARTED, EXITED)) {
+			// doInBackground() never ran and now never will
+			status = "cancelled";
+			report();
+		}
+	}
+
+	@Override
+	protected void process(List<IssueEvent> events) {
+		onEvents.accept(events);
+	}
+
+	@Override
+	protected void done() {
+		String status;
+
+		if (isCancelled()) {
+			status = "cancelled";
+		} else {
+			try {
+				status = get();
+			} catch (InterruptedException e) {
+				status = "cancelled";
+			} catch (Exception e) {
+				Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+				status = "error: " + cause.getMessage();
+			}
+		}
+
+		this.status = status;
+		report();
+	}
+
+	/**
+	 * Hands the status to onDone once both done() has run and the background thread has exited.
+	 */
+	private void report() {
+		if (status != null && phase.get() == EXITED && !reported) {
+			reported = true;
+			onDone.accept(status);
+		}
+	}
+}
@@ -1,16 +1,34 @@
 package frontend;
 
 import java.awt.Font;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.*;
 
-public class NSRegentGUI extends JFrame {
+import backend.CensusScale;
+import backend.IssueHandler;
+
+public final class NSRegentGUI extends JFrame {
+	private static final long serialVersionUID = 1L;
+	private static final String DEFAULT_TARGETS = "Civil Rights=50, Political Freedom=50, Economic Freedom=50";
+
+	private final IssueEventTableModel eventTableModel = new IssueEventTableModel();
+	private JTextField nationText;
+	private JPasswordField passwordField;
+	private JTextField contactText;
+	private JTextField targetsText;
+	private JButton submitButton;
+	private JButton cancelButton;
+	private JLabel statusLabel;
+	private transient IssueWorker worker;
+
 	public NSRegentGUI() {
 		// render frame and title
 		super("NSRegent");
 		
 		// set size and make un-resizable
-		setSize(540, 570);
+		setSize(540, 900);
 		setResizable(false);
 		
 		// allows control of position & size of elements
@@ -35,43 +53,65 @@ public class NSRegentGUI extends JFrame {
 		// create nation name field
 	    JLabel nationLabel = new JLabel("Nation Name:");
 	    nationLabel.setFont(new Font("Dialog", Font.PLAIN, 16));
-	    nationLabel.setBounds(30, 120, 100, 20);
+	    nationLabel.setBounds(30, 110, 100, 20);
 	    add(nationLabel);
 
-	    JTextField nationText = new JTextField();
+	    nationText = new JTextField();
 	    nationText.setFont(new Font("Dialog", Font.PLAIN, 14));
-	    nationText.setBounds(30, 145, 480, 35);
+	    nationText.setBounds(30, 135, 480, 35);
 	    add(nationText);
 	    
 	    JLabel passwordLabel = new JLabel("Password:");
 	    passwordLabel.setFont(new Font("Dialog", Font.PLAIN, 16));
-	    passwordLabel.setBounds(30, 195, 100, 20);
+	    passwordLabel.setBounds(30, 180, 100, 20);
 	    add(passwordLabel);
 
-	    JPasswordField passwordField = new JPasswordField();
-	    passwordField.setBounds(30, 220, 480, 35);
+	    passwordField = new JPasswordField();
+	    passwordField.setBounds(30, 205, 480, 35);
 	    add(passwordField);
 	    
+	    // contact is sent in the User-Agent, as the api rules require
+	    JLabel contactLabel = new JLabel("Contact Email:");
+	    contactLabel.setFont(new Font("Dialog", Font.PLAIN, 16));
+	    contactLabel.setBounds(30, 250, 120, 20);
+	    add(contactLabel);
+
+	    contactText = new JTextField();
+	    contactText.setFont(new Font("Dialog", Font.PLAIN, 14));
+	    contactText.setBounds(30, 275, 480, 35);
+	    add(contactText);
+	    
 	    JLabel serviceLabel = new JLabel("Service:");
 	    serviceLabel.setFont(new Font("Dialog", Font.PLAIN, 16));
-	    serviceLabel.setBounds(30, 270, 100, 20);
+	    serviceLabel.setBounds(30, 320, 100, 20);
 	    add(serviceLabel);
 
 	    String[] services = {"Select Service", "rebranding", "single score", "Campaign"};
 	    JComboBox<String> serviceComboBox = new JComboBox<>(services);
-	    serviceComboBox.setBounds(30, 295, 480, 35);
+	    serviceComboBox.setBounds(30, 345, 480, 35);
 	    add(serviceComboBox);
 	    
 	    JLabel modeLabel = new JLabel("Mode Package:");
 	    modeLabel.setFont(new Font("Dialog", Font.PLAIN, 16));
-	    modeLabel.setBounds(30, 345, 120, 20);
+	    modeLabel.setBounds(30, 390, 120, 20);
 	    add(modeLabel);
 
 	    JComboBox<String> modeComboBox = new JComboBox<>();
-	    modeComboBox.setBounds(30, 370, 480, 35);
+	    modeComboBox.setBounds(30, 415, 480, 35);
 	    modeComboBox.setEnabled(false);
 	    add(modeComboBox);
 	    
+	    // target stats as "Census Name=value" pairs
+	    JLabel targetsLabel = new JLabel("Target Stats:");
+	    targetsLabel.setFont(new Font("Dialog", Font.PLAIN, 16));
+	    targetsLabel.setBounds(30, 460, 120, 20);
+	    add(targetsLabel);
+
+	    targetsText = new JTextField(DEFAULT_TARGETS);
+	    targetsText.setFont(new Font("Dialog", Font.PLAIN, 14));
+	    targetsText.setBounds(30, 485, 480, 35);
+	    add(targetsText);
+	    
 	    
 	    // Add action listener for dependent dropdown
 	    serviceComboBox.addActionListener(e -> {
@@ -102,9 +142,114 @@ public class NSRegentGUI extends JFrame {
 	    });
 
 	    // Submit Button
-	    JButton submitButton = new JButton("Submit");
+	    submitButton = new JButton("Submit");
 	    submitButton.setFont(new Font("Dialog", Font.BOLD, 16));
-	    submitButton.setBounds(30, 445, 480, 45);
+	    submitButton.setBounds(30, 540, 235, 45);
+	    submitButton.addActionListener(e -> startCycle());
 	    add(submitButton);
+	    
+	    // Cancel Button, interrupts the running cycle
+	    cancelButton = new JButton("Cancel");
+	    cancelButton.setFont(new Font("Dialog", Font.BOLD, 16));
+	    cancelButton.setBounds(275, 540, 235, 45);
+	    cancelButton.setEnabled(false);
+	    cancelButton.addActionListener(e -> {
+	    	if (worker != null) {
+	    		// Submit stays disabled until the worker reports the cycle has stopped
+	    		worker.stop();
+	    		cancelButton.setEnabled(false);
+	    		statusLabel.setText("Cancelling...");
+	    	}
+	    });
+	    add(cancelButton);
+	    
+	    statusLabel = new JLabel("Idle");
+	    statusLabel.setFont(new Font("Dialog", Font.PLAIN, 14));
+	    statusLabel.setBounds(30, 595, 480, 20);
+	    add(statusLabel);
+	    
+	    // live table of answered issues
+	    JTable eventTable = new JTable(eventTableModel);
+	    eventTable.setFillsViewportHeight(true);
+	    JScrollPane eventScrollPane = new JScrollPane(eventTable);
+	    eventScrollPane.setBounds(30, 625, 480, 220);
+	    add(eventScrollPane);
+	}
+	
+	/**
+	 * Validates the form and runs the nation's issue cycle on an IssueWorker,
+	 * so the event dispatch thread stays free while requests are in flight.
+	 */
+	private void startCycle() {
+		String nationName = nationText.getText().trim();
+		String password = new String(passwordField.getPassword());
+		String contact = contactText.getText().trim();
+		
+		if (nationName.isEmpty() || password.isEmpty() || contact.isEmpty()) {
+			showError("Nation name, password and contact email are required.");
+			return;
+		}
+		
+		Map<String, Double> targetStats;
+		try {
+			targetStats = parseTargets(targetsText.getText());
+		} catch (IllegalArgumentException e) {
+			showError(e.getMessage());
+			return;
+		}
+		
+		eventTableModel.clear();
+		eventTableModel.setTargetStats(targetStats);
+		
+		worker = new IssueWorker(new IssueHandler(nationName, password, contact), targetStats,
+				eventTableModel::addAll, this::cycleFinished);
+		submitButton.setEnabled(false);
+		cancelButton.setEnabled(true);
+		statusLabel.setText("Running " + nationName + "...");
+		worker.execute();
+	}
+	
+	private void cycleFinished(String status) {
+		worker = null;
+		submitButton.setEnabled(true);
+		cancelButton.setEnabled(false);
+		statusLabel.setText("Finished: " + status + " (" + eventTableModel.getRowCount() + " issues answered)");
+	}
+	
+	private void showError(String message) {
+		JOptionPane.showMessageDialog(this, message, "NSRegent", JOptionPane.ERROR_MESSAGE);
+	}
+	
+	/**
+	 * Parses "Civil Rights=70, Political Freedom=40" into {census name=target}.
+	 * 
+	 * @param text
+	 * @return targetStats
+	 * @throws IllegalArgumentException if the text is empty or names an unknown census scale
+	 */
+	private static Map<String, Double> parseTargets(String text) {
+		Map<String, Double> targetStats = new LinkedHashMap<>();
+		
+		for (String pair : text.split(",")) {
+			if (pair.isBlank()) continue;
+			
+			String[] parts = pair.split("=");
+			CensusScale scale = (parts.length == 2) ? CensusScale.fromLabel(parts[0].trim()) : null;
+			if (scale == null) {
+				throw new IllegalArgumentException("Unknown target: " + pair.trim());
+			}
+			
+			try {
+				targetStats.put(scale.label(), Double.parseDouble(parts[1].trim()));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Target needs a number: " + pair.trim());
+			}
+		}
+		
+		if (targetStats.isEmpty()) {
+			throw new IllegalArgumentException("Enter at least one target, eg: " + DEFAULT_TARGETS);
+		}
+		
+		return targetStats;
 	}
 }
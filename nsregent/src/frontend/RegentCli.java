@@ -0,0 +1,263 @@
+package frontend;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import backend.CensusScale;
+import backend.EffectsDatabase;
+import backend.Endpoints;
+import backend.FleetReport;
+import backend.FleetRunner;
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.NationCredentials;
+import backend.NationsDump;
+import backend.PinStore;
+import backend.RegentContext;
+import backend.StatsJournal;
+
+/**
+ * Headless entry point for scheduled runs (cron, containers): answers the pending issues of
+ * every configured nation once, prints the FleetReport and exits.
+ *
+ * Usage: RegentCli --nations <file> --targets <file> --contact <email> [--format json|text]
+ *                  [--base url] [--cache dir|none] [--effects file|none] [--dump nations.xml.gz]
+ *                  [--journal dir] [--no-pins]
+ *
+ * Both files hold "name = value" lines, blank lines and # comments are skipped. The nations file
+ * maps nation names to passwords; a password written as $NAME is read from that environment
+ * variable. The targets file maps census names (eg: Economic Freedom) to target scores.
+ *
+ * The effect cache and effects database default to the ones under ~/.nsregent, except with --base:
+ * a stand-in server's issues aren't the live ones, so the cache is then kept in memory and no
+ * effects database is read unless --cache or --effects names one.
+ *
+ * Exit status: 0 when every nation succeeded, 1 when any failed, 2 for bad arguments or files.
+ * Nothing here touches Swing, and jsoup is only loaded if an issue's effects have to be read from
+ * the results pages, so a run starts in the time the JVM takes to load the backend.
+ */
+public final class RegentCli {
+	public static final int EXIT_SUCCESS = 0;
+	public static final int EXIT_FAILURES = 1;
+	public static final int EXIT_USAGE = 2;
+	private static final String USAGE = "Usage: RegentCli --nations <file> --targets <file> --contact <email> [--format json|text]"
+			+ " [--base url] [--cache dir|none] [--effects file|none] [--dump nations.xml.gz] [--journal dir] [--no-pins]";
+
+	private RegentCli() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Runs one cycle of every configured nation and prints the report to out.
+	 *
+	 * pre: (args != null && out != null && err != null)
+	 *
+	 * @param args command line
+	 * @param out receives the report
+	 * @param err receives usage and configuration errors
+	 * @return exit status
+	 * @throws InterruptedException if interrupted while the fleet runs
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) throws InterruptedException {
+		String nationsFile = option(args, "--nations");
+		String targetsFile = option(args, "--targets");
+		String contact = option(args, "--contact");
+		String format = option(args, "--format");
+		if (nationsFile == null || targetsFile == null || contact == null || contact.isBlank()
+				|| (format != null && !format.equals("json") && !format.equals("text"))) {
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+
+		List<NationCredentials> nations;
+		Map<String, Double> targetStats;
+		RegentContext context;
+		StatsJournal journal = null;
+		try {
+			nations = readNations(Path.of(nationsFile));
+			targetStats = readTargets(Path.of(targetsFile));
+			String journalDirectory = option(args, "--journal");
+			journal = (journalDirectory == null) ? null : StatsJournal.open(Path.of(journalDirectory));
+			context = context(args, nations, journal);
+		} catch (IOException | IllegalArgumentException e) {
+			err.println("nsregent: " + e.getMessage());
+			closeQuietly(journal, err);
+			return EXIT_USAGE;
+		}
+
+		try {
+			FleetReport report = new FleetRunner(context, contact).run(nations, targetStats);
+			out.println("text".equals(format) ? report.toString().stripTrailing() : report.toJson());
+			return (report.successCount() == nations.size()) ? EXIT_SUCCESS : EXIT_FAILURES;
+		} finally {
+			closeQuietly(journal, err);
+		}
+	}
+
+	/**
+	 * Reads a nations file, resolving $NAME passwords from the environment.
+	 *
+	 * @param file
+	 * @return nations in file order
+	 * @throws IOException if the file cannot be read, is malformed, names a variable that is not set or holds no nation
+	 */
+	public static List<NationCredentials> readNations(Path file) throws IOException {
+		List<NationCredentials> nations = new ArrayList<>();
+
+		for (Map.Entry<String, String> nation : readConfig(file).entrySet()) {
+			String password = nation.getValue();
+			if (password.startsWith("$")) {
+				password = System.getenv(password.substring(1));
+				if (password == null || password.isBlank()) {
+					throw new IOException(file + ": " + nation.getValue() + " is not set, needed for " + nation.getKey());
+				}
+			}
+			nations.add(new NationCredentials(nation.getKey(), password));
+		}
+
+		if (nations.isEmpty()) {
+			throw new IOException(file + ": no nations");
+		}
+		return nations;
+	}
+
+	/**
+	 * Reads a targets file of census names and scores.
+	 *
+	 * @param file
+	 * @return {census name=target}
+	 * @throws IOException if the file cannot be read, is malformed, names an unknown census or holds no target
+	 */
+	public static Map<String, Double> readTargets(Path file) throws IOException {
+		Map<String, Double> targets = new LinkedHashMap<>();
+
+		for (Map.Entry<String, String> target : readConfig(file).entrySet()) {
+			CensusScale scale = CensusScale.fromLabel(target.getKey());
+			if (scale == null) {
+				throw new IOException(file + ": unknown census " + target.getKey());
+			}
+			try {
+				targets.put(scale.label(), Double.parseDouble(target.getValue()));
+			} catch (NumberFormatException e) {
+				throw new IOException(file + ": " + target.getKey() + " expects a number, got " + target.getValue());
+			}
+		}
+
+		if (targets.isEmpty()) {
+			throw new IOException(file + ": no targets");
+		}
+		return targets;
+	}
+
+	/**
+	 * Reads "name = value" lines, skipping blank lines and # comments. Names may contain spaces,
+	 * the value is everything after the first '='.
+	 */
+	private static Map<String, String> readConfig(Path file) throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		List<String> lines = Files.readAllLines(file);
+
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).strip();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			int separator = line.indexOf('=');
+			String name = (separator < 0) ? "" : line.substring(0, separator).strip();
+			String value = (separator < 0) ? "" : line.substring(separator + 1).strip();
+			if (name.isEmpty() || value.isEmpty()) {
+				throw new IOException(file + ":" + (i + 1) + ": expected name = value");
+			}
+			if (entries.put(name, value) != null) {
+				throw new IOException(file + ":" + (i + 1) + ": " + name + " is repeated");
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Builds the context from the shared transport and the optional services asked for.
+	 * On a cold JVM the transport's TLS setup and the pin store's key derivation each take a few
+	 * hundred ms and neither needs the other, so the pin store and effects database are opened
+	 * in the background meanwhile.
+	 */
+	private static RegentContext context(String[] args, List<NationCredentials> nations, StatsJournal journal)
+			throws IOException {
+		String base = option(args, "--base");
+		String cache = option(args, "--cache");
+		String effects = option(args, "--effects");
+		String dump = option(args, "--dump");
+		CompletableFuture<PinStore> pinStore = flag(args, "--no-pins") ? CompletableFuture.completedFuture(null)
+				: CompletableFuture.supplyAsync(PinStore::openDefault);
+		CompletableFuture<EffectsDatabase> effectsDatabase;
+		if (effects == null) {
+			effectsDatabase = (base == null) ? CompletableFuture.supplyAsync(EffectsDatabase::openDefault)
+					: CompletableFuture.completedFuture(null);
+		} else {
+			effectsDatabase = CompletableFuture.completedFuture(effects.equals("none") ? null : EffectsDatabase.open(Path.of(effects)));
+		}
+		HttpTransport transport = HttpTransport.shared();
+
+		Endpoints endpoints = (base == null) ? Endpoints.live() : Endpoints.at(URI.create(base));
+		IssueEffectCache effectCache;
+		if (cache == null && base == null) {
+			effectCache = IssueEffectCache.defaultCache();
+		} else {
+			Path directory = (cache == null || cache.equals("none")) ? null : Path.of(cache);
+			effectCache = new IssueEffectCache(directory, IssueEffectCache.DEFAULT_TTL,
+					IssueEffectCache.DEFAULT_MEMORY_ENTRIES, IssueEffectCache.DEFAULT_DISK_ENTRIES);
+		}
+		NationsDump nationsDump = null;
+		if (dump != null) {
+			List<String> names = nations.stream().map(NationCredentials::nationName).toList();
+			nationsDump = NationsDump.read(Path.of(dump), names, null);
+		}
+
+		// neither throws, failures fall back to running without them
+		return RegentContext.builder(transport, effectCache).endpoints(endpoints).effectsDatabase(effectsDatabase.join())
+				.nationsDump(nationsDump).pinStore(pinStore.join()).statsJournal(journal).build();
+	}
+
+	private static void closeQuietly(StatsJournal journal, PrintStream err) {
+		if (journal == null) {
+			return;
+		}
+
+		try {
+			journal.close();
+		} catch (IOException e) {
+			err.println("nsregent: could not close the journal: " + e.getMessage());
+		}
+	}
+
+	private static String option(String[] args, String name) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return null;
+	}
+
+	private static boolean flag(String[] args, String name) {
+		for (String arg : args) {
+			if (arg.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
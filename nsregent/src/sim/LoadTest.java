@@ -0,0 +1,128 @@
+package sim;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import backend.FleetReport;
+import backend.FleetRunner;
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.NationCredentials;
+import backend.RateLimiter;
+import backend.RegentContext;
+
+/**
+ * Drives a fleet of simulated nations through handleIssues against a local StandInServer
+ * to find where the client stops scaling. Nothing is sent to the real api.
+ *
+ * Usage: LoadTest [--nations 1000] [--latency-ms 50] [--jitter-ms 25] [--rate-limit 0]
+ *                 [--threads 4] [--replay <recording dir>]
+ *
+ * --rate-limit N applies the NationStates policy shape (N requests per 30 s) on both the server
+ * and the client limiter; 0 (default) removes the limit so the client itself is measured.
+ * The fleet's Metrics snapshot is printed after the summary.
+ */
+public final class LoadTest {
+	private static final Map<String, Double> TARGET = Map.of(
+			"Civil Rights", 50.0, "Political Freedom", 50.0, "Economic Freedom", 50.0);
+
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int nations = intOption(args, "--nations", 1000);
+		int latencyMs = intOption(args, "--latency-ms", 50);
+		int jitterMs = intOption(args, "--jitter-ms", 25);
+		int rateLimit = intOption(args, "--rate-limit", 0);
+		int threads = intOption(args, "--threads", HttpTransport.DEFAULT_THREADS);
+		String replay = option(args, "--replay");
+
+		try (StandInServer server = StandInServer.start()) {
+			server.latency(Duration.ofMillis(latencyMs), Duration.ofMillis(jitterMs))
+					.rateLimit(rateLimit, RateLimiter.NS_WINDOW);
+			if (replay != null) {
+				server.replay(Recording.load(Path.of(replay)));
+			}
+
+			List<NationCredentials> fleet = new ArrayList<>(nations);
+			for (int i = 0; i < nations; i++) {
+				fleet.add(server.addNation("load_test_" + i, "password"));
+			}
+
+			RateLimiter limiter = (rateLimit > 0)
+					? new RateLimiter(rateLimit, RateLimiter.NS_WINDOW)
+					: new RateLimiter(Integer.MAX_VALUE, Duration.ofSeconds(1));
+			HttpTransport transport = new HttpTransport(HttpTransport.DEFAULT_CONNECT_TIMEOUT,
+					HttpTransport.DEFAULT_REQUEST_TIMEOUT, threads, limiter);
+			IssueEffectCache cache = new IssueEffectCache(null, IssueEffectCache.DEFAULT_TTL,
+					IssueEffectCache.DEFAULT_MEMORY_ENTRIES, IssueEffectCache.DEFAULT_DISK_ENTRIES);
+			FleetRunner runner = new FleetRunner(RegentContext.builder(transport, cache).endpoints(server.endpoints()).build(), "load-test");
+
+			FleetReport report;
+			try {
+				report = runner.run(fleet, TARGET);
+			} finally {
+				transport.shutdown();
+			}
+
+			printSummary(report, server.requestCount());
+			System.out.println();
+			System.out.print(transport.metrics().snapshot());
+		}
+	}
+
+	private static void printSummary(FleetReport report, long serverRequests) {
+		List<Long> elapsed = new ArrayList<>();
+		for (FleetReport.NationResult result : report.results()) {
+			elapsed.add(result.elapsed().toMillis());
+		}
+		elapsed.sort(null);
+
+		double seconds = Math.max(report.elapsed().toNanos() / 1e9, 1e-9);
+		System.out.printf("Nations:        %d (%d succeeded)%n", report.results().size(), report.successCount());
+		System.out.printf("Elapsed:        %d ms%n", report.elapsed().toMillis());
+		System.out.printf("API requests:   %d (%.1f/s)%n", report.requestCount(), report.requestCount() / seconds);
+		System.out.printf("All requests:   %d (%.1f/s, includes results pages)%n", serverRequests, serverRequests / seconds);
+		System.out.printf("Nations/s:      %.1f%n", report.results().size() / seconds);
+		System.out.printf("Nation cycle:   p50 %d ms, p99 %d ms, max %d ms%n",
+				percentile(elapsed, 0.50), percentile(elapsed, 0.99), percentile(elapsed, 1.0));
+
+		report.results().stream()
+				.filter(result -> !result.succeeded())
+				.limit(10)
+				.forEach(result -> System.out.printf("  %s: %s%n", result.nationName(), result.status()));
+	}
+
+	private static long percentile(List<Long> sorted, double fraction) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+	}
+
+	private static String option(String[] args, String name) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return null;
+	}
+
+	private static int intOption(String[] args, String name, int defaultValue) {
+		String value = option(args, name);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " expects a number, got " + value);
+		}
+	}
+}
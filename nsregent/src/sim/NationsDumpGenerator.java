@@ -0,0 +1,119 @@
+package sim;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+import backend.CensusScale;
+import backend.StatVector;
+
+/**
+ * Writes nations.xml.gz files shaped like the NationStates daily dump, for offline tests and
+ * benchmarks of NationsDump. Every nation carries the fields the real dump has around the ones
+ * NationsDump reads (a nested POLICIES/NAME among them), so the parser sees realistic noise.
+ */
+public final class NationsDumpGenerator {
+	private static final String[] POLICIES = {"Autoclaves", "Ban On Ice Cream", "Compulsory Military Service", "No Smoking"};
+
+	private NationsDumpGenerator() {
+	}
+
+	/**
+	 * One nation of a generated dump.
+	 */
+	public record Nation(String name, String region, StatVector stats) {
+	}
+
+	/**
+	 * Returns count nations named "Nation N" spread round robin over regions named "Region N",
+	 * with every census scale set.
+	 *
+	 * pre: (count >= 0 && regions > 0)
+	 *
+	 * @param count
+	 * @param regions
+	 * @param seed makes the scores repeatable
+	 * @return nations
+	 */
+	public static List<Nation> random(int count, int regions, long seed) {
+		if (count < 0 || regions <= 0) {
+			throw new IllegalArgumentException("Count cannot be negative and regions must be positive");
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Nation> nations = new ArrayList<>(count);
+		for (int n = 1; n <= count; n++) {
+			StatVector stats = new StatVector();
+			for (CensusScale scale : CensusScale.values()) {
+				stats.set(scale, Math.round(random.nextDouble(0.0, 100.0) * 100.0) / 100.0);
+			}
+			nations.add(new Nation("Nation " + n, "Region " + (1 + (n - 1) % regions), stats));
+		}
+
+		return nations;
+	}
+
+	/**
+	 * Writes nations as a gzipped dump. Civil rights and political freedom go in FREEDOMSCORES
+	 * rounded like the api reports them, every scale goes in CENSUS.
+	 *
+	 * pre: (file != null && nations != null)
+	 *
+	 * @param file
+	 * @param nations
+	 * @throws IOException
+	 */
+	public static void write(Path file, List<Nation> nations) throws IOException {
+		if (file == null || nations == null) {
+			throw new IllegalArgumentException("File and nations cannot be null");
+		}
+
+		try (Writer xml = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(Files.newOutputStream(file), 1 << 16), StandardCharsets.UTF_8))) {
+			xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<NATIONS api_version=\"12\">\n");
+			for (Nation nation : nations) {
+				write(xml, nation);
+			}
+			xml.write("</NATIONS>\n");
+		}
+	}
+
+	private static void write(Writer xml, Nation nation) throws IOException {
+		StatVector stats = nation.stats();
+
+		xml.write("<NATION>\n<NAME>" + nation.name() + "</NAME>\n<TYPE>Republic</TYPE>\n<FULLNAME>The Republic of "
+				+ nation.name() + "</FULLNAME>\n<MOTTO>Generated for tests</MOTTO>\n<CATEGORY>Left-Leaning College State</CATEGORY>\n"
+				+ "<UNSTATUS>Non-member</UNSTATUS>\n<ENDORSEMENTS></ENDORSEMENTS>\n<ISSUES_ANSWERED>42</ISSUES_ANSWERED>\n");
+		xml.write("<FREEDOM>\n<CIVILRIGHTS>Good</CIVILRIGHTS>\n<ECONOMY>Strong</ECONOMY>\n"
+				+ "<POLITICALFREEDOM>Average</POLITICALFREEDOM>\n</FREEDOM>\n");
+		xml.write("<REGION>" + nation.region() + "</REGION>\n<POPULATION>1234</POPULATION>\n");
+		xml.write("<FREEDOMSCORES>\n<CIVILRIGHTS>" + freedomScore(stats, CensusScale.CIVIL_RIGHTS) + "</CIVILRIGHTS>\n<ECONOMY>"
+				+ freedomScore(stats, CensusScale.ECONOMY) + "</ECONOMY>\n<POLITICALFREEDOM>"
+				+ freedomScore(stats, CensusScale.POLITICAL_FREEDOM) + "</POLITICALFREEDOM>\n</FREEDOMSCORES>\n");
+		xml.write("<POLICIES>\n");
+		for (String policy : POLICIES) {
+			xml.write("<POLICY>\n<NAME>" + policy + "</NAME>\n<PIC>p1</PIC>\n<CAT>Law</CAT>\n</POLICY>\n");
+		}
+		xml.write("</POLICIES>\n<CENSUS>\n");
+		for (CensusScale scale : CensusScale.values()) {
+			if (stats.has(scale)) {
+				xml.write("<SCALE id=\"" + scale.id() + "\">\n<SCORE>" + String.format(Locale.ROOT, "%.2f", stats.get(scale))
+						+ "</SCORE>\n<RANK>1</RANK>\n<RRANK>1</RRANK>\n</SCALE>\n");
+			}
+		}
+		xml.write("</CENSUS>\n</NATION>\n");
+	}
+
+	private static long freedomScore(StatVector stats, CensusScale scale) {
+		return stats.has(scale) ? Math.round(Math.max(0.0, Math.min(100.0, stats.get(scale)))) : 0;
+	}
+}
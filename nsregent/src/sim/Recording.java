@@ -0,0 +1,220 @@
+package sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Captured HTTP exchanges, replayed by a StandInServer in place of simulated responses.
+ *
+ * Exchanges are matched on method, path with query and request body. Repeated requests are answered
+ * with their recorded responses in order; once only one is left it is served for every later match.
+ *
+ * Each exchange is stored as one file, eg: 000001.exchange
+ *   GET /cgi-bin/api.cgi?nation=testlandia&q=issues&v=12
+ *   <request body, empty line when none>
+ *   200
+ *   Content-Type: text/xml
+ *   <empty line>
+ *   <response body bytes>
+ * Request headers are never stored, so credentials do not end up in recordings.
+ */
+public final class Recording {
+	public static final String FILE_SUFFIX = ".exchange";
+
+	private final List<Exchange> exchanges = new ArrayList<>();
+	private final Map<String, Deque<Exchange>> pending = new HashMap<>();
+
+	/**
+	 * Adds an exchange after the ones already recorded.
+	 *
+	 * pre: (exchange != null)
+	 *
+	 * @param exchange
+	 */
+	public synchronized void add(Exchange exchange) {
+		if (exchange == null) {
+			throw new IllegalArgumentException("Exchange cannot be null");
+		}
+
+		exchanges.add(exchange);
+		pending.computeIfAbsent(exchange.key(), key -> new ArrayDeque<>()).add(exchange);
+	}
+
+	/**
+	 * Returns the recorded response for a request, or null when nothing matches.
+	 *
+	 * @param method
+	 * @param target path and query, eg: /cgi-bin/api.cgi?nation=testlandia&q=issues
+	 * @param requestBody form body of a POST, empty otherwise
+	 * @return exchange or null
+	 */
+	public synchronized Exchange next(String method, String target, String requestBody) {
+		Deque<Exchange> matches = pending.get(key(method, target, requestBody));
+		if (matches == null) {
+			return null;
+		}
+
+		return (matches.size() > 1) ? matches.poll() : matches.peek();
+	}
+
+	public synchronized int size() {
+		return exchanges.size();
+	}
+
+	public synchronized List<Exchange> exchanges() {
+		return List.copyOf(exchanges);
+	}
+
+	/**
+	 * Reads every exchange file in a directory, in file name order.
+	 *
+	 * pre: (directory != null)
+	 *
+	 * @param directory
+	 * @return recording
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static Recording load(Path directory) throws IOException {
+		Recording recording = new Recording();
+		List<Path> files;
+
+		try (Stream<Path> listing = Files.list(directory)) {
+			files = listing.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+
+		for (Path file : files) {
+			recording.add(read(file));
+		}
+
+		return recording;
+	}
+
+	/**
+	 * Writes every exchange to a directory, numbered in recording order.
+	 *
+	 * pre: (directory != null)
+	 *
+	 * @param directory created if missing
+	 * @throws IOException
+	 */
+	public void save(Path directory) throws IOException {
+		List<Exchange> snapshot = exchanges();
+		Files.createDirectories(directory);
+
+		for (int i = 0; i < snapshot.size(); i++) {
+			write(directory.resolve(fileName(i + 1)), snapshot.get(i));
+		}
+	}
+
+	/**
+	 * Returns the file name of the n-th exchange of a recording.
+	 *
+	 * @param sequence 1-based
+	 * @return file name
+	 */
+	static String fileName(int sequence) {
+		return String.format("%06d%s", sequence, FILE_SUFFIX);
+	}
+
+	static void write(Path file, Exchange exchange) throws IOException {
+		StringBuilder head = new StringBuilder()
+				.append(exchange.method()).append(' ').append(exchange.target()).append('\n')
+				.append(exchange.requestBody()).append('\n')
+				.append(exchange.status()).append('\n');
+		exchange.headers().forEach((name, value) -> head.append(name).append(": ").append(value).append('\n'));
+		head.append('\n');
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(head.length() + exchange.body().length);
+		out.writeBytes(head.toString().getBytes(StandardCharsets.UTF_8));
+		out.writeBytes(exchange.body());
+		Files.write(file, out.toByteArray());
+	}
+
+	static Exchange read(Path file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		int offset = 0;
+		List<String> lines = new ArrayList<>();
+
+		// head lines end at the first empty line after the request body and status lines
+		while (true) {
+			int end = indexOf(bytes, (byte) '\n', offset);
+			if (end < 0) {
+				throw new IOException("Malformed exchange file: " + file);
+			}
+
+			String line = new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+			offset = end + 1;
+			if (line.isEmpty() && lines.size() >= 3) {
+				break;
+			}
+			lines.add(line);
+		}
+
+		try {
+			String[] request = lines.get(0).split(" ", 2);
+			int status = Integer.parseInt(lines.get(2).trim());
+			Map<String, String> headers = new LinkedHashMap<>();
+
+			for (String header : lines.subList(3, lines.size())) {
+				int colon = header.indexOf(':');
+				headers.put(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+			}
+
+			byte[] body = new byte[bytes.length - offset];
+			System.arraycopy(bytes, offset, body, 0, body.length);
+			return new Exchange(request[0], request[1], lines.get(1), status, headers, body);
+		} catch (RuntimeException e) {
+			throw new IOException("Malformed exchange file: " + file, e);
+		}
+	}
+
+	private static int indexOf(byte[] bytes, byte value, int from) {
+		for (int i = from; i < bytes.length; i++) {
+			if (bytes[i] == value) return i;
+		}
+		return -1;
+	}
+
+	private static String key(String method, String target, String requestBody) {
+		return method + ' ' + target + '\n' + (requestBody == null ? "" : requestBody);
+	}
+
+	/**
+	 * One recorded request and its response.
+	 *
+	 * @param method GET or POST
+	 * @param target path and query of the request
+	 * @param requestBody form body of a POST, empty otherwise
+	 * @param status response status code
+	 * @param headers response headers worth replaying (content type, rate limit headers)
+	 * @param body response body
+	 */
+	public record Exchange(String method, String target, String requestBody, int status,
+			Map<String, String> headers, byte[] body) {
+		public Exchange {
+			if (method == null || target == null || headers == null || body == null) {
+				throw new IllegalArgumentException("Exchange fields cannot be null");
+			}
+			requestBody = (requestBody == null) ? "" : requestBody;
+			headers = Map.copyOf(headers);
+		}
+
+		String key() {
+			return Recording.key(method, target, requestBody);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package sim;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import backend.Endpoints;
+import backend.HttpTransport;
+
+/**
+ * Local proxy that forwards requests to real endpoints and records every exchange for later replay.
+ *
+ * Point a RegentContext at endpoints() and run the cycle as usual: api requests are forwarded through
+ * the transport's rate limiter, results pages without it, and each response is written to the
+ * recording directory as soon as it arrives. Only content type and rate limit headers are recorded,
+ * and the X-Pin session header is redacted, so recordings hold no credentials.
+ */
+public class RecordingProxy implements AutoCloseable {
+	private static final List<String> FORWARDED_HEADERS = List.of("X-Password", "X-Pin", "User-Agent", "Content-Type");
+	private static final List<String> RECORDED_HEADERS = List.of("Content-Type", "RateLimit-Policy", "RateLimit-Limit",
+			"RateLimit-Remaining", "RateLimit-Reset", "Retry-After");
+	private static final String REDACTED_PIN = "0";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Endpoints upstream;
+	private final HttpTransport transport;
+	private final Path directory;
+	private final Recording recording = new Recording();
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	private RecordingProxy(HttpServer server, Endpoints upstream, HttpTransport transport, Path directory) {
+		this.server = server;
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		this.upstream = upstream;
+		this.transport = transport;
+		this.directory = directory;
+
+		server.setExecutor(executor);
+		server.createContext("/", this::forward);
+	}
+
+	/**
+	 * Starts a proxy on a free loopback port.
+	 *
+	 * pre: (upstream != null && transport != null && directory != null)
+	 *
+	 * @param upstream endpoints requests are forwarded to, usually Endpoints.live()
+	 * @param transport transport used for the forwarded requests
+	 * @param directory where exchange files are written, created if missing
+	 * @return running proxy
+	 * @throws IOException if the directory cannot be created or the port cannot be bound
+	 */
+	public static RecordingProxy start(Endpoints upstream, HttpTransport transport, Path directory) throws IOException {
+		if (upstream == null || transport == null || directory == null) {
+			throw new IllegalArgumentException("Upstream, transport and directory cannot be null");
+		}
+
+		Files.createDirectories(directory);
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		RecordingProxy proxy = new RecordingProxy(server, upstream, transport, directory);
+		server.start();
+
+		return proxy;
+	}
+
+	/**
+	 * Returns endpoints that send every request through this proxy.
+	 *
+	 * @return endpoints
+	 */
+	public Endpoints endpoints() {
+		InetSocketAddress address = server.getAddress();
+		return Endpoints.at(URI.create("http://" + address.getHostString() + ":" + address.getPort()));
+	}
+
+	/**
+	 * Returns the exchanges recorded so far.
+	 *
+	 * @return recording
+	 */
+	public Recording recording() {
+		return recording;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void forward(HttpExchange exchange) throws IOException {
+		try {
+			byte[] requestBody = exchange.getRequestBody().readAllBytes();
+			String path = exchange.getRequestURI().getRawPath();
+			String query = exchange.getRequestURI().getRawQuery();
+			String target = (query == null) ? path : path + "?" + query;
+			boolean api = path.startsWith(Endpoints.API_PATH);
+			String url;
+
+			if (api) {
+				url = upstream.apiUrl() + ((query == null) ? "" : "?" + query);
+			} else if (path.startsWith(Endpoints.RESULTS_PATH)) {
+				url = upstream.resultsUrl() + path.substring(Endpoints.RESULTS_PATH.length());
+			} else {
+				send(exchange, 404, Map.of(), new byte[0]);
+				return;
+			}
+
+			HttpRequest.Builder request = transport.configure(HttpRequest.newBuilder()).uri(URI.create(url));
+			for (String header : FORWARDED_HEADERS) {
+				String value = exchange.getRequestHeaders().getFirst(header);
+				if (value != null) {
+					request.header(header, value);
+				}
+			}
+			if ("POST".equals(exchange.getRequestMethod())) {
+				request.POST(HttpRequest.BodyPublishers.ofByteArray(requestBody));
+			} else {
+				request.GET();
+			}
+
+			HttpResponse<byte[]> response = api
+					? transport.sendApi(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+					: transport.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+
+			Map<String, String> headers = new LinkedHashMap<>();
+			for (String header : RECORDED_HEADERS) {
+				response.headers().firstValue(header).ifPresent(value -> headers.put(header, value));
+			}
+
+			Map<String, String> recordedHeaders = new LinkedHashMap<>(headers);
+			response.headers().firstValue("X-Pin").ifPresent(pin -> {
+				headers.put("X-Pin", pin);
+				recordedHeaders.put("X-Pin", REDACTED_PIN);
+			});
+
+			Recording.Exchange recorded = new Recording.Exchange(exchange.getRequestMethod(), target,
+					new String(requestBody, StandardCharsets.UTF_8), response.statusCode(), recordedHeaders, response.body());
+			recording.add(recorded);
+			Recording.write(directory.resolve(Recording.fileName(sequence.incrementAndGet())), recorded);
+
+			send(exchange, response.statusCode(), headers, response.body());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			send(exchange, 503, Map.of(), new byte[0]);
+		} catch (IOException | RuntimeException e) {
+			send(exchange, 502, Map.of(), new byte[0]);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, Map<String, String> headers, byte[] body) {
+		try {
+			headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+			exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (IOException e) {
+			// the client went away, nothing left to answer
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package sim;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import backend.CensusScale;
+
+/**
+ * Deterministic catalogue of simulated issues. The effects of an issue depend only on the seed and
+ * the issue id, so every nation sees the same tables and a run can be repeated.
+ *
+ * Each option has a min, mean and max effect on a handful of census scales. Answers draw the actual
+ * change from [min, max], and results pages render the same ranges in the mwq table format.
+ */
+final class SimulatedIssues {
+	private static final int MIN_OPTIONS = 2;
+	private static final int MAX_OPTIONS = 5;
+	private static final int MAX_EXTRA_SCALES = 4;
+	private static final CensusScale[] FREEDOMS = {
+			CensusScale.CIVIL_RIGHTS, CensusScale.POLITICAL_FREEDOM, CensusScale.ECONOMIC_FREEDOM };
+
+	private final long seed;
+	private final int issueCount;
+	private final Map<Integer, Issue> issues = new ConcurrentHashMap<>();
+
+	/**
+	 * pre: issueCount > 0
+	 *
+	 * @param seed
+	 * @param issueCount issue ids run from 1 to issueCount
+	 */
+	SimulatedIssues(long seed, int issueCount) {
+		this.seed = seed;
+		this.issueCount = issueCount;
+	}
+
+	boolean exists(int issueId) {
+		return issueId >= 1 && issueId <= issueCount;
+	}
+
+	int randomIssueId() {
+		return 1 + ThreadLocalRandom.current().nextInt(issueCount);
+	}
+
+	/**
+	 * pre: exists(issueId)
+	 *
+	 * @param issueId
+	 * @return issue
+	 */
+	Issue issue(int issueId) {
+		return issues.computeIfAbsent(issueId, this::generate);
+	}
+
+	private Issue generate(int issueId) {
+		Random random = new Random(seed * 1_000_003L + issueId);
+		int optionCount = MIN_OPTIONS + random.nextInt(MAX_OPTIONS - MIN_OPTIONS + 1);
+		int[][] scales = new int[optionCount][];
+		double[][] min = new double[optionCount][];
+		double[][] mean = new double[optionCount][];
+		double[][] max = new double[optionCount][];
+
+		for (int o = 0; o < optionCount; o++) {
+			Set<Integer> affected = new LinkedHashSet<>();
+			for (CensusScale freedom : FREEDOMS) {
+				if (random.nextDouble() < 0.7) {
+					affected.add(freedom.ordinal());
+				}
+			}
+			int extra = 1 + random.nextInt(MAX_EXTRA_SCALES);
+			for (int e = 0; e < extra; e++) {
+				affected.add(random.nextInt(CensusScale.COUNT));
+			}
+
+			scales[o] = affected.stream().mapToInt(Integer::intValue).toArray();
+			min[o] = new double[scales[o].length];
+			mean[o] = new double[scales[o].length];
+			max[o] = new double[scales[o].length];
+
+			for (int k = 0; k < scales[o].length; k++) {
+				double spread = round(random.nextDouble() * 2.0);
+				mean[o][k] = round((random.nextDouble() * 2.0 - 1.0) * 3.0);
+				min[o][k] = round(mean[o][k] - spread);
+				max[o][k] = round(mean[o][k] + spread);
+			}
+		}
+
+		return new Issue(issueId, scales, min, mean, max);
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 100.0) / 100.0;
+	}
+
+	/**
+	 * Effect table of one issue. Arrays are indexed [option][k], where scales[option][k] is the
+	 * CensusScale ordinal the k-th effect applies to.
+	 */
+	static final class Issue {
+		private final int id;
+		private final int[][] scales;
+		private final double[][] min;
+		private final double[][] mean;
+		private final double[][] max;
+
+		private Issue(int id, int[][] scales, double[][] min, double[][] mean, double[][] max) {
+			this.id = id;
+			this.scales = scales;
+			this.min = min;
+			this.mean = mean;
+			this.max = max;
+		}
+
+		int optionCount() {
+			return scales.length;
+		}
+
+		int[] scales(int option) {
+			return scales[option];
+		}
+
+		/**
+		 * Draws the actual change of one effect from its [min, max] range.
+		 */
+		double sample(int option, int k) {
+			double change = min[option][k] + ThreadLocalRandom.current().nextDouble() * (max[option][k] - min[option][k]);
+			return round(change);
+		}
+
+		/**
+		 * Renders the issue as an mwq results page, the format IssueEffectsParser reads.
+		 */
+		String toHtml() {
+			StringBuilder html = new StringBuilder(1024)
+					.append("<html><head><title>Issue #").append(id).append("</title></head><body>\n<table>\n")
+					.append("<tr><th>Option</th><th>Effect</th><th>Data points</th></tr>\n");
+
+			for (int o = 0; o < scales.length; o++) {
+				html.append("<tr><td>").append(o + 1).append(". Simulated option ").append(o + 1).append(".</td><td>");
+				for (int k = 0; k < scales[o].length; k++) {
+					html.append("<div class=\"").append(mean[o][k] < 0 ? "neg" : "pos").append("\">")
+							.append(String.format(Locale.ROOT, "%+.2f to %+.2f %s (mean %+.2f)",
+									min[o][k], max[o][k], CensusScale.values()[scales[o][k]].label(), mean[o][k]))
+							.append("</div>");
+				}
+				html.append("</td><td>100</td></tr>\n");
+			}
+
+			return html.append("</table>\n</body></html>\n").toString();
+		}
+
+		/**
+		 * Renders the ISSUE element of the issues shard.
+		 */
+		String toXml() {
+			StringBuilder xml = new StringBuilder(256)
+					.append("<ISSUE id=\"").append(id).append("\">\n")
+					.append("<TITLE>Simulated issue ").append(id).append("</TITLE>\n");
+
+			for (int o = 0; o < scales.length; o++) {
+				xml.append("<OPTION id=\"").append(o).append("\">Simulated option ").append(o + 1).append(".</OPTION>\n");
+			}
+
+			return xml.append("</ISSUE>\n").toString();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+import backend.CensusScale;
+
+/**
+ * Server side state of one simulated nation: credentials, session pin, census scores, pending issues
+ * and when the next issue is due (epoch millis).
+ * Callers synchronize on the nation while reading or changing it.
+ */
+final class SimulatedNation {
+	final String name;
+	final String password;
+	final double[] census = new double[CensusScale.COUNT];
+	final List<Integer> issues = new ArrayList<>();
+	String pin;
+	long nextIssueAt;
+	int answered;
+	int answerAttempts;
+	int passwordLogins;
+	// returned to every answer while set, see StandInServer.failAnswers()
+	String answerError;
+
+	SimulatedNation(String name, String password) {
+		this.name = name;
+		this.password = password;
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < census.length; i++) {
+			census[i] = Math.round(random.nextDouble(5.0, 95.0) * 100.0) / 100.0;
+		}
+	}
+
+	/**
+	 * Returns the name as NationStates stores it: lower case with underscores for spaces.
+	 *
+	 * @param name
+	 * @return canonical name
+	 */
+	static String canonical(String name) {
+		return name.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+	}
+
+	/**
+	 * Freedom scores are reported on a 0-100 scale derived from the matching census score.
+	 */
+	int freedomScore(CensusScale scale) {
+		return (int) Math.round(Math.max(0.0, Math.min(100.0, census[scale.ordinal()])));
+	}
+}
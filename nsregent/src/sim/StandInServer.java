@@ -0,0 +1,731 @@
+package sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import backend.CensusScale;
+import backend.Endpoints;
+import backend.NationCredentials;
+
+/**
+ * Embedded stand-in for the NationStates api and the mwq results pages, for offline tests and load tests.
+ *
+ * Serves Endpoints.API_PATH and Endpoints.RESULTS_PATH on the loopback interface:
+ *   - password / X-Pin authentication (a password login returns an X-Pin header)
+ *   - the issues, freedomscores, census and nextissuetime shards, combined in any order
+ *   - new issues every issueInterval() up to ISSUES_PER_NATION
+ *   - c=issue answers, which apply the chosen option's effects and report them in RANKINGS
+ *   - RateLimit-* headers and 429 + Retry-After once the configured window is exhausted
+ *   - results pages rendered from the same effect tables the answers use, with an ETag and
+ *     Last-Modified so revalidations get a 304
+ *   - gzip bodies for clients sending Accept-Encoding: gzip
+ *   - optional artificial latency on every request
+ *
+ * A Recording can be loaded for replay; recorded exchanges take priority over simulated responses.
+ * Requests are handled on virtual threads, so latency does not limit how many can be in flight.
+ */
+public class StandInServer implements AutoCloseable {
+	public static final int DEFAULT_ISSUE_COUNT = 1500;
+	public static final int ISSUES_PER_NATION = 5;
+	public static final Duration DEFAULT_ISSUE_INTERVAL = Duration.ofHours(1);
+	private static final String XML = "text/xml; charset=UTF-8";
+	private static final String HTML = "text/html; charset=UTF-8";
+	// smaller bodies are sent as they are, like most servers do
+	private static final int GZIP_MIN_BYTES = 256;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final SimulatedIssues issues;
+	private final Map<String, SimulatedNation> nations = new ConcurrentHashMap<>();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final String startedAt = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+
+	private volatile long latencyNanos;
+	private volatile long jitterNanos;
+	private volatile Recording replay;
+	private volatile long issueIntervalMillis = DEFAULT_ISSUE_INTERVAL.toMillis();
+
+	private final Object rateLock = new Object();
+	private int rateLimit;
+	private long windowNanos;
+	private long windowStart;
+	private int windowCount;
+
+	private StandInServer(HttpServer server, long seed, int issueCount) {
+		this.server = server;
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		this.issues = new SimulatedIssues(seed, issueCount);
+
+		server.setExecutor(executor);
+		server.createContext(Endpoints.API_PATH, this::handleApi);
+		server.createContext(Endpoints.RESULTS_PATH, this::handleResults);
+	}
+
+	/**
+	 * Starts a server on a free loopback port with DEFAULT_ISSUE_COUNT issues.
+	 *
+	 * @return running server
+	 * @throws IOException if the port cannot be bound
+	 */
+	public static StandInServer start() throws IOException {
+		return start(0, 1L, DEFAULT_ISSUE_COUNT);
+	}
+
+	/**
+	 * pre: port >= 0 (0 picks a free port) && issueCount >= ISSUES_PER_NATION
+	 *
+	 * @param port
+	 * @param seed seeds the issue effect tables, the same seed always produces the same issues
+	 * @param issueCount issue ids handed out run from 1 to issueCount
+	 * @return running server
+	 * @throws IOException if the port cannot be bound
+	 */
+	public static StandInServer start(int port, long seed, int issueCount) throws IOException {
+		if (port < 0 || issueCount < ISSUES_PER_NATION) {
+			throw new IllegalArgumentException("Port cannot be negative and issue count must cover a full issue list");
+		}
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+		StandInServer standIn = new StandInServer(server, seed, issueCount);
+		server.start();
+
+		return standIn;
+	}
+
+	/**
+	 * Returns endpoints that send every request to this server.
+	 *
+	 * @return endpoints
+	 */
+	public Endpoints endpoints() {
+		return Endpoints.at(baseUri());
+	}
+
+	public URI baseUri() {
+		InetSocketAddress address = server.getAddress();
+		return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+	}
+
+	/**
+	 * Registers a nation with ISSUES_PER_NATION random pending issues and random census scores.
+	 * Further issues arrive every issueInterval() while fewer than ISSUES_PER_NATION are pending.
+	 *
+	 * pre: (nationName != null && password != null && both not blank)
+	 *
+	 * @param nationName
+	 * @param password
+	 * @return credentials to log in with
+	 */
+	public NationCredentials addNation(String nationName, String password) {
+		NationCredentials credentials = new NationCredentials(nationName, password);
+		SimulatedNation nation = new SimulatedNation(SimulatedNation.canonical(nationName), password);
+
+		while (nation.issues.size() < ISSUES_PER_NATION) {
+			addIssue(nation);
+		}
+		nation.nextIssueAt = System.currentTimeMillis() + issueIntervalMillis;
+
+		nations.put(nation.name, nation);
+		return credentials;
+	}
+
+	/**
+	 * Returns the ids of a nation's unanswered issues, empty for unknown nations.
+	 *
+	 * @param nationName
+	 * @return issueIds
+	 */
+	public List<Integer> pendingIssues(String nationName) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation == null) {
+			return List.of();
+		}
+
+		synchronized (nation) {
+			return List.copyOf(nation.issues);
+		}
+	}
+
+	/**
+	 * Returns how many issues a nation has answered, 0 for unknown nations.
+	 *
+	 * @param nationName
+	 * @return answered
+	 */
+	public int answeredIssues(String nationName) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation == null) {
+			return 0;
+		}
+
+		synchronized (nation) {
+			return nation.answered;
+		}
+	}
+
+	/**
+	 * Returns how many c=issue answers a nation has received, accepted or not.
+	 *
+	 * @param nationName
+	 * @return attempts, 0 for unknown nations
+	 */
+	public int answerAttempts(String nationName) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation == null) {
+			return 0;
+		}
+
+		synchronized (nation) {
+			return nation.answerAttempts;
+		}
+	}
+
+	/**
+	 * Makes every answer of a nation fail with error (eg: "Issue not found."), null to accept them again.
+	 *
+	 * @param nationName
+	 * @param error text of the ERROR element
+	 */
+	public void failAnswers(String nationName, String error) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation != null) {
+			synchronized (nation) {
+				nation.answerError = error;
+			}
+		}
+	}
+
+	/**
+	 * Returns how many requests for a nation authenticated with its password rather than a pin.
+	 *
+	 * @param nationName
+	 * @return logins, 0 for unknown nations
+	 */
+	public int passwordLogins(String nationName) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation == null) {
+			return 0;
+		}
+
+		synchronized (nation) {
+			return nation.passwordLogins;
+		}
+	}
+
+	/**
+	 * Invalidates a nation's pin, as NationStates does when a session ends; the next password
+	 * login issues a new one.
+	 *
+	 * @param nationName
+	 */
+	public void expirePin(String nationName) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation != null) {
+			synchronized (nation) {
+				nation.pin = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns a nation's current census score, NaN for unknown nations.
+	 *
+	 * @param nationName
+	 * @param scale
+	 * @return score
+	 */
+	public double score(String nationName, CensusScale scale) {
+		SimulatedNation nation = nations.get(SimulatedNation.canonical(nationName));
+		if (nation == null) {
+			return Double.NaN;
+		}
+
+		synchronized (nation) {
+			return nation.census[scale.ordinal()];
+		}
+	}
+
+	/**
+	 * Sets how often a nation receives a new issue, applies from each nation's next issue onwards.
+	 *
+	 * pre: (interval != null && interval is positive)
+	 *
+	 * @param interval
+	 * @return this
+	 */
+	public StandInServer issueInterval(Duration interval) {
+		if (interval == null || interval.isZero() || interval.isNegative()) {
+			throw new IllegalArgumentException("Issue interval must be positive");
+		}
+
+		this.issueIntervalMillis = interval.toMillis();
+		return this;
+	}
+
+	/**
+	 * Delays every response by base plus a uniform random share of jitter.
+	 *
+	 * pre: (base != null && jitter != null && neither is negative)
+	 *
+	 * @param base
+	 * @param jitter
+	 * @return this
+	 */
+	public StandInServer latency(Duration base, Duration jitter) {
+		if (base == null || jitter == null || base.isNegative() || jitter.isNegative()) {
+			throw new IllegalArgumentException("Latency cannot be null or negative");
+		}
+
+		this.latencyNanos = base.toNanos();
+		this.jitterNanos = jitter.toNanos();
+		return this;
+	}
+
+	/**
+	 * Limits api requests to a fixed number per window, as NationStates does per IP.
+	 *
+	 * pre: (window != null && window is positive) when requests > 0, requests <= 0 removes the limit
+	 *
+	 * @param requests allowed per window
+	 * @param window
+	 * @return this
+	 */
+	public StandInServer rateLimit(int requests, Duration window) {
+		if (requests > 0 && (window == null || window.isZero() || window.isNegative())) {
+			throw new IllegalArgumentException("Rate limit window must be positive");
+		}
+
+		synchronized (rateLock) {
+			this.rateLimit = Math.max(requests, 0);
+			this.windowNanos = (requests > 0) ? window.toNanos() : 0;
+			this.windowStart = System.nanoTime();
+			this.windowCount = 0;
+		}
+		return this;
+	}
+
+	/**
+	 * Serves recorded exchanges ahead of simulated responses, null stops replaying.
+	 *
+	 * @param recording
+	 * @return this
+	 */
+	public StandInServer replay(Recording recording) {
+		this.replay = recording;
+		return this;
+	}
+
+	/**
+	 * Returns the number of requests received so far.
+	 *
+	 * @return requestCount
+	 */
+	public long requestCount() {
+		return requestCount.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handleApi(HttpExchange exchange) throws IOException {
+		try {
+			String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			requestCount.incrementAndGet();
+			delay();
+
+			if (!admit(exchange)) {
+				respond(exchange, 429, XML, "<h1>Too Many Requests</h1>");
+				return;
+			}
+			if (replayed(exchange, requestBody)) {
+				return;
+			}
+
+			Map<String, String> parameters = formParameters(exchange.getRequestURI().getRawQuery());
+			if ("POST".equals(exchange.getRequestMethod())) {
+				parameters.putAll(formParameters(requestBody));
+			}
+
+			String nationName = parameters.get("nation");
+			SimulatedNation nation = (nationName == null) ? null : nations.get(SimulatedNation.canonical(nationName));
+			if (nation == null) {
+				respond(exchange, 404, XML, "<h1>Unknown nation</h1>");
+			} else if (!authenticate(nation, exchange)) {
+				respond(exchange, 403, XML, "<h1>Authentication Failed</h1>");
+			} else if ("issue".equals(parameters.get("c"))) {
+				respond(exchange, 200, XML, answer(nation, parameters));
+			} else {
+				respond(exchange, 200, XML, shards(nation, parameters.getOrDefault("q", "")));
+			}
+		} catch (NumberFormatException e) {
+			respondQuietly(exchange, 400, "<h1>Bad Request</h1>");
+		} catch (RuntimeException e) {
+			respondQuietly(exchange, 500, "<h1>Internal Server Error</h1>");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void handleResults(HttpExchange exchange) throws IOException {
+		try {
+			requestCount.incrementAndGet();
+			delay();
+
+			if (replayed(exchange, "")) {
+				return;
+			}
+
+			String page = exchange.getRequestURI().getPath().substring(Endpoints.RESULTS_PATH.length());
+			int issueId = page.endsWith(".html") ? parseOrZero(page.substring(0, page.length() - 5)) : 0;
+
+			if (issues.exists(issueId)) {
+				String html = issues.issue(issueId).toHtml();
+				String etag = "\"" + Integer.toHexString(html.hashCode()) + "\"";
+				exchange.getResponseHeaders().set("ETag", etag);
+				exchange.getResponseHeaders().set("Last-Modified", startedAt);
+
+				if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					send(exchange, 304, new byte[0]);
+				} else {
+					respond(exchange, 200, HTML, html);
+				}
+			} else {
+				respond(exchange, 404, HTML, "<h1>Not Found</h1>");
+			}
+		} catch (RuntimeException e) {
+			respondQuietly(exchange, 500, "<h1>Internal Server Error</h1>");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private boolean replayed(HttpExchange exchange, String requestBody) throws IOException {
+		Recording recording = replay;
+		if (recording == null) {
+			return false;
+		}
+
+		String target = exchange.getRequestURI().getRawPath();
+		if (exchange.getRequestURI().getRawQuery() != null) {
+			target += "?" + exchange.getRequestURI().getRawQuery();
+		}
+
+		Recording.Exchange recorded = recording.next(exchange.getRequestMethod(), target, requestBody);
+		if (recorded == null) {
+			return false;
+		}
+
+		recorded.headers().forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+		send(exchange, recorded.status(), recorded.body());
+		return true;
+	}
+
+	private boolean authenticate(SimulatedNation nation, HttpExchange exchange) {
+		String pin = exchange.getRequestHeaders().getFirst("X-Pin");
+		String password = exchange.getRequestHeaders().getFirst("X-Password");
+
+		synchronized (nation) {
+			deliverDueIssues(nation);
+
+			if (pin != null && pin.equals(nation.pin)) {
+				return true;
+			}
+			if (password != null && password.equals(nation.password)) {
+				nation.passwordLogins++;
+				if (nation.pin == null) {
+					nation.pin = Long.toString(ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L));
+				}
+				exchange.getResponseHeaders().set("X-Pin", nation.pin);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Adds the issues that became due since the last request, NationStates style: one per interval,
+	 * and the clock restarts from now while the nation is full.
+	 * Caller holds the nation's lock.
+	 */
+	private void deliverDueIssues(SimulatedNation nation) {
+		long now = System.currentTimeMillis();
+		long interval = issueIntervalMillis;
+
+		while (now >= nation.nextIssueAt) {
+			if (nation.issues.size() < ISSUES_PER_NATION) {
+				addIssue(nation);
+				nation.nextIssueAt += interval;
+			} else {
+				nation.nextIssueAt = now + interval;
+			}
+		}
+	}
+
+	private void addIssue(SimulatedNation nation) {
+		int issueId;
+		do {
+			issueId = issues.randomIssueId();
+		} while (nation.issues.contains(issueId));
+
+		nation.issues.add(issueId);
+	}
+
+	/**
+	 * Counts an api request against the current window and sets the rate limit headers.
+	 * Returns false when the request is over the limit, with Retry-After set.
+	 */
+	private boolean admit(HttpExchange exchange) {
+		int limit;
+		int count;
+		long resetNanos;
+
+		synchronized (rateLock) {
+			if (rateLimit == 0) {
+				return true;
+			}
+
+			long now = System.nanoTime();
+			if (now - windowStart >= windowNanos) {
+				windowStart = now;
+				windowCount = 0;
+			}
+
+			limit = rateLimit;
+			count = ++windowCount;
+			resetNanos = windowStart + windowNanos - now;
+		}
+
+		long resetSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(resetNanos + 999_999_999L));
+		exchange.getResponseHeaders().set("RateLimit-Policy", limit + ";w=" + TimeUnit.NANOSECONDS.toSeconds(windowNanos));
+		exchange.getResponseHeaders().set("RateLimit-Limit", Integer.toString(limit));
+		exchange.getResponseHeaders().set("RateLimit-Remaining", Integer.toString(Math.max(0, limit - count)));
+		exchange.getResponseHeaders().set("RateLimit-Reset", Long.toString(resetSeconds));
+
+		if (count > limit) {
+			exchange.getResponseHeaders().set("Retry-After", Long.toString(resetSeconds));
+			return false;
+		}
+		return true;
+	}
+
+	private String shards(SimulatedNation nation, String query) {
+		Set<String> shards = new TreeSet<>();
+		Set<Integer> scales = new TreeSet<>();
+		boolean inScaleList = false;
+
+		// q=issues+census+nextissuetime;scale=0+48 arrives decoded as space separated tokens,
+		// the ;scale= modifier can follow any shard and its list continues in the next tokens
+		for (String token : query.trim().split("\\s+")) {
+			String shard = token.toLowerCase(Locale.ROOT);
+
+			if (inScaleList && (shard.equals("all") || (!shard.isEmpty() && shard.chars().allMatch(Character::isDigit)))) {
+				addScale(scales, shard);
+				continue;
+			}
+
+			inScaleList = false;
+			int modifier = shard.indexOf(';');
+			if (modifier >= 0) {
+				int scale = shard.indexOf("scale=", modifier);
+				if (scale >= 0) {
+					addScale(scales, shard.substring(scale + 6));
+					inScaleList = true;
+				}
+				shard = shard.substring(0, modifier);
+			}
+
+			if (!shard.isEmpty()) {
+				shards.add(shard);
+			}
+		}
+		boolean census = shards.contains("census");
+
+		StringBuilder xml = new StringBuilder(1024).append("<NATION id=\"").append(nation.name).append("\">\n");
+
+		synchronized (nation) {
+			if (shards.contains("nextissuetime")) {
+				xml.append("<NEXTISSUETIME>").append(TimeUnit.MILLISECONDS.toSeconds(nation.nextIssueAt)).append("</NEXTISSUETIME>\n");
+			}
+
+			if (shards.contains("issues")) {
+				xml.append("<ISSUES>\n");
+				for (int issueId : nation.issues) {
+					xml.append(issues.issue(issueId).toXml());
+				}
+				xml.append("</ISSUES>\n");
+			}
+
+			if (shards.contains("freedomscores")) {
+				xml.append("<FREEDOMSCORES>\n")
+						.append("<CIVILRIGHTS>").append(nation.freedomScore(CensusScale.CIVIL_RIGHTS)).append("</CIVILRIGHTS>\n")
+						.append("<ECONOMY>").append(nation.freedomScore(CensusScale.ECONOMY)).append("</ECONOMY>\n")
+						.append("<POLITICALFREEDOM>").append(nation.freedomScore(CensusScale.POLITICAL_FREEDOM)).append("</POLITICALFREEDOM>\n")
+						.append("</FREEDOMSCORES>\n");
+			}
+
+			if (census) {
+				xml.append("<CENSUS>\n");
+				for (CensusScale scale : CensusScale.values()) {
+					if (scales.isEmpty() || scales.contains(scale.id())) {
+						xml.append("<SCALE id=\"").append(scale.id()).append("\">\n<SCORE>")
+								.append(format(nation.census[scale.ordinal()])).append("</SCORE>\n</SCALE>\n");
+					}
+				}
+				xml.append("</CENSUS>\n");
+			}
+		}
+
+		return xml.append("</NATION>\n").toString();
+	}
+
+	private String answer(SimulatedNation nation, Map<String, String> parameters) {
+		int issueId = Integer.parseInt(parameters.getOrDefault("issue", "0"));
+		int option = Integer.parseInt(parameters.getOrDefault("option", "-1"));
+		StringBuilder xml = new StringBuilder(1024)
+				.append("<NATION id=\"").append(nation.name).append("\">\n")
+				.append("<ISSUE id=\"").append(issueId).append("\" choice=\"").append(option).append("\">\n");
+
+		synchronized (nation) {
+			nation.answerAttempts++;
+			if (nation.answerError != null) {
+				xml.append("<ERROR>").append(nation.answerError).append("</ERROR>\n");
+			} else if (!nation.issues.contains(issueId)) {
+				xml.append("<ERROR>Issue not found.</ERROR>\n");
+			} else if (option < 0 || option >= issues.issue(issueId).optionCount()) {
+				xml.append("<ERROR>Invalid choice.</ERROR>\n");
+			} else {
+				SimulatedIssues.Issue issue = issues.issue(issueId);
+				nation.issues.remove(Integer.valueOf(issueId));
+				nation.answered++;
+
+				xml.append("<OK>1</OK>\n<DESC>Simulated outcome.</DESC>\n<RANKINGS>\n");
+				int[] scales = issue.scales(option);
+				for (int k = 0; k < scales.length; k++) {
+					double before = nation.census[scales[k]];
+					double change = issue.sample(option, k);
+					nation.census[scales[k]] = before + change;
+
+					xml.append("<RANK id=\"").append(CensusScale.values()[scales[k]].id()).append("\">\n")
+							.append("<SCORE>").append(format(before + change)).append("</SCORE>\n")
+							.append("<CHANGE>").append(format(change)).append("</CHANGE>\n")
+							.append("<PCHANGE>").append(format(before == 0.0 ? 0.0 : change / before * 100.0)).append("</PCHANGE>\n")
+							.append("</RANK>\n");
+				}
+				xml.append("</RANKINGS>\n");
+			}
+		}
+
+		return xml.append("</ISSUE>\n</NATION>\n").toString();
+	}
+
+	private void delay() {
+		long nanos = latencyNanos;
+		if (jitterNanos > 0) {
+			nanos += ThreadLocalRandom.current().nextLong(jitterNanos);
+		}
+
+		if (nanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(nanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static void addScale(Set<Integer> scales, String scale) {
+		if (scale.equals("all")) {
+			return;
+		}
+		scales.add(Integer.parseInt(scale));
+	}
+
+	private static Map<String, String> formParameters(String form) {
+		Map<String, String> parameters = new HashMap<>();
+		if (form == null || form.isBlank()) {
+			return parameters;
+		}
+
+		for (String pair : form.trim().split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0) {
+				parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+		}
+
+		return parameters;
+	}
+
+	private static int parseOrZero(String number) {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		send(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (body.length >= GZIP_MIN_BYTES && accepted != null && accepted.toLowerCase(Locale.ROOT).contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write(body);
+			}
+			body = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static void respondQuietly(HttpExchange exchange, int status, String body) {
+		try {
+			respond(exchange, status, XML, body);
+		} catch (IOException | RuntimeException e) {
+			// headers were already sent, the client sees a truncated response
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import backend.ApiResponseParser;
+import backend.IssueResult;
+import backend.NationShards;
+
+class ApiResponseParserTests {
+
+	@Test
+	void parsesIssueIds() throws IOException {
+		String xml = "<NATION id=\"testlandia\"><ISSUES>"
+				+ "<ISSUE id=\"123\"><TITLE>A</TITLE><OPTION id=\"0\">x</OPTION></ISSUE>"
+				+ "<ISSUE id=\"1456\"><TITLE>B</TITLE></ISSUE>"
+				+ "</ISSUES></NATION>";
+
+		assertEquals(List.of(123, 1456), ApiResponseParser.parseIssueIds(stream(xml)));
+	}
+
+	@Test
+	void parsesFreedomScoresInAnyOrder() throws IOException {
+		String xml = "<NATION id=\"testlandia\"><FREEDOMSCORES>"
+				+ "<POLITICALFREEDOM>41</POLITICALFREEDOM>"
+				+ "<CIVILRIGHTS>67</CIVILRIGHTS>"
+				+ "<ECONOMY>80</ECONOMY>"
+				+ "</FREEDOMSCORES></NATION>";
+
+		Map<String, Double> scores = ApiResponseParser.parseFreedomScores(stream(xml));
+
+		assertEquals(67.0, scores.get("Civil Rights"));
+		assertEquals(80.0, scores.get("Economy"));
+		assertEquals(41.0, scores.get("Political Freedom"));
+	}
+
+	@Test
+	void parsesRequestedCensusScales() throws IOException {
+		String xml = "<NATION id=\"testlandia\"><CENSUS>"
+				+ "<SCALE id=\"0\"><SCORE>52.10</SCORE><RANK>10</RANK></SCALE>"
+				+ "<SCALE id=\"48\"><RANK>4</RANK><SCORE>63.75</SCORE></SCALE>"
+				+ "</CENSUS></NATION>";
+
+		Map<Integer, Double> scores = ApiResponseParser.parseCensusScores(stream(xml), Set.of(48));
+
+		assertEquals(Map.of(48, 63.75), scores);
+	}
+
+	@Test
+	void parsesCombinedShardsInOnePass() throws IOException {
+		String xml = "<NATION id=\"testlandia\">"
+				+ "<ISSUES><ISSUE id=\"7\"><TITLE>A</TITLE></ISSUE></ISSUES>"
+				+ "<FREEDOMSCORES><CIVILRIGHTS>67</CIVILRIGHTS><ECONOMY>80</ECONOMY><POLITICALFREEDOM>41</POLITICALFREEDOM></FREEDOMSCORES>"
+				+ "<CENSUS><SCALE id=\"48\"><SCORE>63.75</SCORE></SCALE></CENSUS>"
+				+ "<NEXTISSUETIME>1700000000</NEXTISSUETIME>"
+				+ "</NATION>";
+
+		NationShards shards = ApiResponseParser.parseShards(stream(xml), Set.of(48));
+
+		assertEquals(List.of(7), shards.issueIds());
+		assertEquals(67.0, shards.freedomScores().get("Civil Rights"));
+		assertEquals(63.75, shards.censusScores().get(48));
+		assertEquals(1700000000L, shards.nextIssueTime());
+	}
+
+	@Test
+	void parsesIssueAnswerChanges() throws IOException {
+		String xml = "<NATION id=\"testlandia\"><ISSUE id=\"7\" choice=\"1\"><OK>1</OK>"
+				+ "<RANKINGS><RANK id=\"0\"><SCORE>52.1</SCORE><CHANGE>1.25</CHANGE><PCHANGE>2.4</PCHANGE></RANK>"
+				+ "<RANK id=\"48\"><SCORE>60</SCORE><CHANGE>-0.5</CHANGE></RANK></RANKINGS>"
+				+ "</ISSUE></NATION>";
+
+		IssueResult result = ApiResponseParser.parseIssueResult(stream(xml));
+
+		assertTrue(result.succeeded());
+		assertEquals(Map.of(0, 1.25, 48, -0.5), result.censusChanges());
+	}
+
+	@Test
+	void parsesIssueAnswerError() throws IOException {
+		String xml = "<NATION id=\"testlandia\"><ISSUE id=\"7\" choice=\"9\"><ERROR>Invalid choice.</ERROR></ISSUE></NATION>";
+
+		assertFalse(ApiResponseParser.parseIssueResult(stream(xml)).succeeded());
+	}
+
+	private static InputStream stream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,143 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import backend.ContentDecoding;
+
+class ContentDecodingTests {
+	private static final byte[] BODY = "<issue id=\"7\"><option>Raise taxes</option></issue>\n".repeat(200)
+			.getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void gzipDecodesWhereverTheBodyIsSplit() throws Exception {
+		byte[] gzip = gzip(BODY);
+
+		for (int split = 0; split <= gzip.length; split += 7) {
+			assertArrayEquals(BODY, decode("gzip", List.of(slice(gzip, 0, split), slice(gzip, split, gzip.length))));
+		}
+		assertArrayEquals(BODY, decode("gzip", oneBytePerChunk(gzip)));
+	}
+
+	@Test
+	void deflateAcceptsZlibAndRawStreams() throws Exception {
+		byte[] zlib = deflate(BODY, false);
+		byte[] raw = deflate(BODY, true);
+
+		assertArrayEquals(BODY, decode("deflate", List.of(zlib)));
+		assertArrayEquals(BODY, decode("deflate", List.of(raw)));
+		assertArrayEquals(BODY, decode("deflate", oneBytePerChunk(zlib)));
+	}
+
+	@Test
+	void identityIsPassedThrough() throws Exception {
+		assertArrayEquals(BODY, decode(null, List.of(BODY)));
+	}
+
+	@Test
+	void truncatedAndCorruptBodiesFail() {
+		byte[] gzip = gzip(BODY);
+		byte[] corrupt = gzip.clone();
+		corrupt[20] ^= 0x55;
+
+		ExecutionException truncated = assertThrows(ExecutionException.class,
+				() -> decode("gzip", List.of(slice(gzip, 0, gzip.length / 2))));
+		assertInstanceOf(EOFException.class, truncated.getCause());
+		assertThrows(ExecutionException.class, () -> decode("gzip", List.of(corrupt)));
+		assertThrows(ExecutionException.class, () -> decode("gzip", List.of(BODY)));
+	}
+
+	/**
+	 * Feeds chunks through a decoding subscriber as the HttpClient would, one chunk per request(1).
+	 */
+	private static byte[] decode(String encoding, List<byte[]> chunks) throws Exception {
+		HttpHeaders headers = HttpHeaders.of((encoding == null) ? Map.of() : Map.of("Content-Encoding", List.of(encoding)),
+				(name, value) -> true);
+		BodySubscriber<byte[]> subscriber = ContentDecoding.decode(headers, BodySubscribers.ofByteArray());
+
+		subscriber.onSubscribe(new Flow.Subscription() {
+			private int next;
+			private boolean delivering;
+			private long demand;
+
+			@Override
+			public void request(long n) {
+				demand += n;
+				if (delivering) {
+					return;
+				}
+				delivering = true;
+				while (demand > 0 && next < chunks.size()) {
+					demand--;
+					subscriber.onNext(List.of(ByteBuffer.wrap(chunks.get(next++))));
+				}
+				if (next == chunks.size()) {
+					next++;
+					subscriber.onComplete();
+				}
+				delivering = false;
+			}
+
+			@Override
+			public void cancel() {
+				next = chunks.size() + 1;
+			}
+		});
+
+		CompletableFuture<byte[]> body = subscriber.getBody().toCompletableFuture();
+		assertTrue(body.isDone());
+		return body.get();
+	}
+
+	private static List<byte[]> oneBytePerChunk(byte[] bytes) {
+		List<byte[]> chunks = new ArrayList<>();
+		for (int i = 0; i < bytes.length; i++) {
+			chunks.add(slice(bytes, i, i + 1));
+		}
+		return chunks;
+	}
+
+	private static byte[] slice(byte[] bytes, int from, int to) {
+		return Arrays.copyOfRange(bytes, from, to);
+	}
+
+	private static byte[] gzip(byte[] bytes) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] bytes, boolean raw) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+			deflate.write(bytes);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+}
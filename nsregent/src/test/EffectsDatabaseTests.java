@@ -0,0 +1,178 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import backend.CensusScale;
+import backend.EffectsCrawler;
+import backend.EffectsDatabase;
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.IssueHandler;
+import backend.Metrics;
+import backend.MetricsSnapshot;
+import backend.OptionMatrix;
+import backend.RateLimiter;
+import backend.RegentContext;
+import sim.Recording;
+import sim.StandInServer;
+
+class EffectsDatabaseTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void roundTripsRangesAndMeans() throws IOException {
+		OptionMatrix first = OptionMatrix.builder()
+				.effect(0, CensusScale.CIVIL_RIGHTS, -0.5, 1.25, 2.31)
+				.effect(2, CensusScale.INDUSTRY_CHEESE_EXPORTS, -2.1)
+				.option(1)
+				.build();
+		OptionMatrix second = OptionMatrix.builder().effect(0, CensusScale.ECONOMIC_FREEDOM, 0.1, 0.4, 0.9).build();
+		Path file = directory.resolve("effects.db");
+
+		EffectsDatabase.write(file, Map.of(7, first, 300, second, 9, OptionMatrix.builder().build()));
+		EffectsDatabase database = EffectsDatabase.open(file);
+
+		assertEquals(first, database.get(7));
+		assertEquals(second, database.get(300));
+		assertNull(database.get(9));
+		assertNull(database.get(8));
+		assertNull(database.get(301));
+		assertEquals(2, database.issueCount());
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path file = directory.resolve("effects.db");
+		Files.write(file, new byte[64]);
+
+		assertThrows(IOException.class, () -> EffectsDatabase.open(file));
+	}
+
+	@Test
+	void crawledDatabaseAnswersIssuesWithoutResultsPages() throws Exception {
+		HttpTransport transport = new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 2,
+				new RateLimiter(1000, Duration.ofSeconds(1)));
+
+		try (StandInServer server = StandInServer.start(0, 7, 12)) {
+			EffectsCrawler.Result crawled = new EffectsCrawler(transport, server.endpoints(), "tests").crawl(1, 0);
+			assertEquals(12, crawled.issues().size());
+			assertTrue(crawled.failedIssueIds().isEmpty());
+
+			Path file = directory.resolve("effects.db");
+			EffectsDatabase.write(file, crawled.issues());
+			EffectsDatabase database = EffectsDatabase.open(file);
+			assertEquals(crawled.issues().get(5), database.get(5));
+
+			server.addNation("testlandia", "secret");
+			RegentContext context = RegentContext.builder(transport, new IssueEffectCache(null, Duration.ofDays(1), 100, 1))
+					.endpoints(server.endpoints()).effectsDatabase(database).build();
+			long pagesBefore = transport.metrics().snapshot().endpoints().get(Metrics.RESULTS_PAGE).requests();
+
+			assertEquals("success", new IssueHandler("testlandia", "secret", "tests", context)
+					.handleIssues(Map.of("Civil Rights", 50.0)));
+
+			MetricsSnapshot metrics = transport.metrics().snapshot();
+			assertEquals(StandInServer.ISSUES_PER_NATION, metrics.counter(Metrics.EFFECTS_DB_HITS));
+			assertEquals(pagesBefore, metrics.endpoints().get(Metrics.RESULTS_PAGE).requests());
+		} finally {
+			transport.shutdown();
+		}
+	}
+
+	@Test
+	void mergeKeepsIssuesOutsideTheNewCrawl() throws Exception {
+		OptionMatrix first = OptionMatrix.builder().effect(0, CensusScale.CIVIL_RIGHTS, -0.5, 1.25, 2.31).build();
+		OptionMatrix second = OptionMatrix.builder().effect(0, CensusScale.ECONOMIC_FREEDOM, 0.1, 0.4, 0.9).build();
+		OptionMatrix recrawled = OptionMatrix.builder().effect(1, CensusScale.CIVIL_RIGHTS, 2.0).build();
+		Path file = directory.resolve("effects.db");
+		EffectsDatabase.write(file, Map.of(7, first, 300, second));
+		Instant created = EffectsDatabase.open(file).createdAt();
+		Thread.sleep(5);
+
+		EffectsDatabase.merge(file, Map.of(7, recrawled));
+		EffectsDatabase merged = EffectsDatabase.open(file);
+		assertEquals(recrawled, merged.get(7));
+		assertEquals(second, merged.get(300));
+		// issue 300 is as old as before, and so is the snapshot
+		assertEquals(created, merged.createdAt());
+
+		EffectsDatabase.merge(file, Map.of(7, first, 300, second));
+		assertTrue(EffectsDatabase.open(file).createdAt().isAfter(created));
+	}
+
+	@Test
+	void failedPagesNeitherEndTheCrawlNorGoMissing() throws Exception {
+		HttpTransport transport = new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 2,
+				new RateLimiter(1000, Duration.ofSeconds(1)));
+
+		try (StandInServer server = StandInServer.start(0, 7, 40)) {
+			// more consecutive errors than misses end a walk, each of these pages fails once and then loads
+			HttpClient client = HttpClient.newHttpClient();
+			Recording flaky = new Recording();
+			for (int issueId = 5; issueId < 5 + EffectsCrawler.MISSES_BEFORE_STOP + 5; issueId++) {
+				String target = "/ns/results/" + issueId + ".html";
+				byte[] page = client.send(HttpRequest.newBuilder(URI.create(server.endpoints().resultsUrl(issueId))).build(),
+						HttpResponse.BodyHandlers.ofByteArray()).body();
+				flaky.add(new Recording.Exchange("GET", target, "", 429, Map.of("Retry-After", "1"), new byte[0]));
+				flaky.add(new Recording.Exchange("GET", target, "", 200, Map.of("Content-Type", "text/html"), page));
+			}
+			server.replay(flaky);
+
+			EffectsCrawler.Result crawled = new EffectsCrawler(transport, server.endpoints(), "tests").crawl(1, 0);
+
+			assertEquals(40, crawled.issues().size());
+			assertTrue(crawled.failedIssueIds().isEmpty());
+		} finally {
+			transport.shutdown();
+		}
+	}
+
+	@Test
+	void staleDatabaseFallsThroughToTheResultsPages() throws Exception {
+		HttpTransport transport = new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 2,
+				new RateLimiter(1000, Duration.ofSeconds(1)));
+
+		try (StandInServer server = StandInServer.start(0, 7, 12)) {
+			Path file = directory.resolve("effects.db");
+			EffectsDatabase.write(file, new EffectsCrawler(transport, server.endpoints(), "tests").crawl(1, 0).issues());
+			// backdate the created field of the header (after magic and version)
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				long created = Instant.now().minus(EffectsDatabase.MAX_AGE).minus(Duration.ofDays(1)).toEpochMilli();
+				channel.write(ByteBuffer.allocate(8).putLong(0, created), 8);
+			}
+			EffectsDatabase database = EffectsDatabase.open(file);
+			assertTrue(database.isStale());
+
+			server.addNation("testlandia", "secret");
+			RegentContext context = RegentContext.builder(transport, new IssueEffectCache(null, Duration.ofDays(1), 100, 1))
+					.endpoints(server.endpoints()).effectsDatabase(database).build();
+			assertEquals("success", new IssueHandler("testlandia", "secret", "tests", context)
+					.handleIssues(Map.of("Civil Rights", 50.0)));
+
+			MetricsSnapshot metrics = transport.metrics().snapshot();
+			assertEquals(0, metrics.counter(Metrics.EFFECTS_DB_HITS));
+			assertEquals(StandInServer.ISSUES_PER_NATION, metrics.counter(Metrics.CACHE_MISSES));
+		} finally {
+			transport.shutdown();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import backend.CensusScale;
+import backend.IssueEffectCache;
+import backend.OptionMatrix;
+
+class IssueEffectCacheTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void diskTierSurvivesNewInstance() {
+		new IssueEffectCache(directory, Duration.ofDays(1), 10, 10).put(42, options());
+
+		IssueEffectCache reopened = new IssueEffectCache(directory, Duration.ofDays(1), 10, 10);
+
+		assertEquals(options(), reopened.get(42));
+	}
+
+	@Test
+	void expiredEntriesAreMisses() throws InterruptedException {
+		new IssueEffectCache(directory, Duration.ofDays(1), 10, 10).put(42, options());
+		Thread.sleep(5);
+
+		assertNull(new IssueEffectCache(directory, Duration.ZERO, 10, 10).get(42));
+	}
+
+	@Test
+	void diskTierIsBounded() {
+		IssueEffectCache cache = new IssueEffectCache(directory, Duration.ofDays(1), 1, 2);
+		cache.put(1, options());
+		cache.put(2, options());
+		cache.put(3, options());
+
+		assertEquals(2, directory.toFile().list().length);
+	}
+
+	@Test
+	void diskTierEvictsLeastRecentlyRead() {
+		IssueEffectCache cache = new IssueEffectCache(directory, Duration.ofDays(1), 1, 2);
+		cache.put(1, options());
+		cache.put(2, options());
+
+		// memory holds only issue 2, so this reads issue 1 back from disk
+		assertEquals(options(), cache.get(1));
+		cache.put(3, options());
+
+		assertTrue(Files.exists(directory.resolve("1.effects")));
+		assertFalse(Files.exists(directory.resolve("2.effects")));
+		assertTrue(Files.exists(directory.resolve("3.effects")));
+	}
+
+	@Test
+	void failedWritesLeaveNoTempFiles() throws Exception {
+		// a non empty directory where the file should go makes the final move fail
+		Files.createDirectories(directory.resolve("42.effects").resolve("blocker"));
+		IssueEffectCache cache = new IssueEffectCache(directory, Duration.ofDays(1), 10, 10);
+
+		cache.put(42, options());
+
+		assertEquals(options(), cache.get(42));
+		try (var files = Files.list(directory)) {
+			assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+		}
+	}
+
+	private static OptionMatrix options() {
+		return OptionMatrix.builder()
+				.effect(0, CensusScale.CIVIL_RIGHTS, -0.5, 1.5, 2.75)
+				.effect(0, CensusScale.INDUSTRY_BASKET_WEAVING, -0.25)
+				.option(1)
+				.build();
+	}
+}
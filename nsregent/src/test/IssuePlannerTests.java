@@ -0,0 +1,64 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import backend.IssuePlanner;
+import backend.OptionMatrix;
+import backend.StatVector;
+
+class IssuePlannerTests {
+
+	@Test
+	void plansAcrossIssuesWhereGreedyFails() {
+		// greedy takes +3 on the first issue and then overshoots; the plan takes +1 then +4
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 0.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 5.0));
+		List<OptionMatrix> issues = List.of(
+				OptionMatrix.fromMap(Map.of(0, Map.of("Civil Rights", 3.0), 1, Map.of("Civil Rights", 1.0))),
+				OptionMatrix.fromMap(Map.of(0, Map.of("Civil Rights", 4.0), 1, Map.of("Civil Rights", -1.0))));
+
+		IssuePlanner.Plan plan = new IssuePlanner().plan(current, target, issues);
+
+		assertArrayEquals(new int[] {1, 0}, plan.options());
+		assertEquals(0.0, plan.distance(), 1e-9);
+	}
+
+	@Test
+	void missingCategoriesCountAsNoChange() {
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 0.0, "Political Freedom", 0.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 1.0, "Political Freedom", 0.0));
+		List<OptionMatrix> issues = List.of(
+				OptionMatrix.fromMap(Map.of(0, Map.of("Political Freedom", 2.0), 1, Map.of("Civil Rights", 1.0))));
+
+		assertArrayEquals(new int[] {1}, new IssuePlanner().plan(current, target, issues).options());
+	}
+
+	@Test
+	void beamSearchMatchesExactSearchOnSmallProblems() {
+		Random random = new Random(7);
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 40.0, "Economic Freedom", 60.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 50.0, "Economic Freedom", 50.0));
+		List<OptionMatrix> issues = new ArrayList<>();
+
+		for (int i = 0; i < 5; i++) {
+			Map<Integer, Map<String, Double>> options = new HashMap<>();
+			for (int o = 0; o < 4; o++) {
+				options.put(o, Map.of("Civil Rights", random.nextGaussian() * 3, "Economic Freedom", random.nextGaussian() * 3));
+			}
+			issues.add(OptionMatrix.fromMap(options));
+		}
+
+		double exact = new IssuePlanner().plan(current, target, issues).distance();
+		double beam = new IssuePlanner(1024, 0).plan(current, target, issues).distance();
+
+		assertEquals(exact, beam, 1e-9);
+	}
+}
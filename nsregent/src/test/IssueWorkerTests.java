@@ -0,0 +1,69 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.IssueHandler;
+import backend.RegentContext;
+import frontend.IssueWorker;
+
+class IssueWorkerTests {
+	private static final Map<String, Double> TARGET = Map.of("Civil Rights", 50.0);
+
+	@Test
+	void cancelledWorkerReportsOnlyAfterTheCycleHasStopped() throws Exception {
+		RegentContext context = RegentContext.builder(HttpTransport.shared(), new IssueEffectCache(null, Duration.ofDays(1), 10, 1)).build();
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch finishRequest = new CountDownLatch(1);
+		// stands in for a cycle still finishing its request in flight after the interrupt
+		IssueHandler handler = new IssueHandler("testlandia", "secret", "tests", context) {
+			@Override
+			public String handleIssues(Map<String, Double> targetStats) throws InterruptedException {
+				running.countDown();
+				try {
+					Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+				} catch (InterruptedException e) {
+					finishRequest.await();
+				}
+				return "cancelled";
+			}
+		};
+		CompletableFuture<String> done = new CompletableFuture<>();
+		IssueWorker worker = new IssueWorker(handler, TARGET, events -> {
+		}, done::complete);
+
+		worker.execute();
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		SwingUtilities.invokeAndWait(worker::stop);
+		SwingUtilities.invokeAndWait(() -> {
+		});
+
+		assertFalse(done.isDone());
+		finishRequest.countDown();
+		assertEquals("cancelled", done.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void workerStoppedBeforeItStartsStillReports() throws Exception {
+		RegentContext context = RegentContext.builder(HttpTransport.shared(), new IssueEffectCache(null, Duration.ofDays(1), 10, 1)).build();
+		CompletableFuture<String> done = new CompletableFuture<>();
+		IssueWorker worker = new IssueWorker(new IssueHandler("testlandia", "secret", "tests", context), TARGET,
+				events -> {
+				}, done::complete);
+
+		SwingUtilities.invokeAndWait(worker::stop);
+
+		assertEquals("cancelled", done.get(5, TimeUnit.SECONDS));
+	}
+}
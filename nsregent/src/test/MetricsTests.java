@@ -0,0 +1,70 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+import org.junit.jupiter.api.Test;
+
+import backend.LatencyHistogram;
+import backend.Metrics;
+import backend.MetricsSnapshot;
+
+class MetricsTests {
+
+	@Test
+	void histogramQuantilesAreWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 10_000; value++) {
+			histogram.record(value * 1_000);
+		}
+
+		assertEquals(10_000, histogram.count());
+		assertEquals(10_000_000, histogram.max());
+		assertEquals(5_000_000, histogram.quantile(0.5), 5_000_000 * 0.04);
+		assertEquals(9_900_000, histogram.quantile(0.99), 9_900_000 * 0.04);
+		assertEquals(histogram.max(), histogram.quantile(1.0));
+	}
+
+	@Test
+	void emptyHistogramReportsZero() {
+		assertEquals(0, new LatencyHistogram().quantile(0.99));
+	}
+
+	@Test
+	void snapshotCollectsEndpointsStagesAndCounters() {
+		Metrics metrics = new Metrics();
+		metrics.recordRequest(Metrics.SHARDS, 200, 2_000_000);
+		metrics.recordRequest(Metrics.SHARDS, 403, 1_000_000);
+		metrics.recordStage(Metrics.DECISION, 50_000);
+		metrics.increment(Metrics.CACHE_HITS);
+		metrics.increment(Metrics.CACHE_HITS);
+
+		metrics.recordBytes(Metrics.SHARDS, 123);
+
+		MetricsSnapshot snapshot = metrics.snapshot();
+		MetricsSnapshot.EndpointStats shards = snapshot.endpoints().get(Metrics.SHARDS);
+
+		assertEquals(2, shards.requests());
+		assertEquals(1, shards.errors());
+		assertEquals(123, shards.bytes());
+		assertEquals(2, shards.latency().count());
+		assertEquals(1, snapshot.stages().get(Metrics.DECISION).count());
+		assertEquals(2, snapshot.counter(Metrics.CACHE_HITS));
+		assertEquals(0, snapshot.counter(Metrics.CACHE_MISSES));
+	}
+
+	@Test
+	void prometheusTextHasOneSamplePerLabel() {
+		Metrics metrics = new Metrics();
+		metrics.recordRequest(Metrics.ISSUE_ANSWER, 200, 1_000_000_000);
+		metrics.increment(Metrics.RATE_LIMITED);
+
+		String text = metrics.toPrometheus();
+
+		assertTrue(text.contains("# TYPE nsregent_requests_total counter\n"));
+		assertTrue(text.contains("nsregent_requests_total{endpoint=\"issue_answer\"} 1\n"));
+		assertTrue(text.contains("nsregent_request_duration_seconds_count{endpoint=\"issue_answer\"} 1\n"));
+		assertTrue(text.contains("nsregent_request_duration_seconds_sum{endpoint=\"issue_answer\"} 1\n"));
+		assertTrue(text.contains("nsregent_events_total{event=\"rate_limited_responses\"} 1\n"));
+	}
+}
@@ -0,0 +1,52 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import backend.CensusScale;
+import backend.IssueResult;
+import backend.NationState;
+import backend.StatVector;
+
+class NationStateTests {
+
+	@Test
+	void appliesReportedCensusChanges() {
+		NationState state = new NationState(stats(), 0);
+
+		state.apply(new IssueResult(null, Map.of(0, 1.5, 48, -2.0, 7, 9.0), true));
+
+		assertEquals(51.5, state.stats().get(CensusScale.CIVIL_RIGHTS));
+		assertEquals(58.0, state.stats().get(CensusScale.ECONOMIC_FREEDOM));
+		assertEquals(40.0, state.stats().get(CensusScale.POLITICAL_FREEDOM));
+		assertFalse(state.stats().has(CensusScale.ECO_FRIENDLINESS));
+		assertFalse(state.needsResync());
+	}
+
+	@Test
+	void requestsResyncAfterInterval() {
+		NationState state = new NationState(stats(), 2);
+
+		state.apply(new IssueResult(null, Map.of(), true));
+		assertFalse(state.needsResync());
+
+		state.apply(new IssueResult(null, Map.of(), true));
+		assertTrue(state.needsResync());
+	}
+
+	@Test
+	void requestsResyncWhenRankingsAreMissing() {
+		NationState state = new NationState(stats(), 0);
+
+		state.apply(new IssueResult(null, Map.of(), false));
+
+		assertTrue(state.needsResync());
+	}
+
+	private static StatVector stats() {
+		return StatVector.fromMap(Map.of("Civil Rights", 50.0, "Economic Freedom", 60.0, "Political Freedom", 40.0));
+	}
+}
@@ -0,0 +1,99 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+import backend.CensusScale;
+import backend.HttpTransport;
+import backend.NationsDump;
+import backend.StatVector;
+import sim.NationsDumpGenerator;
+
+class NationsDumpTests {
+	@TempDir
+	Path directory;
+
+	@Test
+	void keepsNamedNationsAndWholeRegions() throws Exception {
+		List<NationsDumpGenerator.Nation> nations = NationsDumpGenerator.random(3000, 7, 1);
+		Path dump = directory.resolve("nations.xml.gz");
+		NationsDumpGenerator.write(dump, nations);
+
+		NationsDump index = NationsDump.read(dump, List.of("nation 5", "NATION_12"), "Region 3");
+
+		// nations 3, 10, 17... make up region 3
+		assertEquals(2 + 429, index.size());
+		assertTrue(index.nationNames().containsAll(Set.of("nation_5", "nation_12", "nation_3", "nation_2999")));
+		assertNull(index.stats("Nation 6"));
+
+		StatVector generated = nations.get(4).stats();
+		StatVector read = index.stats("Nation 5");
+		assertEquals(generated.get(CensusScale.ECONOMIC_FREEDOM), read.get(CensusScale.ECONOMIC_FREEDOM), 1e-9);
+		assertEquals(generated.get(CensusScale.ECONOMY), read.get(CensusScale.ECONOMY), 1e-9);
+		assertEquals(Math.round(generated.get(CensusScale.CIVIL_RIGHTS)), read.get(CensusScale.CIVIL_RIGHTS), 1e-9);
+		assertEquals(CensusScale.COUNT, read.size());
+		assertFalse(index.isStale());
+	}
+
+	@Test
+	void downloadDatesTheDumpByItsLastModified() throws Exception {
+		Path generated = directory.resolve("generated.xml.gz");
+		NationsDumpGenerator.write(generated, NationsDumpGenerator.random(10, 2, 1));
+		byte[] body = Files.readAllBytes(generated);
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/pages/nations.xml.gz", exchange -> {
+			exchange.getResponseHeaders().set("Last-Modified", "Wed, 14 Oct 2026 22:30:00 GMT");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+
+		try {
+			URI source = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/pages/nations.xml.gz");
+			Path dump = NationsDump.download(HttpTransport.shared(), "tests", source, directory.resolve("nations.xml.gz"));
+
+			NationsDump index = NationsDump.read(dump, List.of("nation 1"), null);
+			assertEquals(Instant.parse("2026-10-14T22:30:00Z"), index.dumpedAt());
+			assertEquals(1, index.size());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	void nationsWithoutFreedomScoresAreSkipped() throws Exception {
+		String xml = "<NATIONS><NATION><NAME>Partial</NAME><REGION>Somewhere</REGION>"
+				+ "<CENSUS><SCALE id=\"48\"><SCORE>12.5</SCORE></SCALE></CENSUS></NATION></NATIONS>";
+
+		NationsDump index = NationsDump.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), List.of(),
+				null, Instant.now());
+
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void malformedDumpFails() {
+		String xml = "<NATIONS><NATION><NAME>Broken</NAME><FREEDOMSCORES><CIVILRIGHTS>high</CIVILRIGHTS>";
+
+		assertThrows(IOException.class, () -> NationsDump.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+				List.of("broken"), null, Instant.now()));
+	}
+}
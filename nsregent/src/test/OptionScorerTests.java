@@ -0,0 +1,78 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import backend.CensusScale;
+import backend.IssuePlanner;
+import backend.OptionMatrix;
+import backend.OptionScorer;
+import backend.StatVector;
+
+class OptionScorerTests {
+	// same mean, option 0 swings widely and option 1 barely at all
+	private static final OptionMatrix SAME_MEAN = OptionMatrix.builder()
+			.effect(0, CensusScale.CIVIL_RIGHTS, -6.0, 2.0, 10.0)
+			.effect(1, CensusScale.CIVIL_RIGHTS, 1.5, 2.0, 2.5)
+			.build();
+
+	@Test
+	void expectedScorePrefersTheNarrowRange() {
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 50.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 52.0));
+
+		double[] mean = new OptionScorer(OptionScorer.Mode.MEAN).score(current, target, SAME_MEAN);
+		assertEquals(mean[0], mean[1], 1e-12);
+		assertEquals(1, new OptionScorer(OptionScorer.Mode.EXPECTED).bestOption(current, target, SAME_MEAN));
+		assertEquals(1, new OptionScorer(OptionScorer.Mode.WORST_CASE).bestOption(current, target, SAME_MEAN));
+	}
+
+	@Test
+	void worstCaseClampsAtTheCap() {
+		// unclamped, option 0 could overshoot to 115; capped at 100 its worst case is landing on 97
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 95.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 100.0));
+		OptionMatrix options = OptionMatrix.builder()
+				.effect(0, CensusScale.CIVIL_RIGHTS, 2.0, 11.0, 20.0)
+				.effect(1, CensusScale.CIVIL_RIGHTS, 1.0, 5.0, 9.0)
+				.build();
+
+		double[] scores = new OptionScorer(OptionScorer.Mode.WORST_CASE).score(current, target, options);
+
+		assertEquals(9.0, scores[0], 1e-9);
+		assertEquals(16.0, scores[1], 1e-9);
+	}
+
+	@Test
+	void monteCarloConvergesOnTheExpectedScore() {
+		StatVector current = StatVector.fromMap(Map.of("Economy", 30.0));
+		StatVector target = StatVector.fromMap(Map.of("Economy", 35.0));
+		OptionMatrix options = OptionMatrix.builder().effect(0, CensusScale.ECONOMY, -2.0, 3.0, 6.0).build();
+
+		double expected = new OptionScorer(OptionScorer.Mode.EXPECTED).score(current, target, options)[0];
+		double sampled = new OptionScorer(OptionScorer.Mode.MONTE_CARLO, 50_000, 1).score(current, target, options)[0];
+
+		assertEquals(expected, sampled, expected * 0.02);
+	}
+
+	@Test
+	void rangeAwarePlannerAddsVarianceOfTheChosenOptions() {
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 50.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 54.0));
+		List<OptionMatrix> issues = List.of(SAME_MEAN, SAME_MEAN);
+		IssuePlanner rangeAware = new IssuePlanner(IssuePlanner.DEFAULT_BEAM_WIDTH, IssuePlanner.EXHAUSTIVE_LIMIT, true);
+
+		IssuePlanner.Plan plan = rangeAware.plan(current, target, issues);
+		IssuePlanner.Plan beam = new IssuePlanner(16, 0, true).plan(current, target, issues);
+		double narrowVariance = new OptionScorer(OptionScorer.Mode.EXPECTED)
+				.score(StatVector.fromMap(Map.of("Civil Rights", 52.0)), target, SAME_MEAN)[1];
+
+		assertArrayEquals(new int[] {1, 1}, plan.options());
+		assertEquals(2 * narrowVariance, plan.distance(), 1e-9);
+		assertEquals(plan.distance(), beam.distance(), 1e-9);
+	}
+}
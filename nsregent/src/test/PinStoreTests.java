@@ -0,0 +1,49 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import backend.PinStore;
+
+class PinStoreTests {
+	private static final char[] PASSPHRASE = "correct horse battery staple".toCharArray();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void pinsSurviveReopeningAndAreEncrypted() throws Exception {
+		Path file = directory.resolve("pins.dat");
+		PinStore store = PinStore.open(file, PASSPHRASE);
+		store.put("Test Nation", "1234567890");
+		store.put("testlandia", "9876543210");
+		store.remove("testlandia");
+
+		PinStore reopened = PinStore.open(file, PASSPHRASE);
+
+		assertEquals("1234567890", reopened.pin("test_nation"));
+		assertNull(reopened.pin("testlandia"));
+		assertEquals(1, reopened.size());
+		assertFalse(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains("1234567890"));
+	}
+
+	@Test
+	void wrongPassphraseOrTamperingFails() throws Exception {
+		Path file = directory.resolve("pins.dat");
+		PinStore.open(file, PASSPHRASE).put("testlandia", "1234567890");
+
+		assertThrows(IOException.class, () -> PinStore.open(file, "guess".toCharArray()));
+
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(file, bytes);
+		assertThrows(IOException.class, () -> PinStore.open(file, PASSPHRASE));
+	}
+}
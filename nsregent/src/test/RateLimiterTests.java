@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import backend.RateLimiter;
+
+class RateLimiterTests {
+
+	@Test
+	void acquireConsumesTokens() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter(5, Duration.ofHours(1));
+
+		limiter.acquire();
+		limiter.acquire();
+
+		assertEquals(3, limiter.available());
+	}
+
+	@Test
+	void remainingHeaderShrinksBucket() {
+		RateLimiter limiter = new RateLimiter(50, Duration.ofHours(1));
+		HttpHeaders headers = HttpHeaders.of(Map.of("RateLimit-Remaining", List.of("7")), (k, v) -> true);
+
+		limiter.observe(200, headers);
+
+		assertEquals(7, limiter.available());
+	}
+
+	@Test
+	void resetHeaderHoldsRefillsUntilTheServerWindowResets() throws InterruptedException {
+		// a token every 600 ms, but the server allows none for the next second
+		RateLimiter limiter = new RateLimiter(50, Duration.ofSeconds(30));
+		HttpHeaders headers = HttpHeaders.of(Map.of("RateLimit-Remaining", List.of("0"), "RateLimit-Reset", List.of("1")),
+				(k, v) -> true);
+
+		limiter.observe(200, headers);
+
+		assertTrue(limiter.acquire() >= Duration.ofSeconds(1).toNanos());
+	}
+
+	@Test
+	void tooManyRequestsEmptiesBucket() {
+		RateLimiter limiter = new RateLimiter(50, Duration.ofHours(1));
+		HttpHeaders headers = HttpHeaders.of(Map.of("Retry-After", List.of("1")), (k, v) -> true);
+
+		limiter.observe(429, headers);
+
+		assertEquals(0, limiter.available());
+	}
+
+	@Test
+	void waitingCallerDoesNotBlockObserveOrAvailable() throws Exception {
+		RateLimiter limiter = new RateLimiter(1, Duration.ofHours(1));
+		HttpHeaders headers = HttpHeaders.of(Map.of("RateLimit-Remaining", List.of("0")), (k, v) -> true);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		limiter.acquire();
+
+		Thread waiter = new Thread(() -> {
+			try {
+				limiter.acquire();
+			} catch (InterruptedException e) {
+				interrupted.set(true);
+			}
+		});
+		waiter.start();
+		while (waiter.getState() != Thread.State.TIMED_WAITING) {
+			Thread.onSpinWait();
+		}
+
+		assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+			limiter.observe(200, headers);
+			assertEquals(0, limiter.available());
+		});
+		waiter.interrupt();
+		waiter.join();
+		assertTrue(interrupted.get());
+	}
+}
@@ -0,0 +1,74 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import backend.StatsJournal;
+import frontend.RegentCli;
+import sim.StandInServer;
+
+class RegentCliTests {
+	@TempDir
+	Path directory;
+
+	@Test
+	void runsEveryConfiguredNationAndPrintsJson() throws Exception {
+		try (StandInServer server = StandInServer.start()) {
+			server.addNation("Cli Nation", "secret");
+			server.addNation("cli_other", "hunter2");
+			Path nations = Files.writeString(directory.resolve("nations.conf"),
+					"# fleet\nCli Nation = secret\n\ncli_other = hunter2\n");
+			Path targets = Files.writeString(directory.resolve("targets.conf"), "Economic Freedom = 80\nCivil Rights = 60\n");
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+			int status = RegentCli.run(new String[] {"--nations", nations.toString(), "--targets", targets.toString(),
+					"--contact", "test@example.com", "--base", server.baseUri().toString(),
+					"--cache", directory.resolve("cache").toString(), "--effects", "none",
+					"--journal", directory.resolve("journal").toString(), "--no-pins"}, new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+
+			String json = out.toString(StandardCharsets.UTF_8).strip();
+			assertEquals(RegentCli.EXIT_SUCCESS, status, err.toString(StandardCharsets.UTF_8));
+			assertTrue(json.startsWith("{\"nations\":2,\"succeeded\":2,"), json);
+			assertTrue(json.contains("{\"nation\":\"Cli Nation\",\"status\":\"success\",\"succeeded\":true,"), json);
+			try (StatsJournal journal = StatsJournal.open(directory.resolve("journal"))) {
+				assertEquals(StandInServer.ISSUES_PER_NATION,
+						journal.decisions("cli_other", Instant.EPOCH, Instant.now().plusSeconds(60)).size());
+			}
+		}
+	}
+
+	@Test
+	void badArgumentsAndFilesExitWithUsage() throws Exception {
+		Path nations = Files.writeString(directory.resolve("nations.conf"), "testlandia = $NSREGENT_TEST_UNSET_PASSWORD\n");
+		Path targets = Files.writeString(directory.resolve("targets.conf"), "Economic Freedom = 80\n");
+		Path unknownTarget = Files.writeString(directory.resolve("unknown.conf"), "Average Happiness = 80\n");
+		Path malformed = Files.writeString(directory.resolve("malformed.conf"), "Economic Freedom 80\n");
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		PrintStream errors = new PrintStream(err, true, StandardCharsets.UTF_8);
+		PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+
+		assertEquals(RegentCli.EXIT_USAGE, RegentCli.run(new String[] {"--nations", nations.toString()}, out, errors));
+		assertEquals(RegentCli.EXIT_USAGE, RegentCli.run(new String[] {"--nations", nations.toString(), "--targets",
+				targets.toString(), "--contact", "test@example.com", "--no-pins"}, out, errors));
+		assertTrue(err.toString(StandardCharsets.UTF_8).contains("$NSREGENT_TEST_UNSET_PASSWORD is not set"));
+		Path fleet = Files.writeString(directory.resolve("fleet.conf"), "testlandia = secret\n");
+		assertEquals(RegentCli.EXIT_USAGE, RegentCli.run(new String[] {"--nations", fleet.toString(), "--targets",
+				targets.toString(), "--contact", "test@example.com", "--effects", directory.resolve("missing.db").toString(),
+				"--no-pins"}, out, errors));
+
+		assertThrows(IOException.class, () -> RegentCli.readTargets(unknownTarget));
+		assertThrows(IOException.class, () -> RegentCli.readTargets(malformed));
+		assertEquals(80.0, RegentCli.readTargets(targets).get("Economic Freedom"));
+	}
+}
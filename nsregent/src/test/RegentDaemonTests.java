@@ -0,0 +1,74 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.IssueSchedule;
+import backend.RateLimiter;
+import backend.RegentContext;
+import backend.RegentDaemon;
+import sim.StandInServer;
+
+class RegentDaemonTests {
+	private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+	private final IssueSchedule schedule = new IssueSchedule(Duration.ofSeconds(30), Duration.ofMinutes(30),
+			Duration.ofHours(6), Duration.ofMinutes(2));
+
+	@Test
+	void sleepsUntilNextIssuePlusJitter() {
+		Duration delay = schedule.delay(NOW.plus(Duration.ofHours(2)), NOW, 0, 0.5);
+
+		assertEquals(Duration.ofHours(2).plusMinutes(1), delay);
+	}
+
+	@Test
+	void pollsWhenNextIssueTimeIsUnknownAndWaitsAtLeastMinDelay() {
+		assertEquals(Duration.ofMinutes(30), schedule.delay(null, NOW, 0, 0.0));
+		assertEquals(Duration.ofSeconds(30), schedule.delay(NOW.minusSeconds(5), NOW, 0, 0.0));
+		assertEquals(Duration.ofSeconds(30), schedule.delay(NOW.plusSeconds(1), NOW, 0, 0.0));
+	}
+
+	@Test
+	void backsOffExponentiallyAfterFailures() {
+		assertEquals(Duration.ofMinutes(30), schedule.delay(NOW.plusSeconds(60), NOW, 1, 0.0));
+		assertEquals(Duration.ofMinutes(120), schedule.delay(null, NOW, 3, 0.0));
+		assertEquals(Duration.ofHours(6), schedule.delay(null, NOW, 40, 0.0));
+	}
+
+	@Test
+	void answersIssuesAsTheyArrive() throws Exception {
+		try (StandInServer server = StandInServer.start()) {
+			server.issueInterval(Duration.ofSeconds(1));
+			HttpTransport transport = new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 2,
+					new RateLimiter(1000, Duration.ofSeconds(1)));
+			RegentContext context = RegentContext.builder(transport, new IssueEffectCache(null, Duration.ofDays(1), 100, 1))
+					.endpoints(server.endpoints()).build();
+			IssueSchedule fastSchedule = new IssueSchedule(Duration.ofMillis(50), Duration.ofMillis(200),
+					Duration.ofSeconds(1), Duration.ofMillis(20));
+
+			try (RegentDaemon daemon = new RegentDaemon(context, "tests", Map.of("Civil Rights", 50.0), fastSchedule)) {
+				daemon.addNation(server.addNation("testlandia", "secret"));
+
+				long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+				while (server.answeredIssues("testlandia") <= StandInServer.ISSUES_PER_NATION && System.nanoTime() < deadline) {
+					Thread.sleep(50);
+				}
+
+				RegentDaemon.NationStatus status = daemon.status().get(0);
+				assertTrue(server.answeredIssues("testlandia") > StandInServer.ISSUES_PER_NATION);
+				assertTrue(status.cycles() >= 2);
+				assertEquals(0, status.consecutiveFailures());
+				assertTrue(daemon.removeNation("testlandia"));
+			} finally {
+				transport.shutdown();
+			}
+		}
+	}
+}
@@ -2,12 +2,79 @@ package test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 
+import backend.CensusScale;
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.IssueEffectsParser;
+import backend.OptionMatrix;
+import backend.PinStore;
+import backend.RegentContext;
+import backend.RegentImpl;
+import backend.StatVector;
+
 class RegentTests {
+	// no disk cache or pin store, so the tests leave nothing under ~/.nsregent
+	private static final RegentContext CONTEXT = RegentContext.builder(HttpTransport.shared(),
+			new IssueEffectCache(null, IssueEffectCache.DEFAULT_TTL, IssueEffectCache.DEFAULT_MEMORY_ENTRIES, 1))
+			.pinStore(PinStore.inMemory()).build();
+	private static final String MWQ_PAGE = "<html><body><table>"
+			+ "<tr><th>Option</th><th>Effect</th></tr>"
+			+ "<tr><td>1. Ban it.</td><td>"
+			+ "<div>-0.50 to +2.31 Civil Rights (mean +1.25)</div>"
+			+ "<div>-3.00 to -1.00 Industry: Cheese Exports (mean -2.10)</div>"
+			+ "<div>removes policy: Cheese</div>"
+			+ "</td></tr>"
+			+ "<tr><td>2. Allow it.</td><td>"
+			+ "<div>+0.10 to +0.90 Economic Freedom (mean 0.40)</div>"
+			+ "</td></tr>"
+			+ "</table></body></html>";
+
+	@Test
+	void parsesMwqEffectsForEveryCensusScale() {
+		OptionMatrix options = IssueEffectsParser.parse(MWQ_PAGE, "http://www.mwq.dds.nl/ns/results/1.html");
+
+		assertEquals(2, options.optionCount());
+		assertEquals(0, options.optionKey(0));
+		assertEquals(1.25, options.effect(0, CensusScale.CIVIL_RIGHTS.ordinal()));
+		assertEquals(-2.10, options.effect(0, CensusScale.INDUSTRY_CHEESE_EXPORTS.ordinal()));
+		assertEquals(0.0, options.effect(0, CensusScale.ECONOMIC_FREEDOM.ordinal()));
+		assertEquals(0.40, options.effect(1, CensusScale.ECONOMIC_FREEDOM.ordinal()));
+	}
 
 	@Test
-	void test() {
-		fail("Not yet implemented");
+	void parsesMwqEffectRanges() {
+		OptionMatrix options = IssueEffectsParser.parse(MWQ_PAGE, "http://www.mwq.dds.nl/ns/results/1.html");
+
+		assertEquals(-0.50, options.min(0, CensusScale.CIVIL_RIGHTS.ordinal()));
+		assertEquals(2.31, options.max(0, CensusScale.CIVIL_RIGHTS.ordinal()));
+		assertEquals(-3.00, options.min(0, CensusScale.INDUSTRY_CHEESE_EXPORTS.ordinal()));
+		assertEquals(-1.00, options.max(0, CensusScale.INDUSTRY_CHEESE_EXPORTS.ordinal()));
+		assertEquals(0.0, options.max(1, CensusScale.CIVIL_RIGHTS.ordinal()));
+	}
+
+	@Test
+	void chooseBestOptionMinimizesDistance() {
+		RegentImpl regent = new RegentImpl("testlandia", "password", "test@example.com", CONTEXT);
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 50.0, "Economic Freedom", 50.0));
+		StatVector target = StatVector.fromMap(Map.of("Civil Rights", 52.0, "Economic Freedom", 50.0));
+		OptionMatrix options = OptionMatrix.fromMap(Map.of(
+				0, Map.of("Civil Rights", -1.0),
+				1, Map.of("Civil Rights", 1.5),
+				2, Map.of("Civil Rights", 2.0, "Economic Freedom", 3.0)));
+
+		assertEquals(1, regent.chooseBestOption(current, target, options));
+	}
+
+	@Test
+	void chooseBestOptionRejectsEmptyOptions() {
+		RegentImpl regent = new RegentImpl("testlandia", "password", "test@example.com", CONTEXT);
+		StatVector stats = StatVector.fromMap(Map.of("Civil Rights", 50.0));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> regent.chooseBestOption(stats, stats, OptionMatrix.builder().build()));
 	}
 }
@@ -0,0 +1,38 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import backend.ShardRequest;
+
+class ShardRequestTests {
+
+	@Test
+	void combinesShardsIntoOneQuery() {
+		String url = ShardRequest.nation("testlandia")
+				.shard("issues")
+				.shard("freedomscores")
+				.census(48)
+				.toUrl("https://example.test/api.cgi");
+
+		assertEquals("https://example.test/api.cgi?nation=testlandia&q=issues+freedomscores+census;scale=48&v=12", url);
+	}
+
+	@Test
+	void mergesDuplicateShardsAndScales() {
+		String url = ShardRequest.nation("testlandia")
+				.shard("issues")
+				.census(48)
+				.shard("ISSUES")
+				.census(0, 48)
+				.toUrl("https://example.test/api.cgi");
+
+		assertEquals("https://example.test/api.cgi?nation=testlandia&q=issues+census;scale=0+48&v=12", url);
+	}
+
+	@Test
+	void rejectsEmptyRequest() {
+		assertThrows(IllegalStateException.class, () -> ShardRequest.nation("testlandia").toUrl());
+	}
+}
@@ -0,0 +1,296 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import backend.CensusScale;
+import backend.FleetReport;
+import backend.FleetRunner;
+import backend.HttpTransport;
+import backend.IssueEffectCache;
+import backend.IssueEvent;
+import backend.IssueHandler;
+import backend.Metrics;
+import backend.MetricsSnapshot;
+import backend.NationCredentials;
+import backend.NationsDump;
+import backend.PinStore;
+import backend.RateLimiter;
+import backend.RegentContext;
+import backend.StatVector;
+import sim.NationsDumpGenerator;
+import sim.Recording;
+import sim.StandInServer;
+
+class StandInServerTests {
+	private static final Map<String, Double> TARGET = Map.of("Civil Rights", 50.0, "Political Freedom", 50.0);
+
+	@TempDir
+	Path directory;
+
+	private StandInServer server;
+	private HttpTransport transport;
+	private RegentContext context;
+
+	@BeforeEach
+	void start() throws Exception {
+		server = StandInServer.start();
+		transport = new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 2,
+				new RateLimiter(1000, Duration.ofSeconds(1)));
+		context = RegentContext.builder(transport, new IssueEffectCache(null, Duration.ofDays(1), 100, 1))
+				.endpoints(server.endpoints()).build();
+	}
+
+	@AfterEach
+	void stop() {
+		transport.shutdown();
+		server.close();
+	}
+
+	@Test
+	void handleIssuesAnswersEveryPendingIssue() throws Exception {
+		server.addNation("Test Nation", "secret");
+		IssueHandler handler = new IssueHandler("test_nation", "secret", "tests", context);
+
+		assertEquals("success", handler.handleIssues(TARGET));
+		assertTrue(server.pendingIssues("test_nation").isEmpty());
+		assertEquals(1 + StandInServer.ISSUES_PER_NATION, handler.getRequestCount());
+
+		MetricsSnapshot metrics = context.metrics().snapshot();
+		assertEquals(StandInServer.ISSUES_PER_NATION, metrics.endpoints().get(Metrics.ISSUE_ANSWER).requests());
+		assertEquals(StandInServer.ISSUES_PER_NATION, metrics.counter(Metrics.CACHE_MISSES));
+		assertTrue(metrics.endpoints().get(Metrics.SHARDS).bytes() > 0);
+		assertEquals(1, metrics.stages().get(Metrics.CYCLE).count());
+	}
+
+	@Test
+	void effectTablesAreFetchedConcurrently() throws Exception {
+		Duration latency = Duration.ofMillis(200);
+		server.latency(latency, Duration.ZERO);
+		server.addNation("testlandia", "secret");
+		IssueHandler handler = new IssueHandler("testlandia", "secret", "tests", context);
+
+		long start = System.nanoTime();
+		assertEquals("success", handler.handleIssues(TARGET));
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		// one after another would take the login, every results page and every answer
+		Duration sequential = latency.multipliedBy(1 + 2 * StandInServer.ISSUES_PER_NATION);
+		assertTrue(elapsed.compareTo(sequential) < 0, "cycle took " + elapsed);
+		assertEquals(StandInServer.ISSUES_PER_NATION,
+				context.metrics().snapshot().endpoints().get(Metrics.RESULTS_PAGE).requests());
+	}
+
+	@Test
+	void listenerReceivesEveryAnswer() throws Exception {
+		server.addNation("testlandia", "secret");
+		server.rateLimit(1000, Duration.ofSeconds(30));
+		IssueHandler handler = new IssueHandler("testlandia", "secret", "tests", context);
+		List<IssueEvent> events = new CopyOnWriteArrayList<>();
+		handler.setIssueListener(events::add);
+
+		assertEquals("success", handler.handleIssues(TARGET));
+
+		assertEquals(StandInServer.ISSUES_PER_NATION, events.size());
+		IssueEvent last = events.get(events.size() - 1);
+		assertTrue(last.succeeded());
+		assertFalse(last.censusChanges().isEmpty());
+		assertEquals(handler.getRequestCount(), last.requestCount());
+		assertEquals(1000 - handler.getRequestCount(), last.rateLimitRemaining());
+	}
+
+	@Test
+	void resultsPagesAreCompressedAndRevalidated() throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(server.endpoints().resultsUrl(7))).build();
+
+		HttpResponse<byte[]> raw = HttpClient.newHttpClient().send(HttpRequest.newBuilder(request.uri())
+				.header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+		assertEquals("gzip", raw.headers().firstValue("Content-Encoding").orElse(""));
+
+		HttpResponse<String> first = transport.send(Metrics.RESULTS_PAGE, request, HttpResponse.BodyHandlers.ofString());
+		HttpResponse<String> second = transport.send(Metrics.RESULTS_PAGE, request, HttpResponse.BodyHandlers.ofString());
+		HttpResponse<String> third = transport.sendAsync(Metrics.RESULTS_PAGE, request, HttpResponse.BodyHandlers.ofString()).get();
+
+		assertEquals(200, first.statusCode());
+		assertTrue(first.body().contains("<"));
+		assertEquals(200, second.statusCode());
+		assertEquals(first.body(), second.body());
+		assertEquals(first.body(), third.body());
+		assertEquals(2, transport.metrics().snapshot().counter(Metrics.NOT_MODIFIED));
+		// the compressed body once, the two 304s replayed from the cache add nothing
+		assertEquals(raw.body().length, transport.metrics().snapshot().endpoints().get(Metrics.RESULTS_PAGE).bytes());
+	}
+
+	@Test
+	void nationsDumpSeedsStartingStats() throws Exception {
+		server.addNation("testlandia", "secret");
+		StatVector dumped = new StatVector();
+		for (CensusScale scale : CensusScale.values()) {
+			dumped.set(scale, server.score("testlandia", scale));
+		}
+		// an offset the api could never report shows which source the stats came from
+		dumped.add(CensusScale.ECONOMIC_FREEDOM, 1000.0);
+		Path dump = directory.resolve("nations.xml.gz");
+		NationsDumpGenerator.write(dump, List.of(new NationsDumpGenerator.Nation("Testlandia", "Testregionia", dumped)));
+
+		RegentContext seeded = RegentContext.builder(transport, new IssueEffectCache(null, Duration.ofDays(1), 100, 1))
+				.endpoints(server.endpoints()).nationsDump(NationsDump.read(dump, List.of("testlandia"), null)).build();
+		IssueHandler handler = new IssueHandler("testlandia", "secret", "tests", seeded);
+
+		assertEquals("success", handler.handleIssues(TARGET));
+		assertEquals(1000.0, handler.getNationsCurrentStats().get(CensusScale.ECONOMIC_FREEDOM)
+				- server.score("testlandia", CensusScale.ECONOMIC_FREEDOM), 0.1);
+	}
+
+	@Test
+	void pinsAreReusedAcrossRunsUntilTheyExpire() throws Exception {
+		server.addNation("testlandia", "secret");
+		Path pins = directory.resolve("pins.dat");
+		char[] passphrase = "tests".toCharArray();
+
+		assertEquals("success", handlerWithPins(PinStore.open(pins, passphrase)).handleIssues(TARGET));
+		assertEquals(1, server.passwordLogins("testlandia"));
+
+		// a later run reads the pin from disk and never sends the password
+		IssueHandler nextRun = handlerWithPins(PinStore.open(pins, passphrase));
+		assertEquals("success", nextRun.handleIssues(TARGET));
+		assertEquals(1, server.passwordLogins("testlandia"));
+		assertEquals(1, nextRun.getRequestCount());
+
+		// an expired pin costs one rejected request and one password login
+		server.expirePin("testlandia");
+		PinStore store = PinStore.open(pins, passphrase);
+		String expiredPin = store.pin("testlandia");
+		IssueHandler afterExpiry = handlerWithPins(store);
+		assertEquals("success", afterExpiry.handleIssues(TARGET));
+		assertEquals(2, server.passwordLogins("testlandia"));
+		assertEquals(2, afterExpiry.getRequestCount());
+		assertNotEquals(expiredPin, PinStore.open(pins, passphrase).pin("testlandia"));
+	}
+
+	private IssueHandler handlerWithPins(PinStore pinStore) {
+		RegentContext withPins = RegentContext.builder(transport, new IssueEffectCache(null, Duration.ofDays(1), 100, 1))
+				.endpoints(server.endpoints()).pinStore(pinStore).build();
+		return new IssueHandler("testlandia", "secret", "tests", withPins);
+	}
+
+	@Test
+	void onlyInvalidChoicesAreRetriedWithAnotherOption() throws Exception {
+		server.addNation("testlandia", "secret");
+		server.failAnswers("testlandia", "Issue not found.");
+		IssueHandler handler = new IssueHandler("testlandia", "secret", "tests", context);
+
+		IOException failure = assertThrows(IOException.class, () -> handler.handleIssues(TARGET));
+		assertTrue(failure.getMessage().contains("Issue not found."), failure.getMessage());
+		assertEquals(1, server.answerAttempts("testlandia"));
+		assertEquals(StandInServer.ISSUES_PER_NATION, server.pendingIssues("testlandia").size());
+	}
+
+	@Test
+	void fleetRecordsAFailingNationWithoutStoppingTheOthers() throws Exception {
+		server.addNation("first", "secret");
+		server.addNation("failing", "secret");
+		server.addNation("third", "secret");
+		server.failAnswers("failing", "Issue not found.");
+		List<NationCredentials> nations = List.of(new NationCredentials("first", "secret"),
+				new NationCredentials("failing", "secret"), new NationCredentials("third", "secret"));
+
+		FleetReport report = new FleetRunner(context, "tests").run(nations, TARGET);
+
+		assertEquals(List.of("first", "failing", "third"),
+				report.results().stream().map(FleetReport.NationResult::nationName).toList());
+		assertEquals(2, report.successCount());
+		FleetReport.NationResult failing = report.results().get(1);
+		assertFalse(failing.succeeded());
+		assertTrue(failing.status().startsWith("error: ") && failing.status().contains("Issue not found."), failing.status());
+		assertEquals(1 + StandInServer.ISSUES_PER_NATION, report.results().get(0).requestCount());
+		assertEquals(1 + StandInServer.ISSUES_PER_NATION, report.results().get(2).requestCount());
+		assertEquals(report.results().stream().mapToLong(FleetReport.NationResult::requestCount).sum(), report.requestCount());
+		assertTrue(server.pendingIssues("first").isEmpty());
+		assertTrue(server.pendingIssues("third").isEmpty());
+		assertEquals(StandInServer.ISSUES_PER_NATION, server.pendingIssues("failing").size());
+	}
+
+	@Test
+	void wrongPasswordFailsAuthentication() throws Exception {
+		server.addNation("testlandia", "secret");
+		IssueHandler handler = new IssueHandler("testlandia", "wrong", "tests", context);
+
+		assertEquals("authentication failed", handler.handleIssues(TARGET));
+		assertEquals(StandInServer.ISSUES_PER_NATION, server.pendingIssues("testlandia").size());
+	}
+
+	@Test
+	void requestsOverTheLimitGetRetryAfter() throws Exception {
+		server.addNation("testlandia", "secret");
+		server.rateLimit(2, Duration.ofSeconds(30));
+		HttpClient client = HttpClient.newHttpClient();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(server.endpoints().apiUrl() + "?nation=testlandia&q=issues"))
+				.header("X-Password", "secret")
+				.build();
+
+		assertEquals("1", client.send(request, HttpResponse.BodyHandlers.discarding()).headers()
+				.firstValue("RateLimit-Remaining").orElseThrow());
+		client.send(request, HttpResponse.BodyHandlers.discarding());
+		HttpResponse<Void> limited = client.send(request, HttpResponse.BodyHandlers.discarding());
+
+		assertEquals(429, limited.statusCode());
+		assertTrue(limited.headers().firstValueAsLong("Retry-After").orElse(0) > 0);
+	}
+
+	@Test
+	void retriedRateLimitedResponsesAreDiscarded() throws Exception {
+		server.addNation("testlandia", "secret");
+		server.rateLimit(1, Duration.ofSeconds(1));
+		HttpRequest request = HttpRequest.newBuilder(URI.create(server.endpoints().apiUrl() + "?nation=testlandia&q=issues"))
+				.header("X-Password", "secret")
+				.build();
+		List<Integer> handled = new CopyOnWriteArrayList<>();
+		HttpResponse.BodyHandler<String> handler = info -> {
+			handled.add(info.statusCode());
+			return HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+		};
+
+		// spent outside the transport, whose limiter would otherwise wait for the reset instead of getting a 429
+		HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+		HttpResponse<String> retried = transport.sendApi(request, handler);
+
+		assertEquals(200, retried.statusCode());
+		assertEquals(List.of(200), handled);
+		assertEquals(1, transport.metrics().snapshot().counter(Metrics.RATE_LIMITED));
+	}
+
+	@Test
+	void replaysRecordedExchanges() throws Exception {
+		Recording recording = new Recording();
+		recording.add(new Recording.Exchange("GET", "/ns/results/7.html", "", 200,
+				Map.of("Content-Type", "text/html"), "<p>first</p>".getBytes(StandardCharsets.UTF_8)));
+		recording.add(new Recording.Exchange("GET", "/ns/results/7.html", "", 200,
+				Map.of("Content-Type", "text/html"), "<p>second</p>".getBytes(StandardCharsets.UTF_8)));
+		recording.save(directory);
+
+		server.replay(Recording.load(directory));
+		HttpClient client = HttpClient.newHttpClient();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(server.endpoints().resultsUrl(7))).build();
+
+		assertEquals("<p>first</p>", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+		assertEquals("<p>second</p>", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+		assertEquals("<p>second</p>", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+	}
+}
@@ -0,0 +1,59 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import backend.CensusScale;
+import backend.OptionMatrix;
+import backend.StatVector;
+
+class StatVectorTests {
+
+	@Test
+	void absentScalesAreNotPresent() {
+		StatVector stats = StatVector.fromMap(Map.of("Civil Rights", 50.0, "Not A Scale", 1.0));
+
+		assertTrue(stats.has(CensusScale.CIVIL_RIGHTS));
+		assertFalse(stats.has(CensusScale.ECONOMY));
+		assertEquals(1, stats.size());
+		assertEquals(Map.of("Civil Rights", 50.0), stats.toMap());
+	}
+
+	@Test
+	void sharedScalesIntersectsPresentScales() {
+		StatVector current = StatVector.fromMap(Map.of("Civil Rights", 50.0, "Economic Freedom", 20.0));
+		StatVector target = StatVector.fromMap(Map.of("Economic Freedom", 30.0, "Crime", 10.0));
+
+		assertArrayEquals(new int[] {CensusScale.ECONOMIC_FREEDOM.ordinal()}, current.sharedScales(target));
+	}
+
+	@Test
+	void optionMatrixDefaultsMissingEffectsToZero() {
+		OptionMatrix options = OptionMatrix.builder()
+				.effect(2, CensusScale.CRIME, -1.5)
+				.option(0)
+				.build();
+
+		assertEquals(0, options.optionKey(0));
+		assertEquals(2, options.optionKey(1));
+		assertEquals(0.0, options.effect(0, CensusScale.CRIME.ordinal()));
+		assertEquals(-1.5, options.effect(1, CensusScale.CRIME.ordinal()));
+	}
+
+	@Test
+	void withoutDropsOneOption() {
+		OptionMatrix options = OptionMatrix.builder()
+				.effect(0, CensusScale.CRIME, 1.0)
+				.effect(1, CensusScale.CRIME, 2.0)
+				.effect(2, CensusScale.CRIME, 3.0)
+				.build()
+				.without(1);
+
+		assertEquals(2, options.optionCount());
+		assertEquals(2, options.optionKey(1));
+		assertEquals(3.0, options.effect(1, CensusScale.CRIME.ordinal()));
+	}
+}
@@ -0,0 +1,202 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import backend.CensusScale;
+import backend.StatVector;
+import backend.StatsJournal;
+
+class StatsJournalTests {
+	private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void concurrentAppendsAcrossSegmentsSurviveReopening() throws Exception {
+		int threads = 8;
+		int snapshots = 500;
+		try (StatsJournal journal = StatsJournal.open(directory, 4096, Duration.ofDays(3650), null)) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				String nation = "Nation " + t;
+				writers.add(pool.submit(() -> {
+					for (int i = 0; i < snapshots; i++) {
+						journal.recordSnapshot(nation, START.plusSeconds(i), stats(i));
+					}
+				}));
+			}
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+			pool.shutdown();
+
+			assertTrue(journal.segmentCount() > 1);
+			assertSnapshots(journal.snapshots("nation_3", START, START.plusSeconds(snapshots)), snapshots);
+		}
+
+		try (StatsJournal reopened = StatsJournal.open(directory, 4096, Duration.ofDays(3650), null)) {
+			for (int t = 0; t < threads; t++) {
+				assertSnapshots(reopened.snapshots("NATION " + t, START, START.plusSeconds(snapshots)), snapshots);
+			}
+			List<StatsJournal.Snapshot> range = reopened.snapshots("nation_0", START.plusSeconds(100), START.plusSeconds(110));
+			assertEquals(10, range.size());
+			assertEquals(START.plusSeconds(100), range.get(0).time());
+			assertTrue(reopened.snapshots("unknown", START, START.plusSeconds(snapshots)).isEmpty());
+		}
+	}
+
+	@Test
+	void decisionsKeepExpectedAndActualEffects() throws Exception {
+		StatVector expected = new StatVector();
+		expected.set(CensusScale.ECONOMIC_FREEDOM, 1.5);
+		StatVector actual = new StatVector();
+		actual.set(CensusScale.ECONOMIC_FREEDOM, 2.0);
+		actual.set(CensusScale.CIVIL_RIGHTS, -0.5);
+
+		try (StatsJournal journal = StatsJournal.open(directory, 4096, Duration.ofDays(3650), null)) {
+			journal.recordDecision("Testlandia", START, 1234, 2, true, expected, actual);
+			journal.recordSnapshot("Testlandia", START, actual);
+
+			List<StatsJournal.Decision> decisions = journal.decisions("testlandia", START, START.plusSeconds(1));
+			assertEquals(1, decisions.size());
+			StatsJournal.Decision decision = decisions.get(0);
+			assertEquals(1234, decision.issueId());
+			assertEquals(2, decision.option());
+			assertTrue(decision.succeeded());
+			assertEquals(0.5, decision.error(CensusScale.ECONOMIC_FREEDOM), 1e-9);
+			assertEquals(-0.5, decision.error(CensusScale.CIVIL_RIGHTS), 1e-9);
+			assertEquals(2.0, decision.actual().get(CensusScale.ECONOMIC_FREEDOM));
+		}
+	}
+
+	@Test
+	void compactionMergesSegmentsAndDropsExpiredRecords() throws Exception {
+		Instant recent = Instant.now().minus(Duration.ofDays(1));
+		Instant expired = Instant.now().minus(Duration.ofDays(30));
+
+		try (StatsJournal journal = StatsJournal.open(directory, 4096, Duration.ofDays(7), null)) {
+			for (int i = 0; i < 200; i++) {
+				journal.recordSnapshot("testlandia", (i % 2 == 0) ? expired.plusSeconds(i) : recent.plusSeconds(i), stats(i));
+			}
+		}
+
+		// the active segment is never compacted, reopening seals it
+		try (StatsJournal journal = StatsJournal.open(directory, 4096, Duration.ofDays(7), null)) {
+			int before = journal.segmentCount();
+
+			assertTrue(journal.compact() > 1);
+			assertTrue(journal.segmentCount() < before);
+			assertEquals(100, journal.snapshots("testlandia", Instant.EPOCH, Instant.now()).size());
+			assertEquals(0, journal.compact());
+		}
+
+		try (StatsJournal reopened = StatsJournal.open(directory, 4096, Duration.ofDays(7), null)) {
+			List<StatsJournal.Snapshot> snapshots = reopened.snapshots("testlandia", Instant.EPOCH, Instant.now());
+			assertEquals(100, snapshots.size());
+			assertTrue(snapshots.stream().allMatch(snapshot -> snapshot.time().isAfter(expired.plus(Duration.ofDays(7)))));
+		}
+		try (var files = Files.list(directory)) {
+			assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+		}
+	}
+
+	@Test
+	void shortRunsDoNotPileUpSegments() throws Exception {
+		int runs = 6;
+		for (int run = 0; run < runs; run++) {
+			// a cron cycle: open, record, close long before the compaction interval
+			try (StatsJournal journal = StatsJournal.open(directory, 4096, Duration.ofDays(3650), Duration.ofHours(1))) {
+				journal.recordSnapshot("testlandia", START.plusSeconds(run), stats(run));
+			}
+		}
+
+		try (var files = Files.list(directory)) {
+			// close waited for the compaction started at open, which merged every earlier run
+			assertTrue(files.count() <= 2);
+		}
+		try (StatsJournal reopened = StatsJournal.open(directory, 4096, Duration.ofDays(3650), null)) {
+			assertSnapshots(reopened.snapshots("testlandia", Instant.EPOCH, Instant.MAX), runs);
+		}
+	}
+
+	@Test
+	void closeWaitsForWritersAndRejectsLaterAppends() throws Exception {
+		int threads = 4;
+		AtomicInteger appended = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(threads);
+		StatsJournal journal = StatsJournal.open(directory, StatsJournal.DEFAULT_SEGMENT_BYTES, Duration.ofDays(3650), null);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> writers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			String nation = "Nation " + t;
+			writers.add(pool.submit(() -> {
+				started.countDown();
+				try {
+					for (int i = 0; ; i++) {
+						journal.recordSnapshot(nation, START.plusSeconds(i), stats(i));
+						appended.incrementAndGet();
+					}
+				} catch (IllegalStateException e) {
+					// closed
+				}
+			}));
+		}
+		started.await();
+		Thread.sleep(50);
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			journal.close();
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+		});
+		pool.shutdown();
+		assertThrows(IllegalStateException.class, () -> journal.recordSnapshot("testlandia", stats(1)));
+		journal.close();
+
+		try (StatsJournal reopened = StatsJournal.open(directory, 4096, Duration.ofDays(3650), null)) {
+			int recorded = 0;
+			for (int t = 0; t < threads; t++) {
+				recorded += reopened.snapshots("nation_" + t, Instant.EPOCH, Instant.MAX).size();
+			}
+			assertEquals(appended.get(), recorded);
+		}
+		try (var files = Files.list(directory)) {
+			// the closed segment was trimmed, and the reopened one was empty and removed
+			assertTrue(files.allMatch(file -> file.toFile().length() < StatsJournal.DEFAULT_SEGMENT_BYTES));
+		}
+	}
+
+	private static StatVector stats(int i) {
+		StatVector stats = new StatVector();
+		stats.set(CensusScale.ECONOMIC_FREEDOM, i);
+		stats.set(CensusScale.CIVIL_RIGHTS, i / 2.0);
+		return stats;
+	}
+
+	private static void assertSnapshots(List<StatsJournal.Snapshot> snapshots, int count) {
+		assertEquals(count, snapshots.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(START.plusSeconds(i), snapshots.get(i).time());
+			assertEquals(i, snapshots.get(i).stats().get(CensusScale.ECONOMIC_FREEDOM));
+			assertEquals(i / 2.0, snapshots.get(i).stats().get(CensusScale.CIVIL_RIGHTS));
+		}
+	}
+}